@@ -0,0 +1,63 @@
+package Lexer;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State; // not Lexer.State
+
+// Cost of each stage of building a token rule's automaton: regex parsing,
+// Thompson construction and subset construction (plus minimization), against
+// setting up a LazyDFA, which defers determinization to matching time, and a
+// BitParallelMatcher, which never determinizes at all.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AutomataBenchmark {
+    @Param({"CHAR_LITERAL", "IDENTIFIER", "DECIMAL", "MultiCOMMENT", "ERROR"})
+    String rule;
+
+    String regex;
+    RegexNode tree;
+    NFA nfa;
+
+    @Setup
+    public void setup() {
+        for (String[] spec : DFAStore.TOKEN_SPECS) {
+            if (spec[0].equals(rule)) {
+                regex = spec[1];
+            }
+        }
+        if (regex == null) {
+            throw new RuntimeException("No token rule named " + rule);
+        }
+        tree = new Parser(regex).parse();
+        nfa = ThompsonConstruction.buildNFAFromRegex(tree);
+    }
+
+    @Benchmark
+    public RegexNode parse() {
+        return new Parser(regex).parse();
+    }
+
+    @Benchmark
+    public NFA buildNFAFromRegex() {
+        return ThompsonConstruction.buildNFAFromRegex(tree);
+    }
+
+    @Benchmark
+    public DFA convertNFAtoDFA() {
+        return DFAConverter.convertNFAtoDFA(nfa);
+    }
+
+    @Benchmark
+    public LazyDFA buildLazyDFA() {
+        return new LazyDFA(nfa);
+    }
+
+    @Benchmark
+    public BitParallelMatcher buildBitParallel() {
+        return BitParallelMatcher.build(tree);
+    }
+}
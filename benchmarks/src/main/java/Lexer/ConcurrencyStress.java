@@ -0,0 +1,131 @@
+package Lexer;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+// Lexes many small programs at once on virtual threads, all sharing the
+// DFAStore tables, and checks every result against a single-threaded run.
+// The first round starts before anything has touched DFAStore, so it also
+// races the one-time table loading. Alongside the lexers, the token rules and
+// the whole table set are rebuilt (Parser, Thompson, subset construction) on
+// other virtual threads; the tables must come out equal to the shipped resource.
+//   ./gradlew :benchmarks:stress -PstressArgs='<programs> <rounds>'
+// Exits with status 1 on any mismatch.
+public class ConcurrencyStress {
+    private static final int TABLE_BUILDS = 4;
+
+    public static void main(String[] args) throws Exception {
+        int programs = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        String[] inputs = new String[programs];
+        CorpusGenerator.Profile[] profiles = CorpusGenerator.Profile.values();
+        Random random = new Random(42);
+        for (int i = 0; i < programs; i++) {
+            String program = CorpusGenerator.generate(profiles[i % profiles.length], 256 + random.nextInt(8192), i);
+            if (i % 10 == 9) {
+                // Every tenth program has a lexical error somewhere
+                int at = program.indexOf('\n', random.nextInt(program.length())) + 1;
+                program = program.substring(0, at) + "int Bad = 1;\n" + program.substring(at);
+            }
+            inputs[i] = program;
+        }
+
+        List<String[]> concurrent = new ArrayList<>();
+        List<Map<String, String>> rebuilt = new ArrayList<>();
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            String[] results = new String[programs];
+            Map<String, String> automata = new ConcurrentHashMap<>();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < programs; i++) {
+                    int index = i;
+                    executor.submit(() -> results[index] = lex(inputs[index]));
+                }
+                for (String[] spec : DFAStore.TOKEN_SPECS) {
+                    executor.submit(() -> automata.put(spec[0], rebuild(spec[1])));
+                }
+                for (int k = 0; k < TABLE_BUILDS; k++) {
+                    String key = "tables " + k;
+                    executor.submit(() -> automata.put(key, describe(DFAStore.compileTables())));
+                }
+            }
+            concurrent.add(results);
+            rebuilt.add(automata);
+            System.out.printf("round %d: %d programs on virtual threads in %.1f ms%n",
+                    round + 1, programs, (System.nanoTime() - start) / 1e6);
+        }
+
+        int mismatches = 0;
+        for (int i = 0; i < programs; i++) {
+            String expected = lex(inputs[i]);
+            for (String[] results : concurrent) {
+                if (!expected.equals(results[i])) {
+                    mismatches++;
+                }
+            }
+        }
+        Map<String, String> expected = new HashMap<>();
+        for (String[] spec : DFAStore.TOKEN_SPECS) {
+            expected.put(spec[0], rebuild(spec[1]));
+        }
+        Map<String, CompiledDFA> loaded = new HashMap<>();
+        for (String[] spec : DFAStore.TOKEN_SPECS) {
+            loaded.put(spec[0], DFAStore.getCompiledDFA(spec[0]));
+        }
+        loaded.put(DFAStore.SCANNER, DFAStore.getScanner());
+        for (int k = 0; k < TABLE_BUILDS; k++) {
+            expected.put("tables " + k, describe(loaded));
+        }
+        for (Map<String, String> automata : rebuilt) {
+            for (Map.Entry<String, String> entry : expected.entrySet()) {
+                if (!entry.getValue().equals(automata.get(entry.getKey()))) {
+                    mismatches++;
+                    System.out.println("Automaton differs for " + entry.getKey());
+                }
+            }
+        }
+
+        System.out.println(programs * rounds + " concurrent lexer runs and " + expected.size() * rounds
+                + " concurrent automaton builds, " + mismatches + " mismatches");
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+
+    // Every token, the symbol table and the error, if any, as one string
+    private static String lex(String input) {
+        StringBuilder out = new StringBuilder();
+        LexicalAnalyzer lexer = new LexicalAnalyzer(input);
+        try {
+            TokenBuffer tokens = lexer.tokenizeToBuffer();
+            for (int i = 0; i < tokens.size(); i++) {
+                out.append(tokens.type(i)).append(' ').append(tokens.start(i)).append(' ')
+                        .append(tokens.length(i)).append(' ').append(tokens.line(i)).append('\n');
+            }
+        } catch (RuntimeException e) {
+            out.append("error: ").append(e.getMessage()).append('\n');
+        }
+        for (Symbol symbol : lexer.getSymbolTable().getSymbols()) {
+            out.append(symbol.getName()).append(' ').append(symbol.getLineNumber()).append('\n');
+        }
+        return out.toString();
+    }
+
+    // A rule compiled from scratch, as its transition table
+    private static String rebuild(String regex) {
+        DFA dfa = DFAConverter.convertNFAtoDFA(ThompsonConstruction.buildNFAFromRegex(regex));
+        return describe(CompiledDFA.compileAll(Collections.singletonMap("rule", dfa)));
+    }
+
+    private static String describe(Map<String, CompiledDFA> tables) {
+        StringBuilder out = new StringBuilder();
+        for (String name : new TreeSet<>(tables.keySet())) {
+            CompiledDFA table = tables.get(name);
+            out.append(name).append(table.startState).append(Arrays.toString(table.classMap)).append(table.highClass)
+                    .append(Arrays.toString(table.transitions))
+                    .append(table.accepting).append(Arrays.toString(table.acceptRule)).append('\n');
+        }
+        return out.toString();
+    }
+}
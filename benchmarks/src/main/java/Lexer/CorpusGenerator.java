@@ -0,0 +1,208 @@
+package Lexer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Random;
+
+// Writes synthetic .cmx programs for the benchmarks. The same profile, size and
+// seed always give the same program, and every program lexes without errors.
+//   CorpusGenerator <profile> <bytes> <seed> <output file>
+public class CorpusGenerator {
+    private static final int DECLARATION = 0;
+    private static final int ASSIGNMENT = 1;  // identifiers and operators
+    private static final int ARITHMETIC = 2;  // numbers and operators
+    private static final int CALL = 3;
+    private static final int STRING = 4;
+    private static final int LINE_COMMENT = 5;
+    private static final int BLOCK_COMMENT = 6;
+    private static final int LONG_BLOCK = 7;  // @...@ of 16 KB to 256 KB
+    private static final int SCOPE = 8;       // { ... }
+
+    // Relative weight of each statement kind above
+    public enum Profile {
+        MIXED(4, 4, 4, 2, 2, 2, 1, 0, 1),
+        IDENTIFIER_HEAVY(2, 12, 1, 2, 0, 0, 0, 0, 1),
+        NUMBER_HEAVY(3, 0, 12, 0, 0, 0, 0, 0, 0),
+        COMMENT_HEAVY(1, 1, 1, 0, 0, 8, 4, 0, 0),
+        LONG_BLOCKS(1, 1, 1, 0, 0, 0, 0, 1, 0);
+
+        final int[] weights;
+
+        Profile(int... weights) {
+            this.weights = weights;
+        }
+    }
+
+    private static final String[] TYPES = {"int", "float", "bool", "char"};
+    private static final String[] OPERATORS = {"+", "-", "*", "%", "^"};
+    private static final int NAME_POOL = 4096;
+
+    private final Profile profile;
+    private final Random random;
+    private final String[] names;
+    private final int totalWeight;
+
+    public CorpusGenerator(Profile profile, long seed) {
+        this.profile = profile;
+        this.random = new Random(seed);
+        this.names = identifiers(NAME_POOL, random);
+        int total = 0;
+        for (int weight : profile.weights) {
+            total += weight;
+        }
+        this.totalWeight = total;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4) {
+            System.out.println("Usage: CorpusGenerator <profile> <bytes> <seed> <output file>");
+            System.out.println("Profiles: MIXED, IDENTIFIER_HEAVY, NUMBER_HEAVY, COMMENT_HEAVY, LONG_BLOCKS");
+            return;
+        }
+        String program = generate(Profile.valueOf(args[0]), Integer.parseInt(args[1]), Long.parseLong(args[2]));
+        Files.write(Paths.get(args[3]), program.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String generate(Profile profile, int size, long seed) {
+        return new CorpusGenerator(profile, seed).program(size);
+    }
+
+    // Lowercase names of 1 to 12 letters; some will be keywords, as in real code
+    public static String[] identifiers(int count, Random random) {
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = word(random, 1 + random.nextInt(12));
+        }
+        return names;
+    }
+
+    // At least size characters of whole statements
+    public String program(int size) {
+        StringBuilder out = new StringBuilder(size + 1024);
+        while (out.length() < size) {
+            statement(out, size - out.length());
+        }
+        return out.toString();
+    }
+
+    private void statement(StringBuilder out, int remaining) {
+        int pick = random.nextInt(totalWeight);
+        int kind = 0;
+        while (pick >= profile.weights[kind]) {
+            pick -= profile.weights[kind];
+            kind++;
+        }
+        switch (kind) {
+            case DECLARATION:
+                declaration(out);
+                break;
+            case ASSIGNMENT:
+                out.append(name()).append(" = ").append(name());
+                for (int i = random.nextInt(8); i > 0; i--) {
+                    out.append(' ').append(operator()).append(' ').append(name());
+                }
+                out.append(";\n");
+                break;
+            case ARITHMETIC:
+                out.append(name()).append(" = ").append(number());
+                for (int i = random.nextInt(8); i > 0; i--) {
+                    out.append(' ').append(operator()).append(' ').append(number());
+                }
+                out.append(";\n");
+                break;
+            case CALL:
+                out.append(random.nextBoolean() ? "input" : "output").append("(").append(name()).append(");\n");
+                break;
+            case STRING:
+                out.append("output(\"").append(words(2 + random.nextInt(10))).append("\");\n");
+                break;
+            case LINE_COMMENT:
+                out.append("# ").append(words(2 + random.nextInt(12))).append('\n');
+                break;
+            case BLOCK_COMMENT:
+                blockComment(out, 80 + random.nextInt(400));
+                break;
+            case LONG_BLOCK:
+                blockComment(out, Math.max(80, Math.min(remaining, (16 << 10) + random.nextInt(240 << 10))));
+                break;
+            case SCOPE:
+                out.append("global {\n");
+                for (int i = 1 + random.nextInt(4); i > 0; i--) {
+                    out.append("    ");
+                    declaration(out);
+                }
+                out.append("}\n");
+                break;
+        }
+    }
+
+    private void declaration(StringBuilder out) {
+        String type = TYPES[random.nextInt(TYPES.length)];
+        out.append(type).append(' ').append(name()).append(" = ");
+        switch (type) {
+            case "int":
+                out.append(wholeNumber());
+                break;
+            case "float":
+                out.append(decimal());
+                break;
+            case "bool":
+                out.append(random.nextBoolean() ? "true" : "false");
+                break;
+            default:
+                out.append('\'').append((char) ('a' + random.nextInt(26))).append('\'');
+        }
+        out.append(";\n");
+    }
+
+    // An @...@ comment of about size characters in lines of words
+    private void blockComment(StringBuilder out, int size) {
+        int end = out.length() + size;
+        out.append("@\n");
+        while (out.length() < end) {
+            out.append(words(4 + random.nextInt(10))).append('\n');
+        }
+        out.append("@\n");
+    }
+
+    private String name() {
+        return names[random.nextInt(names.length)];
+    }
+
+    private String operator() {
+        return OPERATORS[random.nextInt(OPERATORS.length)];
+    }
+
+    private String number() {
+        return random.nextInt(3) == 0 ? decimal() : wholeNumber();
+    }
+
+    private String wholeNumber() {
+        int value = random.nextInt(random.nextBoolean() ? 100 : 1000000);
+        return random.nextInt(4) == 0 ? "-" + value : Integer.toString(value);
+    }
+
+    private String decimal() {
+        return wholeNumber() + "." + random.nextInt(100000);
+    }
+
+    private String words(int count) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                out.append(' ');
+            }
+            out.append(word(random, 1 + random.nextInt(9)));
+        }
+        return out.toString();
+    }
+
+    private static String word(Random random, int length) {
+        char[] letters = new char[length];
+        for (int i = 0; i < length; i++) {
+            letters[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(letters);
+    }
+}
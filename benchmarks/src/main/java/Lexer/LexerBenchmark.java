@@ -0,0 +1,72 @@
+package Lexer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State; // not Lexer.State
+
+// Lexing throughput per corpus profile. With the default 1 MB programs,
+// ops/s is also MB/s. Add -prof gc for allocation per operation.
+// These call tokenizeToBuffer(), the same scan as tokenize() without the
+// List view. Nothing is printed; textOutput adds writing the tokens out.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LexerBenchmark {
+    @Param({"MIXED", "IDENTIFIER_HEAVY", "NUMBER_HEAVY", "COMMENT_HEAVY", "LONG_BLOCKS"})
+    CorpusGenerator.Profile profile;
+
+    @Param({"1048576"})
+    int size;
+
+    @Param({"42"})
+    long seed;
+
+    String program;
+
+    @Setup
+    public void setup() {
+        program = CorpusGenerator.generate(profile, size, seed);
+    }
+
+    @Benchmark
+    public TokenBuffer tableDriven() {
+        return new LexicalAnalyzer(program).tokenizeToBuffer();
+    }
+
+    @Benchmark
+    public TokenBuffer directCoded() {
+        return new GeneratedScanner(program).tokenizeToBuffer();
+    }
+
+    // Lexing plus reading every number's value, as a consumer of the tokens would
+    @Benchmark
+    public double numberValues() {
+        TokenBuffer tokens = new LexicalAnalyzer(program).tokenizeToBuffer();
+        double sum = 0;
+        TokenBuffer.Cursor cursor = tokens.cursor();
+        while (cursor.next()) {
+            TokenType type = cursor.type();
+            if (type == TokenType.WHOLE_NUMBER) {
+                sum += cursor.wholeValue();
+            } else if (type == TokenType.DECIMAL) {
+                sum += cursor.decimalValue();
+            }
+        }
+        return sum;
+    }
+
+    // Lexing plus formatting every token as App --print does, written nowhere
+    @Benchmark
+    public TokenBuffer textOutput() throws IOException {
+        TokenBuffer tokens = new LexicalAnalyzer(program).tokenizeToBuffer();
+        try (TextSink sink = new TextSink(OutputStream.nullOutputStream())) {
+            sink.tokens(tokens);
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,76 @@
+package Lexer;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State; // not Lexer.State
+
+// One token rule, three engines: the precompiled table, the bit-parallel
+// Glushkov matcher and the lazy DFA. Each operation runs longestMatch at
+// every word of a MIXED corpus, so most calls fail after a char or two, as
+// they do when a rule is tried against arbitrary input.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MatcherBenchmark {
+    static final int WORDS = 10_000;
+
+    @Param({"OPERATOR", "CHAR_LITERAL", "IDENTIFIER", "DECIMAL", "ERROR"})
+    String rule;
+
+    String text;
+    int[] starts;
+    TokenMatcher table;
+    TokenMatcher bitParallel;
+    TokenMatcher lazy;
+
+    @Setup
+    public void setup() {
+        String regex = null;
+        for (String[] spec : DFAStore.TOKEN_SPECS) {
+            if (spec[0].equals(rule)) {
+                regex = spec[1];
+            }
+        }
+        table = DFAStore.getCompiledDFA(rule);
+        bitParallel = BitParallelMatcher.fromRegex(regex);
+        lazy = LazyDFA.fromRegex(regex);
+
+        text = CorpusGenerator.generate(CorpusGenerator.Profile.MIXED, 1 << 20, 42);
+        starts = new int[WORDS];
+        int found = 0;
+        for (int i = 0; i < text.length() && found < WORDS; i++) {
+            if (!Character.isWhitespace(text.charAt(i)) && (i == 0 || Character.isWhitespace(text.charAt(i - 1)))) {
+                starts[found++] = i;
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WORDS)
+    public int table() {
+        return run(table);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WORDS)
+    public int bitParallel() {
+        return run(bitParallel);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WORDS)
+    public int lazy() {
+        return run(lazy);
+    }
+
+    private int run(TokenMatcher matcher) {
+        int total = 0;
+        for (int start : starts) {
+            total += matcher.longestMatch(text, start, text.length());
+        }
+        return total;
+    }
+}
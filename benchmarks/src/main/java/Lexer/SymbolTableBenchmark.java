@@ -0,0 +1,65 @@
+package Lexer;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.annotations.State; // not Lexer.State
+
+// Time per addSymbol call when filling a fresh table with OCCURRENCES
+// identifiers drawn from a pool of the given number of distinct names.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SymbolTableBenchmark {
+    static final int OCCURRENCES = 100_000;
+
+    @Param({"100", "10000", "100000"})
+    int distinct;
+
+    String[] names;
+    // The same names as ranges of one source text, as the lexer passes them
+    String text;
+    int[] starts;
+    int[] ends;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        String[] pool = CorpusGenerator.identifiers(distinct, random);
+        names = new String[OCCURRENCES];
+        starts = new int[OCCURRENCES];
+        ends = new int[OCCURRENCES];
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < OCCURRENCES; i++) {
+            names[i] = pool[random.nextInt(pool.length)];
+            starts[i] = source.length();
+            source.append(names[i]);
+            ends[i] = source.length();
+            source.append(' ');
+        }
+        text = source.toString();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OCCURRENCES)
+    public SymbolTable addSymbol() {
+        SymbolTable table = new SymbolTable();
+        for (int i = 0; i < OCCURRENCES; i++) {
+            table.addSymbol(names[i], "UNKNOWN", i);
+        }
+        return table;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OCCURRENCES)
+    public SymbolTable addSymbolRange() {
+        SymbolTable table = new SymbolTable();
+        for (int i = 0; i < OCCURRENCES; i++) {
+            table.addSymbol(text, starts[i], ends[i], "UNKNOWN", i);
+        }
+        return table;
+    }
+}
@@ -1,25 +1,208 @@
 package Lexer;
 
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class App {
     public static void main(String[] args) {
+        // Print lexer metrics to stderr when done: App --metrics [other options]
+        if (args.length > 0 && args[0].equals("--metrics")) {
+            MetricsRecorder recorder = new MetricsRecorder();
+            LexerMetrics.install(recorder);
+            try {
+                main(Arrays.copyOfRange(args, 1, args.length));
+            } finally {
+                System.err.print(recorder.report());
+            }
+            return;
+        }
+
+        // Write the tokens and then the symbol table to stdout:
+        // App [--metrics] --print[=text|json|binary] [other options], text by
+        // default. Without it only the counts are printed.
+        String format = null;
+        if (args.length > 0 && (args[0].equals("--print") || args[0].startsWith("--print="))) {
+            format = args[0].equals("--print") ? "text" : args[0].substring("--print=".length());
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+
         try {
+            // Stream a file of any size through a bounded buffer: App --stream <file>
+            if (args.length == 2 && args[0].equals("--stream")) {
+                streamFile(Paths.get(args[1]), format);
+                return;
+            }
+
+            // Lex a memory-mapped file in place: App --mmap <file>
+            if (args.length == 2 && args[0].equals("--mmap")) {
+                LexicalAnalyzer analyzer = new LexicalAnalyzer(MappedSource.map(Paths.get(args[1])));
+                output(analyzer.tokenizeToBuffer(), analyzer.getSymbolTable(), format);
+                return;
+            }
+
+            // Lex a memory-mapped file in parallel chunks: App --parallel <file>
+            if (args.length == 2 && args[0].equals("--parallel")) {
+                ParallelLexer lexer = new ParallelLexer(MappedSource.map(Paths.get(args[1])));
+                output(lexer.tokenizeToBuffer(), lexer.getSymbolTable(), format);
+                return;
+            }
+
+            // Lex every .cmx file under a directory in parallel, largest first:
+            // App --project <dir>. Prints each file's errors and the totals; with
+            // --print, also the global symbol table.
+            if (args.length == 2 && args[0].equals("--project")) {
+                lexProject(Paths.get(args[1]), format);
+                return;
+            }
+
+            // Print, as text, a token stream written by --print=binary, from a
+            // given line on: App --read <file> [line]
+            if (args.length >= 2 && args.length <= 3 && args[0].equals("--read")) {
+                readTokens(Paths.get(args[1]), args.length == 3 ? Integer.parseInt(args[2]) : 1);
+                return;
+            }
+
+            // Serve lex requests from a warm JVM: App --daemon [socket file | port]
+            if (args.length >= 1 && args.length <= 2 && args[0].equals("--daemon")) {
+                new LexerDaemon(LexerDaemon.address(args.length == 2 ? args[1] : null)).run();
+                return;
+            }
+
+            // Lex files through the daemon, or in-process if none is running:
+            // App --client [--connect=<socket file | port>] <file | -> ...
+            // where - is source read from stdin. Prints one JSON line per input.
+            if (args.length >= 1 && args[0].equals("--client")) {
+                runClient(Arrays.copyOfRange(args, 1, args.length));
+                return;
+            }
+
+            // Print every NFA/DFA transition table before lexing: App --automata.
+            // Off by default since it rebuilds all automata from the regexes.
+            boolean showAutomata = args.length == 1 && args[0].equals("--automata");
+
             // Load file from the classpath
             String filePath = Paths.get(App.class.getResource("/Lexer/program.cmx").toURI()).toString();
 
             // Read file content
             String code = new String(Files.readAllBytes(Paths.get(filePath)));
             //printing all nfa
-            ThompsonConstruction.showTransitionTable();
+            if (showAutomata) {
+                ThompsonConstruction.showTransitionTable();
+            }
             // Initialize lexer
             LexicalAnalyzer analyzer = new LexicalAnalyzer(code);
-            analyzer.tokenize().forEach(System.out::println);
+            output(analyzer.tokenizeToBuffer(), analyzer.getSymbolTable(), format);
 
         } catch (IOException | URISyntaxException e) {
             System.out.println("Error reading the file: " + e.getMessage());
         }
     }
+
+    private static void runClient(String[] args) throws IOException {
+        String connect = null;
+        List<LexerDaemon.Request> requests = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--connect=")) {
+                connect = arg.substring("--connect=".length());
+            } else if (arg.equals("-")) {
+                requests.add(LexerDaemon.Request.source(new String(System.in.readAllBytes(), StandardCharsets.UTF_8)));
+            } else {
+                requests.add(LexerDaemon.Request.file(Paths.get(arg)));
+            }
+        }
+        new LexerClient(LexerDaemon.address(connect)).lex(requests).forEach(System.out::println);
+    }
+
+    private static void streamFile(Path path, String format) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+             BufferedSink out = format == null ? null : sink(format)) {
+            StreamingLexer lexer = new StreamingLexer(channel);
+            TokenSink tokens = out != null ? out : TokenSink.NULL;
+            SymbolSink symbols = out != null ? out : SymbolSink.NULL;
+            int count = 0;
+            for (Token token = lexer.nextToken(); token != null; token = lexer.nextToken()) {
+                String text = token.getValue();
+                tokens.token(TokenType.fromLabel(token.getType()), text, 0, text.length(), lexer.getTokenLine());
+                count++;
+            }
+            symbols.symbols(lexer.getSymbolTable());
+            if (out == null) {
+                printCounts(count, lexer.getSymbolTable());
+            }
+        }
+    }
+
+    private static void readTokens(Path path, int line) throws IOException {
+        BinaryTokenReader reader = BinaryTokenReader.map(path);
+        try (TextSink out = new TextSink(new FileOutputStream(FileDescriptor.out))) {
+            for (BinaryTokenReader.Cursor cursor = reader.seekLine(line); cursor.next(); ) {
+                CharSequence text = cursor.text();
+                out.token(cursor.type(), text, 0, text.length(), cursor.line());
+            }
+        }
+    }
+
+    private static void lexProject(Path root, String format) throws IOException {
+        if (format != null && !format.equals("text")) {
+            throw new RuntimeException("--project only prints text");
+        }
+        ProjectLexer project = new ProjectLexer(root);
+        List<ProjectLexer.FileResult> files = project.lex();
+        long tokens = 0;
+        int errors = 0;
+        try (TextSink out = new TextSink(new FileOutputStream(FileDescriptor.out))) {
+            for (ProjectLexer.FileResult file : files) {
+                tokens += file.getTokenCount();
+                if (file.getError() != null) {
+                    out.writeUtf8(file.getPath() + ": " + file.getError() + "\n");
+                    errors++;
+                }
+                for (Diagnostic diagnostic : file.getDiagnostics()) {
+                    out.writeUtf8(file.getPath() + ": " + diagnostic.getMessage() + "\n");
+                    errors++;
+                }
+            }
+            if (format != null) {
+                out.globalSymbols(project.getSymbolTable());
+            }
+            out.writeUtf8(files.size() + " files, " + tokens + " tokens, "
+                    + project.getSymbolTable().size() + " symbols, " + errors + " errors\n");
+        }
+    }
+
+    private static void output(TokenBuffer tokens, SymbolTable symbols, String format) throws IOException {
+        if (format == null) {
+            printCounts(tokens.size(), symbols);
+            return;
+        }
+        try (BufferedSink out = sink(format)) {
+            out.tokens(tokens);
+            out.symbols(symbols);
+        }
+    }
+
+    private static void printCounts(int tokens, SymbolTable symbols) {
+        System.out.println(tokens + " tokens, " + symbols.getSymbols().size() + " symbols");
+    }
+
+    // A sink on stdout itself rather than System.out, which would add its own
+    // buffering and locking on top
+    private static BufferedSink sink(String format) throws IOException {
+        OutputStream stdout = new FileOutputStream(FileDescriptor.out);
+        switch (format) {
+            case "text": return new TextSink(stdout);
+            case "json": return new JsonLinesSink(stdout);
+            case "binary": return new BinarySink(stdout);
+            default: throw new RuntimeException("Unknown output format: " + format);
+        }
+    }
 }
@@ -0,0 +1,269 @@
+package Lexer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Compact binary token stream, for tools that would otherwise lex the same file
+// again; BinaryTokenReader maps it and reads it in place. Token records are
+// written as tokens arrive. Identifier names repeat, so each distinct one is
+// kept once, in a string table written by close() together with the symbols, a
+// sparse index for seeking by line and a fixed-size footer that says where each
+// section is. Other lexemes are written into their records: numbers, strings
+// and comments are mostly distinct, and the rest are a char or two, so a table
+// would only hold on to all of them until close().
+//
+// Layout (ints big-endian, varints LEB128, signed varints zigzag first):
+//   int magic, int version
+//   tokens:    per token varint (line minus the previous token's line,
+//              zigzagged, << TYPE_BITS | type id), signed varint gap (start
+//              minus the previous token's end), then for an IDENTIFIER varint
+//              string id, for any other token the lexeme: varint (length in
+//              the source << 1 | 1 if any of its bytes is not ASCII), if not
+//              ASCII varint UTF-8 length, then its UTF-8 bytes. The first
+//              token's line and gap are relative to line 1 and offset 0. With
+//              the line usually unchanged or one more, the first varint is
+//              one byte. A line difference too large to shift is written as
+//              LONG_DELTA << TYPE_BITS | type id, then the zigzagged difference
+//              as a varint of its own.
+//   strings:   identifier names and the symbols' names, types and values; per
+//              string varint (length in the source << 1 | 1 if any of its
+//              bytes is not ASCII), then its UTF-8 bytes
+//   directory: per string int offset in strings, then int size of strings
+//   symbols:   per symbol varint name id, varint type id, varint value id + 1
+//              (0 for no value), varint line
+//   index:     for tokens INDEX_INTERVAL, 2 * INDEX_INTERVAL, ...: the line and
+//              end of the token before it and where its record starts in tokens
+//   footer:    int token, string, symbol and index entry counts, int start of
+//              strings, directory, symbols and index, int magic
+// Offsets are the start given to token(), so they are offsets in the source
+// for tokens from a TokenBuffer.
+public final class BinarySink extends BufferedSink {
+    static final int MAGIC = 0x434D5854; // "CMXT"
+    static final int VERSION = 4;
+    static final int HEADER_SIZE = 8;
+    static final int FOOTER_SIZE = 36;
+    static final int INDEX_INTERVAL = 128;
+    static final int TYPE_BITS = 5;
+    static final int LONG_DELTA = -1 >>> TYPE_BITS;
+
+    // Distinct strings by id, as the source chars they were first seen as, and
+    // an open-addressing index over them (id + 1, 0 for an empty slot)
+    private CharSequence[] strings = new CharSequence[256];
+    private int stringCount = 0;
+    private int[] slots = new int[512];
+    private int[] slotHashes = new int[512];
+
+    private int tokenCount = 0;
+    private int previousEnd = 0;
+    private int previousLine = 1;
+    private int[] index = new int[3 * 64];
+    private int indexCount = 0;
+    private final List<Symbol> symbols = new ArrayList<>();
+    private boolean closed = false;
+
+    public BinarySink(OutputStream out) throws IOException {
+        super(out);
+        writeInt(MAGIC);
+        writeInt(VERSION);
+    }
+
+    @Override
+    public void token(TokenType type, CharSequence source, int start, int end, int line) throws IOException {
+        if (tokenCount > 0 && tokenCount % INDEX_INTERVAL == 0) {
+            if (3 * indexCount + 3 > index.length) {
+                index = Arrays.copyOf(index, index.length * 2);
+            }
+            index[3 * indexCount] = previousLine;
+            index[3 * indexCount + 1] = previousEnd;
+            index[3 * indexCount + 2] = tokenPosition();
+            indexCount++;
+        }
+        int delta = zigzag(line - previousLine);
+        if (Integer.compareUnsigned(delta, LONG_DELTA) < 0) {
+            writeVarint(delta << TYPE_BITS | type.id());
+        } else {
+            writeVarint(LONG_DELTA << TYPE_BITS | type.id());
+            writeVarint(delta);
+        }
+        writeVarint(zigzag(start - previousEnd));
+        if (type == TokenType.IDENTIFIER) {
+            writeVarint(intern(source, start, end));
+        } else {
+            writeLexeme(source, start, end);
+        }
+        previousEnd = end;
+        previousLine = line;
+        tokenCount++;
+    }
+
+    // Kept until close(), which writes the symbols of every table given
+    @Override
+    public void symbols(SymbolTable table) throws IOException {
+        symbols.addAll(table.getSymbols());
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            writeTables();
+        } finally {
+            super.close();
+        }
+    }
+
+    private void writeTables() throws IOException {
+        // Symbol names, types and values go into the string table as well
+        int[] symbolIds = new int[3 * symbols.size()];
+        for (int i = 0; i < symbols.size(); i++) {
+            Symbol symbol = symbols.get(i);
+            symbolIds[3 * i] = intern(symbol.getName(), 0, symbol.getName().length());
+            symbolIds[3 * i + 1] = intern(symbol.getType(), 0, symbol.getType().length());
+            symbolIds[3 * i + 2] = symbol.getValue() == null ? 0
+                    : intern(symbol.getValue(), 0, symbol.getValue().length()) + 1;
+        }
+
+        int stringsStart = checkedPosition();
+        int[] offsets = new int[stringCount + 1];
+        for (int i = 0; i < stringCount; i++) {
+            // toString() decodes a MappedSource range as UTF-8
+            String text = strings[i].toString();
+            boolean nonAscii = utf8Length(text, 0, text.length()) != text.length();
+            offsets[i] = checkedPosition() - stringsStart;
+            writeVarint(strings[i].length() << 1 | (nonAscii ? 1 : 0));
+            writeUtf8(text);
+        }
+        offsets[stringCount] = checkedPosition() - stringsStart;
+
+        int directoryStart = checkedPosition();
+        for (int offset : offsets) {
+            writeInt(offset);
+        }
+
+        int symbolsStart = checkedPosition();
+        for (int i = 0; i < symbols.size(); i++) {
+            writeVarint(symbolIds[3 * i]);
+            writeVarint(symbolIds[3 * i + 1]);
+            writeVarint(symbolIds[3 * i + 2]);
+            writeVarint(symbols.get(i).getLineNumber());
+        }
+
+        int indexStart = checkedPosition();
+        for (int i = 0; i < 3 * indexCount; i++) {
+            writeInt(index[i]);
+        }
+
+        writeInt(tokenCount);
+        writeInt(stringCount);
+        writeInt(symbols.size());
+        writeInt(indexCount);
+        writeInt(stringsStart);
+        writeInt(directoryStart);
+        writeInt(symbolsStart);
+        writeInt(indexStart);
+        writeInt(MAGIC);
+        checkedPosition();
+    }
+
+    private void writeLexeme(CharSequence source, int start, int end) throws IOException {
+        boolean nonAscii = false;
+        for (int i = start; i < end && !nonAscii; i++) {
+            nonAscii = source.charAt(i) >= 0x80;
+        }
+        // A MappedSource's chars are UTF-8 bytes already, written as they are
+        int bytes = nonAscii && !(source instanceof MappedSource) ? utf8Length(source, start, end) : end - start;
+        writeVarint((end - start) << 1 | (nonAscii ? 1 : 0));
+        if (nonAscii) {
+            writeVarint(bytes);
+        }
+        writeSource(source, start, end);
+    }
+
+    // Id of the string s[start, end); only copies it when it is new
+    private int intern(CharSequence s, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + s.charAt(i);
+        }
+        hash ^= hash >>> 16;
+        int mask = slots.length - 1;
+        int i = hash & mask;
+        for (; slots[i] != 0; i = (i + 1) & mask) {
+            if (slotHashes[i] == hash && sameChars(strings[slots[i] - 1], s, start, end)) {
+                return slots[i] - 1;
+            }
+        }
+        if (stringCount == strings.length) {
+            strings = Arrays.copyOf(strings, stringCount * 2);
+        }
+        strings[stringCount] = s.subSequence(start, end);
+        slots[i] = stringCount + 1;
+        slotHashes[i] = hash;
+        stringCount++;
+        if (stringCount * 2 > slots.length) {
+            rehash();
+        }
+        return stringCount - 1;
+    }
+
+    private void rehash() {
+        int[] oldSlots = slots;
+        int[] oldHashes = slotHashes;
+        slots = new int[oldSlots.length * 2];
+        slotHashes = new int[oldSlots.length * 2];
+        int mask = slots.length - 1;
+        for (int j = 0; j < oldSlots.length; j++) {
+            if (oldSlots[j] != 0) {
+                int i = oldHashes[j] & mask;
+                while (slots[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                slots[i] = oldSlots[j];
+                slotHashes[i] = oldHashes[j];
+            }
+        }
+    }
+
+    private static boolean sameChars(CharSequence a, CharSequence s, int start, int end) {
+        if (a.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < a.length(); i++) {
+            if (a.charAt(i) != s.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int tokenPosition() throws IOException {
+        return checkedPosition() - HEADER_SIZE;
+    }
+
+    // BinaryTokenReader maps the whole stream, so it has to stay below 2 GB
+    private int checkedPosition() throws IOException {
+        long position = position();
+        if (position > Integer.MAX_VALUE) {
+            throw new IOException("Token stream too large (" + position + " bytes)");
+        }
+        return (int) position;
+    }
+
+    private void writeVarint(int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            writeByte(v & 0x7F | 0x80);
+            v >>>= 7;
+        }
+        writeByte(v);
+    }
+
+    private static int zigzag(int v) {
+        return (v << 1) ^ (v >> 31);
+    }
+}
@@ -0,0 +1,253 @@
+package Lexer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Reads a token stream written by BinarySink from a memory-mapped file, in
+// place: opening it only checks the header and footer, records are decoded as
+// a Cursor passes them and an ASCII lexeme is a view of the mapped bytes rather
+// than a copy. seekLine() jumps through the sparse index, so at most
+// BinarySink.INDEX_INTERVAL records are decoded to find the tokens of a line.
+public class BinaryTokenReader {
+    private final ByteBuffer bytes;
+    private final int tokenCount;
+    private final int stringCount;
+    private final int symbolCount;
+    private final int indexCount;
+    private final int stringsStart;
+    private final int directoryStart;
+    private final int symbolsStart;
+    private final int indexStart;
+
+    BinaryTokenReader(ByteBuffer bytes) throws IOException {
+        this.bytes = bytes;
+        int size = bytes.limit();
+        if (size < BinarySink.HEADER_SIZE + BinarySink.FOOTER_SIZE
+                || bytes.getInt(0) != BinarySink.MAGIC || bytes.getInt(size - 4) != BinarySink.MAGIC) {
+            throw new IOException("Not a token stream");
+        }
+        if (bytes.getInt(4) != BinarySink.VERSION) {
+            throw new IOException("Token stream version " + bytes.getInt(4) + ", expected " + BinarySink.VERSION);
+        }
+        int footer = size - BinarySink.FOOTER_SIZE;
+        tokenCount = bytes.getInt(footer);
+        stringCount = bytes.getInt(footer + 4);
+        symbolCount = bytes.getInt(footer + 8);
+        indexCount = bytes.getInt(footer + 12);
+        stringsStart = bytes.getInt(footer + 16);
+        directoryStart = bytes.getInt(footer + 20);
+        symbolsStart = bytes.getInt(footer + 24);
+        indexStart = bytes.getInt(footer + 28);
+    }
+
+    public static BinaryTokenReader map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Token stream too large to map (" + size + " bytes): " + path);
+            }
+            try {
+                return new BinaryTokenReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+            } catch (IOException e) {
+                throw new IOException(e.getMessage() + ": " + path);
+            }
+        }
+    }
+
+    public int size() {
+        return tokenCount;
+    }
+
+    // Positioned before the first token
+    public Cursor cursor() {
+        return new Cursor(0, BinarySink.HEADER_SIZE, 0, 1);
+    }
+
+    // Positioned before the first token that starts on line or later. Index
+    // entries hold the line of the token before theirs, so the last entry whose
+    // line is below the one wanted is where the scan can start.
+    public Cursor seekLine(int line) {
+        int low = 0;
+        int high = indexCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (bytes.getInt(indexStart + 12 * mid) < line) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        Cursor cursor = low == 0 ? cursor() : new Cursor(low * BinarySink.INDEX_INTERVAL,
+                BinarySink.HEADER_SIZE + bytes.getInt(indexStart + 12 * (low - 1) + 8),
+                bytes.getInt(indexStart + 12 * (low - 1) + 4),
+                bytes.getInt(indexStart + 12 * (low - 1)));
+        while (cursor.peekLine() < line && cursor.next()) {
+        }
+        return cursor;
+    }
+
+    // A new table with every symbol the stream holds
+    public SymbolTable symbols() {
+        SymbolTable table = new SymbolTable();
+        int p = symbolsStart;
+        for (int i = 0; i < symbolCount; i++) {
+            String name = string(varint(p));
+            p = skipVarint(p);
+            String type = string(varint(p));
+            p = skipVarint(p);
+            int value = varint(p);
+            p = skipVarint(p);
+            table.addSymbol(name, type, varint(p));
+            p = skipVarint(p);
+            if (value != 0) {
+                table.updateSymbolValue(name, string(value - 1));
+            }
+        }
+        return table;
+    }
+
+    private String string(int id) {
+        int start = skipVarint(stringStart(id));
+        return decode(start, stringStart(id + 1) - start);
+    }
+
+    private String decode(int start, int length) {
+        byte[] copy = new byte[length];
+        bytes.get(start, copy);
+        return new String(copy, StandardCharsets.UTF_8);
+    }
+
+    // A view of the mapped bytes for an ASCII string, else the decoded string
+    private CharSequence lexeme(int start, int length, boolean nonAscii) {
+        return nonAscii ? decode(start, length) : new MappedSource(bytes, start, length);
+    }
+
+    private int sourceLength(int id) {
+        return varint(stringStart(id)) >>> 1;
+    }
+
+    private int stringStart(int id) {
+        return stringsStart + bytes.getInt(directoryStart + 4 * id);
+    }
+
+    private int varint(int p) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = bytes.get(p++);
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    // Where the varint at p ends
+    private int skipVarint(int p) {
+        while (bytes.get(p++) < 0) {
+        }
+        return p;
+    }
+
+    private static int unzigzag(int v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    // Same accessors as TokenBuffer.Cursor; start() is the token's offset in the
+    // source it was lexed from
+    public class Cursor {
+        private int next;          // index of the token next() moves to
+        private int position;      // its record
+        private int end;           // end of the current token
+        private int line;          // line of the current token
+        private TokenType type;
+        private int start;
+        private int string;        // string id of an identifier, else -1
+        private int text;          // where another token's lexeme starts
+        private int textLength;    // and its UTF-8 length
+        private boolean nonAscii;
+
+        private Cursor(int next, int record, int end, int line) {
+            this.next = next;
+            this.position = record;
+            this.end = end;
+            this.line = line;
+        }
+
+        public boolean next() {
+            if (next == tokenCount) {
+                return false;
+            }
+            int lineAndType = readVarint();
+            type = TokenType.fromId(lineAndType & (1 << BinarySink.TYPE_BITS) - 1);
+            int delta = lineAndType >>> BinarySink.TYPE_BITS;
+            line += unzigzag(delta == BinarySink.LONG_DELTA ? readVarint() : delta);
+            start = end + unzigzag(readVarint());
+            if (type == TokenType.IDENTIFIER) {
+                string = readVarint();
+                end = start + sourceLength(string);
+            } else {
+                string = -1;
+                int header = readVarint();
+                nonAscii = (header & 1) != 0;
+                textLength = nonAscii ? readVarint() : header >>> 1;
+                text = position;
+                position += textLength;
+                end = start + (header >>> 1);
+            }
+            next++;
+            return true;
+        }
+
+        // Line of the token next() moves to, or MAX_VALUE at the end
+        private int peekLine() {
+            if (next == tokenCount) {
+                return Integer.MAX_VALUE;
+            }
+            int delta = varint(position) >>> BinarySink.TYPE_BITS;
+            return line + unzigzag(delta == BinarySink.LONG_DELTA ? varint(skipVarint(position)) : delta);
+        }
+
+        private int readVarint() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = bytes.get(position++);
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+
+        public int index() {
+            return next - 1;
+        }
+
+        public TokenType type() {
+            return type;
+        }
+
+        public int start() {
+            return start;
+        }
+
+        public int length() {
+            return end - start;
+        }
+
+        public int line() {
+            return line;
+        }
+
+        public CharSequence text() {
+            if (string < 0) {
+                return lexeme(text, textLength, nonAscii);
+            }
+            int from = skipVarint(stringStart(string));
+            return lexeme(from, stringStart(string + 1) - from, (varint(stringStart(string)) & 1) != 0);
+        }
+    }
+}
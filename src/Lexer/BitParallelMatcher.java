@@ -0,0 +1,188 @@
+package Lexer;
+
+import java.util.Arrays;
+
+// Matches a small regex with the Glushkov automaton kept as one long: bit p is
+// set while position p (a literal or char class in the regex) can be the last
+// one read, and bit 0 is the start. A step ORs together the follow sets of the
+// active positions and ANDs in the mask of positions that accept the char, so
+// a whole state set moves at once. Building it is one walk over the syntax
+// tree: no NFA, no subset construction, and about 2.5 KB per regex.
+public class BitParallelMatcher implements TokenMatcher {
+    static final int MAX_POSITIONS = 63;
+    private static final int ALPHABET = 256;
+
+    private final long[] masks = new long[ALPHABET]; // positions that read each char
+    private final long highMask;                     // positions that read every char past ALPHABET
+    private final long[] follow;                     // positions that may come after each position
+    private final long accept;                       // positions a match may end on
+    private final int positions;
+
+    private BitParallelMatcher(long[] masks, long highMask, long[] follow, long accept, int positions) {
+        System.arraycopy(masks, 0, this.masks, 0, ALPHABET);
+        this.highMask = highMask;
+        this.follow = follow;
+        this.accept = accept;
+        this.positions = positions;
+    }
+
+    // Null when the regex has more than MAX_POSITIONS positions or tells chars
+    // past the byte range apart
+    public static BitParallelMatcher build(RegexNode tree) {
+        Builder builder = new Builder();
+        Info root = builder.visit(tree);
+        if (root == null) {
+            return null;
+        }
+        builder.follow[0] = root.first;
+        long accept = root.last | (root.nullable ? 1L : 0L);
+        long[] follow = Arrays.copyOf(builder.follow, builder.count);
+        return new BitParallelMatcher(builder.masks, builder.highMask, follow, accept, builder.count - 1);
+    }
+
+    public static BitParallelMatcher fromRegex(String regex) {
+        return build(new Parser(regex).parse());
+    }
+
+    public int getPositions() {
+        return positions;
+    }
+
+    @Override
+    public boolean matches(CharSequence s, int from, int to) {
+        long active = 1L;
+        for (int i = from; i < to; i++) {
+            active = step(active, s.charAt(i));
+            if (active == 0) {
+                return false;
+            }
+        }
+        return (active & accept) != 0;
+    }
+
+    @Override
+    public int longestMatch(CharSequence s, int from, int to) {
+        long active = 1L;
+        int end = (active & accept) != 0 ? from : -1;
+        for (int i = from; i < to; i++) {
+            active = step(active, s.charAt(i));
+            if (active == 0) {
+                break;
+            }
+            if ((active & accept) != 0) {
+                end = i + 1;
+            }
+        }
+        return end;
+    }
+
+    private long step(long active, char c) {
+        long mask = c < ALPHABET ? masks[c] : highMask;
+        long next = 0;
+        for (long rest = active; rest != 0; rest &= rest - 1) {
+            next |= follow[Long.numberOfTrailingZeros(rest)];
+        }
+        return next & mask;
+    }
+
+    private static class Info {
+        final long first;
+        final long last;
+        final boolean nullable;
+
+        Info(long first, long last, boolean nullable) {
+            this.first = first;
+            this.last = last;
+            this.nullable = nullable;
+        }
+    }
+
+    // Computes first/last/nullable bottom-up and fills in follow sets on the way
+    private static class Builder {
+        final long[] masks = new long[ALPHABET];
+        long highMask = 0;
+        final long[] follow = new long[MAX_POSITIONS + 1];
+        int count = 1; // position 0 is the start
+
+        Info visit(RegexNode node) {
+            if (node instanceof LiteralNode) {
+                char literal = ((LiteralNode) node).literal;
+                return position(new char[] {literal, literal});
+            }
+            if (node instanceof CharClassNode) {
+                return position(((CharClassNode) node).ranges);
+            }
+            if (node instanceof ConcatNode) {
+                long first = 0;
+                long last = 0;
+                boolean nullable = true;
+                for (RegexNode child : ((ConcatNode) node).nodes) {
+                    Info info = visit(child);
+                    if (info == null) {
+                        return null;
+                    }
+                    link(last, info.first);
+                    first |= nullable ? info.first : 0;
+                    last = info.last | (info.nullable ? last : 0);
+                    nullable &= info.nullable;
+                }
+                return new Info(first, last, nullable);
+            }
+            if (node instanceof UnionNode) {
+                long first = 0;
+                long last = 0;
+                boolean nullable = false;
+                for (RegexNode child : ((UnionNode) node).alternatives) {
+                    Info info = visit(child);
+                    if (info == null) {
+                        return null;
+                    }
+                    first |= info.first;
+                    last |= info.last;
+                    nullable |= info.nullable;
+                }
+                return new Info(first, last, nullable);
+            }
+            if (node instanceof StarNode || node instanceof PlusNode) {
+                boolean star = node instanceof StarNode;
+                Info info = visit(star ? ((StarNode) node).node : ((PlusNode) node).node);
+                if (info == null) {
+                    return null;
+                }
+                link(info.last, info.first);
+                return new Info(info.first, info.last, star || info.nullable);
+            }
+            throw new RuntimeException("Unknown regex node: " + node.getClass().getSimpleName());
+        }
+
+        // ranges as in CharClassNode
+        private Info position(char[] ranges) {
+            if (count > MAX_POSITIONS) {
+                return null;
+            }
+            int p = count++;
+            for (int r = 0; r < ranges.length; r += 2) {
+                char low = ranges[r];
+                char high = ranges[r + 1];
+                if (high >= ALPHABET) {
+                    // Only highMask covers those chars, so the range must take all of them
+                    if (low > ALPHABET || high < Character.MAX_VALUE) {
+                        return null;
+                    }
+                    highMask |= 1L << p;
+                }
+                for (int c = low; c <= Math.min(high, ALPHABET - 1); c++) {
+                    masks[c] |= 1L << p;
+                }
+            }
+            return new Info(1L << p, 1L << p, false);
+        }
+
+        // Every position in from may be followed by every position in to
+        private void link(long from, long to) {
+            for (long rest = from; rest != 0; rest &= rest - 1) {
+                follow[Long.numberOfTrailingZeros(rest)] |= to;
+            }
+        }
+    }
+}
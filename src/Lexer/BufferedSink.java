@@ -0,0 +1,160 @@
+package Lexer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Base of the sinks that write to a stream. Everything is encoded as UTF-8
+// straight into one byte buffer, which reaches the stream only when it is full
+// and on flush() or close(), so writing a token costs no String, no Writer and
+// no lock. close() also closes the stream.
+public abstract class BufferedSink implements TokenSink, SymbolSink {
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int count = 0;
+    private long drained = 0; // bytes already handed to the stream
+
+    protected BufferedSink(OutputStream out) {
+        this.out = out;
+    }
+
+    // Bytes written so far, including those still in the buffer
+    final long position() {
+        return drained + count;
+    }
+
+    final void writeByte(int b) throws IOException {
+        if (count == buffer.length) {
+            drain();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    // Big-endian, as DataOutputStream writes it
+    final void writeInt(int v) throws IOException {
+        if (count + 4 > buffer.length) {
+            drain();
+        }
+        buffer[count++] = (byte) (v >>> 24);
+        buffer[count++] = (byte) (v >>> 16);
+        buffer[count++] = (byte) (v >>> 8);
+        buffer[count++] = (byte) v;
+    }
+
+    final void writeDecimal(int v) throws IOException {
+        if (v < 0) {
+            writeByte('-');
+            writeDecimal(-(long) v);
+        } else {
+            writeDecimal((long) v);
+        }
+    }
+
+    private void writeDecimal(long v) throws IOException {
+        if (v >= 10) {
+            writeDecimal(v / 10);
+        }
+        writeByte((int) ('0' + v % 10));
+    }
+
+    final void writeUtf8(CharSequence s) throws IOException {
+        writeUtf8(s, 0, s.length());
+    }
+
+    final void writeUtf8(CharSequence s, int start, int end) throws IOException {
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                writeByte(c);
+            } else {
+                i = writeNonAscii(s, i, end);
+            }
+        }
+    }
+
+    // Token text: a MappedSource's chars are the file's bytes, already UTF-8, so
+    // they are copied as they are rather than encoded a second time
+    final void writeSource(CharSequence source, int start, int end) throws IOException {
+        if (!(source instanceof MappedSource)) {
+            writeUtf8(source, start, end);
+            return;
+        }
+        MappedSource mapped = (MappedSource) source;
+        int from = mapped.offset() + start;
+        int remaining = end - start;
+        while (remaining > 0) {
+            if (count == buffer.length) {
+                drain();
+            }
+            int n = Math.min(remaining, buffer.length - count);
+            mapped.bytes().get(from, buffer, count, n);
+            count += n;
+            from += n;
+            remaining -= n;
+        }
+    }
+
+    // Writes the char at i (or the surrogate pair starting there) and returns the
+    // index of its last char. A lone surrogate becomes '?', as in String.getBytes.
+    final int writeNonAscii(CharSequence s, int i, int end) throws IOException {
+        char c = s.charAt(i);
+        if (c < 0x800) {
+            writeByte(0xC0 | c >> 6);
+            writeByte(0x80 | c & 0x3F);
+        } else if (!Character.isSurrogate(c)) {
+            writeByte(0xE0 | c >> 12);
+            writeByte(0x80 | c >> 6 & 0x3F);
+            writeByte(0x80 | c & 0x3F);
+        } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(s.charAt(i + 1))) {
+            int cp = Character.toCodePoint(c, s.charAt(i + 1));
+            writeByte(0xF0 | cp >> 18);
+            writeByte(0x80 | cp >> 12 & 0x3F);
+            writeByte(0x80 | cp >> 6 & 0x3F);
+            writeByte(0x80 | cp & 0x3F);
+            return i + 1;
+        } else {
+            writeByte('?');
+        }
+        return i;
+    }
+
+    // Bytes writeUtf8(s, start, end) writes
+    static int utf8Length(CharSequence s, int start, int end) {
+        int length = end - start;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    length++;
+                } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    length += 2; // four bytes for the two chars
+                    i++;
+                } else if (!Character.isSurrogate(c)) {
+                    length += 2;
+                }
+            }
+        }
+        return length;
+    }
+
+    private void drain() throws IOException {
+        out.write(buffer, 0, count);
+        drained += count;
+        count = 0;
+    }
+
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            out.close();
+        }
+    }
+}
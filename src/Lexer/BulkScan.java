@@ -0,0 +1,130 @@
+package Lexer;
+
+import java.nio.ByteBuffer;
+
+// Runs through the bodies of comments and strings, and through runs of
+// whitespace, without stepping the DFA. A body is described by a CompiledDFA
+// body code: the printable ASCII char that ends it (0 if none) and whether
+// newlines may occur in it (LINES), or BLANKS for a whitespace run. On a
+// MappedSource eight bytes are tested at once in a long (SWAR); any other
+// CharSequence gets a plain char loop, which is still far cheaper than a DFA
+// step. Either way the scan stops in front of the first char that is not a
+// plain body char (the stop char, a tab, a non-ASCII byte, ...), and the DFA
+// takes over from there.
+final class BulkScan {
+    static final int LINES = 0x100;
+    // Body code of a state that loops on the blanks ' ', '\t', '\n', '\r' and
+    // '\f', as the whitespace rule's does
+    static final int BLANKS = 0x200;
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+    private static final long LOWS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long NEWLINES = ONES * '\n';
+    private static final long SPACES = ONES * ' ';
+    private static final long TABS = ONES * '\t';
+    private static final long RETURNS = ONES * '\r';
+    private static final long FORM_FEEDS = ONES * '\f';
+
+    private BulkScan() {
+    }
+
+    // End of the run of body chars in input[from, to), with the number of
+    // newlines in it: (newlines << 32) | end
+    static long skipBody(CharSequence input, int from, int to, int body) {
+        if (body == BLANKS) {
+            return skipBlanks(input, from, to);
+        }
+        char stop = (char) (body & 0xFF);
+        boolean lines = (body & LINES) != 0;
+        int i = from;
+        long newlines = 0;
+        if (input instanceof MappedSource) {
+            MappedSource source = (MappedSource) input;
+            ByteBuffer bytes = source.bytes();
+            int base = source.offset();
+            long stops = ONES * stop;
+            for (; i + 8 <= to; i += 8) {
+                long word = bytes.getLong(base + i);
+                long newline = zeroBytes(word ^ NEWLINES);
+                long bad = ~printable(word) & HIGHS & ~(lines ? newline : 0) | zeroBytes(word ^ stops);
+                if (bad != 0) {
+                    break;
+                }
+                newlines += Long.bitCount(newline);
+            }
+        }
+        for (; i < to; i++) {
+            char c = input.charAt(i);
+            if (c == '\n' && lines) {
+                newlines++;
+            } else if (c < 0x20 || c > 0x7E || c == stop) {
+                break;
+            }
+        }
+        return newlines << 32 | i;
+    }
+
+    // End of the run of blanks in input[from, to), with the number of newlines
+    // in it, as skipBody gives them
+    static long skipBlanks(CharSequence input, int from, int to) {
+        int i = from;
+        long newlines = 0;
+        if (input instanceof MappedSource) {
+            MappedSource source = (MappedSource) input;
+            ByteBuffer bytes = source.bytes();
+            int base = source.offset();
+            for (; i + 8 <= to; i += 8) {
+                long word = bytes.getLong(base + i);
+                long newline = zeroBytes(word ^ NEWLINES);
+                long blank = newline | zeroBytes(word ^ SPACES) | zeroBytes(word ^ TABS)
+                        | zeroBytes(word ^ RETURNS) | zeroBytes(word ^ FORM_FEEDS);
+                if (blank != HIGHS) {
+                    break;
+                }
+                newlines += Long.bitCount(newline);
+            }
+        }
+        for (; i < to; i++) {
+            char c = input.charAt(i);
+            if (c == '\n') {
+                newlines++;
+            } else if (c != ' ' && c != '\t' && c != '\r' && c != '\f') {
+                break;
+            }
+        }
+        return newlines << 32 | i;
+    }
+
+    // Newlines in input[from, to)
+    static int countNewlines(CharSequence input, int from, int to) {
+        int i = from;
+        int count = 0;
+        if (input instanceof MappedSource) {
+            MappedSource source = (MappedSource) input;
+            ByteBuffer bytes = source.bytes();
+            int base = source.offset();
+            for (; i + 8 <= to; i += 8) {
+                count += Long.bitCount(zeroBytes(bytes.getLong(base + i) ^ NEWLINES));
+            }
+        }
+        for (; i < to; i++) {
+            if (input.charAt(i) == '\n') count++;
+        }
+        return count;
+    }
+
+    // 0x80 in exactly the bytes of word that are zero
+    private static long zeroBytes(long word) {
+        return ~(((word & LOWS) + LOWS) | word | LOWS);
+    }
+
+    // 0x80 in exactly the bytes of word in 0x20..0x7E: the low seven bits are at
+    // least 0x20 and not 0x7F, and the high bit is clear
+    private static long printable(long word) {
+        long low = word & LOWS;
+        long atLeastSpace = low + ONES * (0x80 - 0x20);
+        long delete = low + ONES;
+        return atLeastSpace & ~delete & ~word & HIGHS;
+    }
+}
@@ -0,0 +1,130 @@
+package Lexer;
+
+import java.util.*;
+
+// An NFA flattened into int arrays for subset construction and LazyDFA.
+// States are numbered 0..n-1 in breadth-first order from the start (start is 0).
+// Char transitions are stored CSR-style: the edges of state s are
+// lows/highs/targets[edgeStart[s] .. edgeStart[s + 1]), each taking the chars
+// lows[e]..highs[e] to targets[e], sorted by low. The ranges of one state never
+// overlap. Epsilon edges are not kept; instead closure[s] is the sorted epsilon
+// closure of s, reduced to the states that matter to a DFA: those with char
+// edges or that accept. Two state sets that agree on those behave the same.
+public class CompactNFA {
+    final int stateCount;
+    final int[] edgeStart;
+    final char[] lows;
+    final char[] highs;
+    final int[] targets;
+    final int[][] closure;
+    // Token rule accepted by each state, or NO_RULE; rule 0 if built without rules
+    final int[] acceptRule;
+
+    static final int NO_RULE = -1;
+
+    // ruleOf maps final states to their token rule; null for a single regex
+    CompactNFA(State start, Map<State, Integer> ruleOf) {
+        List<State> order = new ArrayList<>();
+        // By identity: states of different rule NFAs may share an id
+        Map<State, Integer> index = new IdentityHashMap<>();
+        order.add(start);
+        index.put(start, 0);
+        int edgeCount = 0;
+        for (int i = 0; i < order.size(); i++) {
+            State state = order.get(i);
+            edgeCount += state.edges.size();
+            for (State s : state.epsilon) {
+                if (!index.containsKey(s)) {
+                    index.put(s, order.size());
+                    order.add(s);
+                }
+            }
+            for (Edge edge : state.edges) {
+                if (!index.containsKey(edge.target)) {
+                    index.put(edge.target, order.size());
+                    order.add(edge.target);
+                }
+            }
+        }
+
+        stateCount = order.size();
+        edgeStart = new int[stateCount + 1];
+        lows = new char[edgeCount];
+        highs = new char[edgeCount];
+        targets = new int[edgeCount];
+        acceptRule = new int[stateCount];
+        int[] epsilonStart = new int[stateCount + 1];
+        List<Integer> epsilonTargets = new ArrayList<>();
+        int e = 0;
+        for (int s = 0; s < stateCount; s++) {
+            State state = order.get(s);
+            edgeStart[s] = e;
+            epsilonStart[s] = epsilonTargets.size();
+            for (State t : state.epsilon) {
+                epsilonTargets.add(index.get(t));
+            }
+            List<Edge> edges = new ArrayList<>(state.edges);
+            edges.sort((a, b) -> a.low - b.low);
+            for (Edge edge : edges) {
+                if (e > edgeStart[s] && edge.low <= highs[e - 1]) {
+                    throw new RuntimeException("Overlapping char ranges on one NFA state: " + edge.label());
+                }
+                lows[e] = edge.low;
+                highs[e] = edge.high;
+                targets[e] = index.get(edge.target);
+                e++;
+            }
+            acceptRule[s] = !state.isFinal ? NO_RULE : ruleOf == null ? 0 : ruleOf.get(state);
+        }
+        edgeStart[stateCount] = e;
+        epsilonStart[stateCount] = epsilonTargets.size();
+
+        // Every closure is found with one depth-first walk over the epsilon edges
+        closure = new int[stateCount][];
+        int[] mark = new int[stateCount];
+        int[] stack = new int[stateCount];
+        int[] members = new int[stateCount];
+        for (int s = 0; s < stateCount; s++) {
+            int stamp = s + 1;
+            int top = 0;
+            int size = 0;
+            mark[s] = stamp;
+            stack[top++] = s;
+            while (top > 0) {
+                int u = stack[--top];
+                if (edgeStart[u + 1] > edgeStart[u] || acceptRule[u] != NO_RULE) {
+                    members[size++] = u;
+                }
+                for (int k = epsilonStart[u]; k < epsilonStart[u + 1]; k++) {
+                    int t = epsilonTargets.get(k);
+                    if (mark[t] != stamp) {
+                        mark[t] = stamp;
+                        stack[top++] = t;
+                    }
+                }
+            }
+            closure[s] = Arrays.copyOf(members, size);
+            Arrays.sort(closure[s]);
+        }
+    }
+
+    CompactNFA(NFA nfa) {
+        this(nfa.startState, null);
+    }
+
+    // Index of the edge of s whose range holds c, or -1
+    int edgeOn(int s, char c) {
+        int low = edgeStart[s];
+        int high = edgeStart[s + 1];
+        // The last edge starting at or below c is the only candidate
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (lows[mid] <= c) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low > edgeStart[s] && highs[low - 1] >= c ? low - 1 : -1;
+    }
+}
@@ -0,0 +1,231 @@
+package Lexer;
+
+import java.nio.IntBuffer;
+import java.util.*;
+
+// Table form of a DFA: states are numbered 0..n-1, characters go through a
+// byte-class table shared by every DFA compiled together, and the
+// transitions live in one flat int[] indexed by state * classCount + class.
+// Chars past the byte table all share one class, highClass, so a DFA may use
+// them only all alike (as a negated class does).
+public class CompiledDFA implements TokenMatcher {
+    static final int TABLE_SIZE = 256;
+    static final int DEAD = -1;
+    static final int NO_RULE = -1;
+
+    final byte[] classMap;
+    final int classCount;
+    final int highClass;
+    final int stateCount;
+    final int startState;
+    final int[] transitions;
+    final BitSet accepting;
+    // Winning token rule per state (NO_RULE if not accepting); only set for multi-rule DFAs
+    final int[] acceptRule;
+    // Per state, the BulkScan body code if the state loops on itself over all of
+    // printable ASCII but at most one char, as inside a comment or string, or
+    // BLANKS if it loops on every blank, as in a whitespace run; NOT_BODY otherwise
+    final int[] body;
+
+    static final int NOT_BODY = -1;
+
+    CompiledDFA(byte[] classMap, int classCount, int highClass, int stateCount, int startState, int[] transitions,
+            BitSet accepting, int[] acceptRule) {
+        this.classMap = classMap;
+        this.classCount = classCount;
+        this.highClass = highClass;
+        this.stateCount = stateCount;
+        this.startState = startState;
+        this.transitions = transitions;
+        this.accepting = accepting;
+        this.acceptRule = acceptRule;
+        this.body = new int[stateCount];
+        for (int s = 0; s < stateCount; s++) {
+            body[s] = bodyOf(s);
+        }
+    }
+
+    private int bodyOf(int state) {
+        int stop = 0;
+        for (char c = 0x20; c <= 0x7E; c++) {
+            if (transitions[state * classCount + classOf(c)] != state) {
+                if (stop != 0) {
+                    return loopsOnBlanks(state) ? BulkScan.BLANKS : NOT_BODY;
+                }
+                stop = c;
+            }
+        }
+        boolean lines = transitions[state * classCount + classOf('\n')] == state;
+        return stop | (lines ? BulkScan.LINES : 0);
+    }
+
+    private boolean loopsOnBlanks(int state) {
+        for (char c : new char[] {' ', '\t', '\n', '\r', '\f'}) {
+            if (transitions[state * classCount + classOf(c)] != state) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean matches(CharSequence s, int from, int to) {
+        int state = startState;
+        for (int i = from; i < to; i++) {
+            state = transitions[state * classCount + classOf(s.charAt(i))];
+            if (state == DEAD) {
+                return false;
+            }
+        }
+        return accepting.get(state);
+    }
+
+    @Override
+    public int longestMatch(CharSequence s, int from, int to) {
+        int state = startState;
+        int end = accepting.get(state) ? from : -1;
+        for (int i = from; i < to; i++) {
+            state = transitions[state * classCount + classOf(s.charAt(i))];
+            if (state == DEAD) {
+                break;
+            }
+            if (accepting.get(state)) {
+                end = i + 1;
+            }
+        }
+        return end;
+    }
+
+    int classOf(char c) {
+        return c < TABLE_SIZE ? classMap[c] & 0xFF : highClass;
+    }
+
+    // Whether some token can begin with c; a run of chars that cannot is one
+    // invalid token for the lexers
+    boolean startsToken(char c) {
+        return transitions[startState * classCount + classOf(c)] != DEAD;
+    }
+
+    // Compiles every DFA against one shared class table. Two characters land in the
+    // same class when no DFA can tell them apart. Class 0 is the chars no DFA has
+    // a transition on.
+    public static Map<String, CompiledDFA> compileAll(Map<String, DFA> dfas) {
+        Map<String, List<State>> numbering = new LinkedHashMap<>();
+        Map<String, Map<State, Integer>> indices = new HashMap<>();
+        int totalStates = 0;
+        for (Map.Entry<String, DFA> entry : dfas.entrySet()) {
+            for (List<Edge> row : entry.getValue().transitionTable.values()) {
+                for (Edge edge : row) {
+                    if (edge.high >= TABLE_SIZE && (edge.low > TABLE_SIZE || edge.high < Character.MAX_VALUE)) {
+                        throw new RuntimeException("Chars past the byte-class table must all be used alike: "
+                                + edge.label());
+                    }
+                }
+            }
+            List<State> states = numberStates(entry.getValue());
+            numbering.put(entry.getKey(), states);
+            indices.put(entry.getKey(), indexOf(states));
+            totalStates += states.size();
+        }
+
+        byte[] classMap = new byte[TABLE_SIZE];
+        Map<IntBuffer, Integer> classes = new HashMap<>();
+        char[] representative = new char[TABLE_SIZE + 1];
+        int highClass = 0;
+        int[] noTransitions = new int[totalStates];
+        Arrays.fill(noTransitions, DEAD);
+        classes.put(IntBuffer.wrap(noTransitions), 0);
+
+        // TABLE_SIZE itself stands for every char past the table
+        for (char c = 0; c <= TABLE_SIZE; c++) {
+            int[] signature = new int[totalStates];
+            int i = 0;
+            for (Map.Entry<String, DFA> entry : dfas.entrySet()) {
+                Map<State, Integer> index = indices.get(entry.getKey());
+                for (State s : numbering.get(entry.getKey())) {
+                    State next = entry.getValue().next(s, c);
+                    signature[i++] = next == null ? DEAD : index.get(next);
+                }
+            }
+            Integer cls = classes.get(IntBuffer.wrap(signature));
+            if (cls == null) {
+                cls = classes.size();
+                if (cls > 0xFF) {
+                    throw new RuntimeException("Too many character classes for the byte-class table");
+                }
+                classes.put(IntBuffer.wrap(signature), cls);
+                representative[cls] = c;
+            }
+            if (c == TABLE_SIZE) {
+                highClass = cls;
+            } else {
+                classMap[c] = (byte) (int) cls;
+            }
+        }
+
+        int classCount = classes.size();
+        Map<String, CompiledDFA> compiled = new LinkedHashMap<>();
+        for (Map.Entry<String, DFA> entry : dfas.entrySet()) {
+            DFA dfa = entry.getValue();
+            List<State> states = numbering.get(entry.getKey());
+            Map<State, Integer> index = indices.get(entry.getKey());
+            int[] transitions = new int[states.size() * classCount];
+            Arrays.fill(transitions, DEAD);
+            BitSet accepting = new BitSet(states.size());
+            int[] acceptRule = null;
+            if (!dfa.acceptRule.isEmpty()) {
+                acceptRule = new int[states.size()];
+                Arrays.fill(acceptRule, NO_RULE);
+            }
+            for (int s = 0; s < states.size(); s++) {
+                State state = states.get(s);
+                if (dfa.finalStates.contains(state)) {
+                    accepting.set(s);
+                    if (acceptRule != null) {
+                        acceptRule[s] = dfa.acceptRule.get(state);
+                    }
+                }
+                for (int cls = 1; cls < classCount; cls++) {
+                    State next = dfa.next(state, representative[cls]);
+                    if (next != null) {
+                        transitions[s * classCount + cls] = index.get(next);
+                    }
+                }
+            }
+            compiled.put(entry.getKey(), new CompiledDFA(classMap, classCount, highClass, states.size(), 0, transitions,
+                    accepting, acceptRule));
+        }
+        return compiled;
+    }
+
+    // Breadth-first numbering from the start state, so the start state is always 0
+    private static List<State> numberStates(DFA dfa) {
+        List<State> order = new ArrayList<>();
+        Set<State> seen = new HashSet<>();
+        Queue<State> queue = new LinkedList<>();
+        seen.add(dfa.startState);
+        queue.add(dfa.startState);
+        while (!queue.isEmpty()) {
+            State s = queue.poll();
+            order.add(s);
+            List<Edge> row = dfa.transitionTable.get(s);
+            if (row == null) {
+                continue;
+            }
+            for (Edge edge : row) {
+                if (seen.add(edge.target)) {
+                    queue.add(edge.target);
+                }
+            }
+        }
+        return order;
+    }
+
+    private static Map<State, Integer> indexOf(List<State> states) {
+        Map<State, Integer> index = new HashMap<>();
+        for (int i = 0; i < states.size(); i++) {
+            index.put(states.get(i), i);
+        }
+        return index;
+    }
+}
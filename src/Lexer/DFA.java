@@ -1,20 +1,76 @@
 package Lexer;
 
+import java.util.ArrayList;
 import java.util.Set;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 
 public class DFA {
     State startState;
     Set<State> finalStates;
-    Map<State, Map<Character, State>> transitionTable = new HashMap<>();
+    // Each state's transitions as char ranges, sorted, not overlapping
+    Map<State, List<Edge>> transitionTable = new HashMap<>();
+    // For DFAs built from several token rules: the winning rule of each final state
+    Map<State, Integer> acceptRule = new HashMap<>();
+    // Number of states before minimization, kept for reporting
+    int subsetStateCount;
+    // Number of NFA states it was built from, also for reporting
+    int nfaStateCount;
 
     public DFA(State startState, Set<State> finalStates) {
         this.startState = startState;
         this.finalStates = finalStates;
     }
 
+    // Ranges of a state must be added in increasing order; one that continues
+    // the previous range into the same state is merged with it
+    public void addTransition(State from, char low, char high, State to) {
+        List<Edge> row = transitionTable.computeIfAbsent(from, k -> new ArrayList<>());
+        Edge last = row.isEmpty() ? null : row.get(row.size() - 1);
+        if (last != null && low <= last.high) {
+            throw new RuntimeException("DFA ranges added out of order: " + new Edge(low, high, to).label());
+        }
+        if (last != null && last.target == to && last.high + 1 == low) {
+            row.set(row.size() - 1, new Edge(last.low, high, to));
+        } else {
+            row.add(new Edge(low, high, to));
+        }
+    }
+
     public void addTransition(State from, char symbol, State to) {
-        transitionTable.computeIfAbsent(from, k -> new HashMap<>()).put(symbol, to);
+        addTransition(from, symbol, symbol, to);
+    }
+
+    // The state from moves to on c, or null
+    public State next(State from, char c) {
+        List<Edge> row = transitionTable.get(from);
+        if (row == null) {
+            return null;
+        }
+        int low = 0;
+        int high = row.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (row.get(mid).low <= c) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low > 0 && row.get(low - 1).high >= c ? row.get(low - 1).target : null;
+    }
+
+    public int stateCount() {
+        Set<State> states = new HashSet<>(transitionTable.keySet());
+        states.add(startState);
+        states.addAll(finalStates);
+        for (List<Edge> row : transitionTable.values()) {
+            for (Edge edge : row) {
+                states.add(edge.target);
+            }
+        }
+        return states.size();
     }
-}
\ No newline at end of file
+}
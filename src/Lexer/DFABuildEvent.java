@@ -0,0 +1,21 @@
+package Lexer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// JFR event for one NFA -> DFA conversion of a token rule or the scanner
+@Name("Lexer.BuildDFA")
+@Label("Build DFA")
+@Category("Lexer")
+class DFABuildEvent extends Event {
+    @Label("Rule")
+    String rule;
+
+    @Label("NFA States")
+    int nfaStates;
+
+    @Label("DFA States")
+    int dfaStates;
+}
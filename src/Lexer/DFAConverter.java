@@ -1,139 +1,472 @@
 package Lexer;
 
+import java.nio.IntBuffer;
 import java.util.*;
+import java.util.stream.Collectors;
 
 public class DFAConverter {
+    private static volatile boolean minimization = true;
+
+    // Turns the Hopcroft pass after subset construction on or off
+    public static void setMinimization(boolean enabled) {
+        minimization = enabled;
+    }
+
+    public static boolean isMinimization() {
+        return minimization;
+    }
+
     public static DFA convertNFAtoDFA(NFA nfa) {
-        State dfaStart = new State(1, false);
-        Set<State> dfaFinals = new HashSet<>();
-        Map<State, Map<Character, State>> transitionTable = new HashMap<>();
+        return finish(subsetConstruction(nfa.startState, null));
+    }
+
+    // Builds one DFA recognising every rule NFA at once. Each final state is tagged
+    // with the lowest index among the rules it accepts, which is the rule that wins
+    // a tie on match length.
+    public static DFA convertRulesToDFA(List<NFA> rules) {
+        State start = new State(0, false);
+        // By identity: every rule NFA numbers its states from 1, so an id-keyed
+        // set would keep only one of the rule start states
+        Set<State> ruleStarts = Collections.newSetFromMap(new IdentityHashMap<>());
+        start.epsilon = ruleStarts;
+        Map<State, Integer> ruleOf = new IdentityHashMap<>();
+        for (int i = 0; i < rules.size(); i++) {
+            NFA rule = rules.get(i);
+            ruleStarts.add(rule.startState);
+            ruleOf.put(rule.finalState, i);
+        }
+        return finish(subsetConstruction(start, ruleOf));
+    }
+
+    private static DFA finish(DFA dfa) {
+        int subsetStates = dfa.stateCount();
+        int nfaStates = dfa.nfaStateCount;
+        if (minimization) {
+            dfa = minimize(dfa);
+        }
+        dfa.subsetStateCount = subsetStates;
+        dfa.nfaStateCount = nfaStates;
+        return dfa;
+    }
 
-        Map<Set<State>, State> stateMap = new HashMap<>();
-        Queue<Set<State>> queue = new LinkedList<>();
+    // Subset construction over the NFA flattened into a CompactNFA. A DFA state is
+    // the sorted array of its NFA states, interned through a hash map. Its
+    // members' edges cut the chars into segments at every range start and end;
+    // all chars of a segment lead to the union of the precomputed epsilon
+    // closures of the same targets, so each segment is one DFA transition and
+    // the work grows with the number of ranges, not of chars.
+    private static DFA subsetConstruction(State nfaStart, Map<State, Integer> ruleOf) {
+        CompactNFA nfa = new CompactNFA(nfaStart, ruleOf);
+        Subsets subsets = new Subsets();
+        DFA dfa = new DFA(subsets.intern(nfa.closure[0]), new HashSet<>());
+        dfa.nfaStateCount = nfa.stateCount;
 
-        Set<State> startClosure = epsilonClosure(Collections.singleton(nfa.startState));
-        stateMap.put(startClosure, dfaStart);
-        queue.add(startClosure);
+        // DFA state reached through a single NFA target; saves rebuilding and
+        // rehashing the same closure for every segment that leads there
+        State[] viaTarget = new State[nfa.stateCount];
+        // Same for a set of several targets, keyed by the sorted distinct targets
+        Map<IntBuffer, State> viaTargets = new HashMap<>();
+        int[] mark = new int[nfa.stateCount];
+        int stamp = 0;
+        int[] members = new int[nfa.stateCount];
+        int[] distinct = new int[nfa.stateCount];
+        // (low << 47) | (high << 31) | target, sorted by low; the sign bit stays
+        // clear so that lows past 0x7FFF sort last, not first
+        long[] edges = new long[16];
+        int[] bounds = new int[32];  // first char of each segment, and one past the last
+        int[] active = new int[16];  // edges covering the current segment
 
-        while (!queue.isEmpty()) {
-            Set<State> currentStates = queue.poll();
-            State currentDFAState = stateMap.get(currentStates);
+        for (int d = 0; d < subsets.sets.size(); d++) {
+            int[] set = subsets.sets.get(d);
+            State from = subsets.states.get(d);
 
-            // Check if current state is final
-            boolean isFinal = currentStates.stream().anyMatch(s -> s.isFinal);
-            if (isFinal) {
-                dfaFinals.add(currentDFAState);
+            int rule = CompactNFA.NO_RULE;
+            int edgeCount = 0;
+            for (int s : set) {
+                int accepted = nfa.acceptRule[s];
+                if (accepted != CompactNFA.NO_RULE && (rule == CompactNFA.NO_RULE || accepted < rule)) {
+                    rule = accepted;
+                }
+                int count = nfa.edgeStart[s + 1] - nfa.edgeStart[s];
+                if (edgeCount + count > edges.length) {
+                    edges = Arrays.copyOf(edges, Math.max(edges.length * 2, edgeCount + count));
+                }
+                for (int e = nfa.edgeStart[s]; e < nfa.edgeStart[s + 1]; e++) {
+                    edges[edgeCount++] = ((long) nfa.lows[e] << 47) | ((long) nfa.highs[e] << 31) | nfa.targets[e];
+                }
+            }
+            if (rule != CompactNFA.NO_RULE) {
+                dfa.finalStates.add(from);
+                if (ruleOf != null) {
+                    dfa.acceptRule.put(from, rule);
+                }
             }
 
-            // Collect all possible symbols (excluding epsilon)
-            Set<Character> symbols = new HashSet<>();
-            for (State s : currentStates) {
-                symbols.addAll(s.transitions.keySet());
+            Arrays.sort(edges, 0, edgeCount);
+            if (2 * edgeCount > bounds.length) {
+                bounds = new int[Math.max(bounds.length * 2, 2 * edgeCount)];
+                active = new int[bounds.length];
+            }
+            int boundCount = 0;
+            for (int i = 0; i < edgeCount; i++) {
+                bounds[boundCount++] = (int) (edges[i] >>> 47);
+                bounds[boundCount++] = ((int) (edges[i] >>> 31) & 0xFFFF) + 1;
             }
-            symbols.remove('\0');
+            Arrays.sort(bounds, 0, boundCount);
 
-            for (char sym : symbols) {
-                Set<State> nextStates = move(currentStates, sym);
-                Set<State> nextClosure = epsilonClosure(nextStates);
+            int activeCount = 0;
+            int nextEdge = 0;
+            for (int b = 0; b < boundCount - 1; b++) {
+                int low = bounds[b];
+                if (low == bounds[b + 1]) {
+                    continue;
+                }
+                // Edges end before this segment or start at it; they start at no other
+                // char within it since every start is a bound
+                int kept = 0;
+                for (int k = 0; k < activeCount; k++) {
+                    if (((int) (edges[active[k]] >>> 31) & 0xFFFF) >= low) {
+                        active[kept++] = active[k];
+                    }
+                }
+                activeCount = kept;
+                while (nextEdge < edgeCount && (int) (edges[nextEdge] >>> 47) == low) {
+                    active[activeCount++] = nextEdge++;
+                }
+                if (activeCount == 0) {
+                    continue;
+                }
+
+                int targets = 0;
+                for (int k = 0; k < activeCount; k++) {
+                    distinct[targets++] = (int) edges[active[k]] & 0x7FFFFFFF;
+                }
+                Arrays.sort(distinct, 0, targets);
+                int unique = 1;
+                for (int k = 1; k < targets; k++) {
+                    if (distinct[k] != distinct[unique - 1]) {
+                        distinct[unique++] = distinct[k];
+                    }
+                }
+                targets = unique;
 
-                if (!stateMap.containsKey(nextClosure)) {
-                    State newState = new State(stateMap.size() + 1, false);
-                    stateMap.put(nextClosure, newState);
-                    queue.add(nextClosure);
+                State to;
+                if (targets == 1) {
+                    int target = distinct[0];
+                    to = viaTarget[target];
+                    if (to == null) {
+                        to = subsets.intern(nfa.closure[target]);
+                        viaTarget[target] = to;
+                    }
+                } else {
+                    IntBuffer key = IntBuffer.wrap(distinct, 0, targets);
+                    to = viaTargets.get(key);
+                    if (to == null) {
+                        stamp++;
+                        int size = 0;
+                        for (int k = 0; k < targets; k++) {
+                            for (int u : nfa.closure[distinct[k]]) {
+                                if (mark[u] != stamp) {
+                                    mark[u] = stamp;
+                                    members[size++] = u;
+                                }
+                            }
+                        }
+                        int[] next = Arrays.copyOf(members, size);
+                        Arrays.sort(next);
+                        to = subsets.intern(next);
+                        viaTargets.put(IntBuffer.wrap(Arrays.copyOf(distinct, targets)), to);
+                    }
                 }
-                State nextDFAState = stateMap.get(nextClosure);
-                transitionTable.computeIfAbsent(currentDFAState, k -> new HashMap<>()).put(sym, nextDFAState);
+                dfa.addTransition(from, (char) low, (char) (bounds[b + 1] - 1), to);
             }
         }
+        return dfa;
+    }
 
-        DFA dfa = new DFA(dfaStart, dfaFinals);
-        dfa.transitionTable = transitionTable;
+    // DFA states of a subset construction in creation order, numbered from 1
+    private static class Subsets {
+        final List<int[]> sets = new ArrayList<>();
+        final List<State> states = new ArrayList<>();
+        final Map<IntBuffer, State> interned = new HashMap<>();
 
-        // Merge final states into one
-        if (dfa.finalStates.size() > 1) {
-            mergeFinalStates(dfa);
+        State intern(int[] set) {
+            IntBuffer key = IntBuffer.wrap(set);
+            State state = interned.get(key);
+            if (state == null) {
+                state = new State(states.size() + 1, false);
+                sets.add(set);
+                states.add(state);
+                interned.put(key, state);
+            }
+            return state;
         }
-
-        return dfa;
     }
 
-    private static void mergeFinalStates(DFA dfa) {
-        State singleFinal = new State(getNextStateId(dfa), true);
-        Set<State> oldFinals = new HashSet<>(dfa.finalStates);
-        dfa.finalStates.clear();
-        dfa.finalStates.add(singleFinal);
+    // Hopcroft partition refinement. The DFA is made total with an implicit dead
+    // state, states are split until no symbol can tell two states of a block apart,
+    // and the block holding the dead state is dropped again. Final states start out
+    // grouped by the rule they accept, so rule tags survive minimization. The
+    // symbols are the segments between every range start and end in the DFA: no
+    // state tells two chars of a segment apart.
+    public static DFA minimize(DFA dfa) {
+        List<State> states = new ArrayList<>(reachableStates(dfa));
+        int n = states.size();
+        int dead = n;
+        int total = n + 1;
+        Map<State, Integer> index = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            index.put(states.get(i), i);
+        }
 
-        Map<State, Map<Character, State>> newTransitions = new HashMap<>();
+        TreeSet<Integer> bounds = new TreeSet<>();
+        for (List<Edge> row : dfa.transitionTable.values()) {
+            for (Edge edge : row) {
+                bounds.add((int) edge.low);
+                bounds.add(edge.high + 1);
+            }
+        }
+        int k = Math.max(bounds.size() - 1, 0);
+        char[] lows = new char[k];
+        char[] highs = new char[k];
+        Iterator<Integer> bound = bounds.iterator();
+        for (int a = 0, low = k > 0 ? bound.next() : 0; a < k; a++) {
+            int next = bound.next();
+            lows[a] = (char) low;
+            highs[a] = (char) (next - 1);
+            low = next;
+        }
 
-        for (State from : dfa.transitionTable.keySet()) {
-            Map<Character, State> transitions = new HashMap<>(dfa.transitionTable.get(from));
-            for (Map.Entry<Character, State> entry : transitions.entrySet()) {
-                if (oldFinals.contains(entry.getValue())) {
-                    transitions.put(entry.getKey(), singleFinal);
+        int[][] delta = new int[total][k];
+        for (int s = 0; s < total; s++) {
+            Arrays.fill(delta[s], dead);
+            if (s == dead) {
+                continue;
+            }
+            for (int a = 0; a < k; a++) {
+                State next = dfa.next(states.get(s), lows[a]);
+                if (next != null) {
+                    delta[s][a] = index.get(next);
                 }
             }
-            if (oldFinals.contains(from)) {
-                newTransitions.merge(singleFinal, transitions, (old, curr) -> {
-                    old.putAll(curr);
-                    return old;
-                });
-            } else {
-                newTransitions.put(from, transitions);
+        }
+
+        // Inverse transitions in CSR form: sources of (t, a) are inverse[a][inverseStart[a][t] ..]
+        int[][] inverseStart = new int[k][total + 1];
+        int[][] inverse = new int[k][total];
+        for (int a = 0; a < k; a++) {
+            for (int s = 0; s < total; s++) {
+                inverseStart[a][delta[s][a] + 1]++;
+            }
+            for (int t = 0; t < total; t++) {
+                inverseStart[a][t + 1] += inverseStart[a][t];
+            }
+            int[] fill = Arrays.copyOf(inverseStart[a], total);
+            for (int s = 0; s < total; s++) {
+                inverse[a][fill[delta[s][a]]++] = s;
             }
         }
 
-        if (!newTransitions.containsKey(singleFinal)) {
-            newTransitions.put(singleFinal, new HashMap<>());
+        // Initial partition: non-accepting states (and the dead state), then one block per accepted rule
+        Map<Integer, List<Integer>> initial = new TreeMap<>();
+        for (int s = 0; s < total; s++) {
+            int key = -1;
+            if (s < n && dfa.finalStates.contains(states.get(s))) {
+                key = dfa.acceptRule.getOrDefault(states.get(s), 0);
+            }
+            initial.computeIfAbsent(key, x -> new ArrayList<>()).add(s);
         }
 
-        dfa.transitionTable = newTransitions;
+        Partition partition = new Partition(total);
+        for (List<Integer> block : initial.values()) {
+            partition.addBlock(block);
+        }
 
-        if (oldFinals.contains(dfa.startState)) {
-            dfa.startState = singleFinal;
+        Deque<Integer> work = new ArrayDeque<>();
+        boolean[] inWork = new boolean[total];
+        for (int b = 0; b < partition.blockCount; b++) {
+            work.add(b);
+            inWork[b] = true;
         }
-    }
 
-    private static int getNextStateId(DFA dfa) {
-        return dfa.transitionTable.keySet().stream()
-                .mapToInt(s -> s.id)
-                .max().orElse(0) + 1;
-    }
+        while (!work.isEmpty()) {
+            int splitter = work.poll();
+            inWork[splitter] = false;
+            int[] members = partition.members(splitter);
+            for (int a = 0; a < k; a++) {
+                for (int t : members) {
+                    for (int i = inverseStart[a][t]; i < inverseStart[a][t + 1]; i++) {
+                        partition.mark(inverse[a][i]);
+                    }
+                }
+                for (int[] split : partition.splitMarked()) {
+                    int kept = split[0];
+                    int created = split[1];
+                    if (inWork[kept]) {
+                        work.add(created);
+                        inWork[created] = true;
+                    } else {
+                        int smaller = partition.size(created) <= partition.size(kept) ? created : kept;
+                        work.add(smaller);
+                        inWork[smaller] = true;
+                    }
+                }
+            }
+        }
 
-    private static Set<State> epsilonClosure(Set<State> states) {
-        Set<State> closure = new HashSet<>(states);
-        Queue<State> queue = new LinkedList<>(states);
+        // One new state per live block, numbered in breadth-first order from the start
+        int deadBlock = partition.blockOf[dead];
+        int nextId = 1;
+        State[] blockState = new State[partition.blockCount];
+        Queue<Integer> queue = new LinkedList<>();
+        int startBlock = partition.blockOf[index.get(dfa.startState)];
+        blockState[startBlock] = new State(1, false);
+        queue.add(startBlock);
 
+        DFA result = new DFA(blockState[startBlock], new HashSet<>());
         while (!queue.isEmpty()) {
-            State s = queue.poll();
-            Set<State> epsilonTrans = s.transitions.getOrDefault('\0', Collections.emptySet());
-            for (State t : epsilonTrans) {
-                if (!closure.contains(t)) {
-                    closure.add(t);
-                    queue.add(t);
+            int block = queue.poll();
+            int representative = partition.members(block)[0];
+            State from = blockState[block];
+            State original = states.get(representative);
+            if (dfa.finalStates.contains(original)) {
+                result.finalStates.add(from);
+                Integer rule = dfa.acceptRule.get(original);
+                if (rule != null) {
+                    result.acceptRule.put(from, rule);
                 }
             }
+            for (int a = 0; a < k; a++) {
+                int targetBlock = partition.blockOf[delta[representative][a]];
+                if (targetBlock == deadBlock) {
+                    continue;
+                }
+                if (blockState[targetBlock] == null) {
+                    blockState[targetBlock] = new State(++nextId, false);
+                    queue.add(targetBlock);
+                }
+                result.addTransition(from, lows[a], highs[a], blockState[targetBlock]);
+            }
         }
-        return closure;
+        return result;
     }
 
-    private static Set<State> move(Set<State> states, char sym) {
-        Set<State> result = new HashSet<>();
-        for (State s : states) {
-            Set<State> trans = s.transitions.getOrDefault(sym, Collections.emptySet());
-            result.addAll(trans);
+    // Blocks of states kept as contiguous slices of one permutation array, so a
+    // block can be split in time proportional to the number of marked states
+    private static class Partition {
+        final int[] elements;
+        final int[] location;
+        final int[] blockOf;
+        final int[] first;
+        final int[] end;
+        final int[] marked;
+        final List<Integer> touched = new ArrayList<>();
+        int blockCount = 0;
+        private int filled = 0;
+
+        Partition(int size) {
+            elements = new int[size];
+            location = new int[size];
+            blockOf = new int[size];
+            first = new int[size];
+            end = new int[size];
+            marked = new int[size];
         }
-        return result;
+
+        void addBlock(List<Integer> states) {
+            int b = blockCount++;
+            first[b] = filled;
+            marked[b] = filled;
+            for (int s : states) {
+                elements[filled] = s;
+                location[s] = filled;
+                blockOf[s] = b;
+                filled++;
+            }
+            end[b] = filled;
+        }
+
+        int size(int block) {
+            return end[block] - first[block];
+        }
+
+        int[] members(int block) {
+            return Arrays.copyOfRange(elements, first[block], end[block]);
+        }
+
+        // Moves the state into the marked prefix of its block
+        void mark(int s) {
+            int b = blockOf[s];
+            int i = location[s];
+            int m = marked[b];
+            if (i < m) {
+                return;
+            }
+            if (m == first[b]) {
+                touched.add(b);
+            }
+            int other = elements[m];
+            elements[m] = s;
+            location[s] = m;
+            elements[i] = other;
+            location[other] = i;
+            marked[b] = m + 1;
+        }
+
+        // Splits every partly marked block, returning {old block, new block} pairs
+        List<int[]> splitMarked() {
+            List<int[]> splits = new ArrayList<>();
+            for (int b : touched) {
+                if (marked[b] == end[b]) {
+                    marked[b] = first[b];
+                    continue;
+                }
+                int nb = blockCount++;
+                first[nb] = first[b];
+                end[nb] = marked[b];
+                marked[nb] = first[nb];
+                first[b] = end[nb];
+                marked[b] = first[b];
+                for (int i = first[nb]; i < end[nb]; i++) {
+                    blockOf[elements[i]] = nb;
+                }
+                splits.add(new int[] {b, nb});
+            }
+            touched.clear();
+            return splits;
+        }
+    }
+
+    private static Set<State> reachableStates(DFA dfa) {
+        Set<State> seen = new LinkedHashSet<>();
+        Queue<State> queue = new LinkedList<>();
+        seen.add(dfa.startState);
+        queue.add(dfa.startState);
+        while (!queue.isEmpty()) {
+            List<Edge> row = dfa.transitionTable.get(queue.poll());
+            if (row == null) {
+                continue;
+            }
+            for (Edge edge : row) {
+                if (seen.add(edge.target)) {
+                    queue.add(edge.target);
+                }
+            }
+        }
+        return seen;
     }
 
     public static void printDFATransitionTable(DFA dfa) {
         System.out.println("DFA Transition Table:");
         System.out.println("State\tSymbol\tNext State");
         for (State from : dfa.transitionTable.keySet()) {
-            for (Map.Entry<Character, State> entry : dfa.transitionTable.get(from).entrySet()) {
-                System.out.printf("%d\t%c\t%d%n", from.id, entry.getKey(), entry.getValue().id);
+            for (Edge edge : dfa.transitionTable.get(from)) {
+                System.out.printf("%d\t%s\t%d%n", from.id, edge.label(), edge.target.id);
             }
         }
         System.out.println("Start State: " + dfa.startState.id);
-        System.out.println("Final State: " + dfa.finalStates.iterator().next().id);
+        System.out.println("Final States: " + dfa.finalStates.stream()
+                .map(s -> String.valueOf(s.id)).sorted().collect(Collectors.joining(", ")));
+        System.out.println("States: " + dfa.stateCount() + " (" + dfa.subsetStateCount + " after subset construction)");
     }
 }
\ No newline at end of file
@@ -1,98 +1,207 @@
 package Lexer;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 
 public class DFAStore {
-    private static final Map<String, DFA> dfaMap = new HashMap<>();
+    // Token rules in scanner priority order: when two rules match the same
+    // longest lexeme, the earlier rule wins. Each rule also gets its own DFA.
+    static final String[][] TOKEN_SPECS = {
+        {"WHITESPACE", "[ \t\n\r\f]+"},
+        {"IDENTIFIER", "[a-z]+"},
+        {"WHOLE_NUMBER", "\\-[0-9]+|[0-9]+"},
+        {"DECIMAL", "\\-[0-9]+\\.[0-9]+|[0-9]+\\.[0-9]+"},
+        {"CHAR_LITERAL", "'[ -~]'"},
+        // No '@': it only ever starts a comment, so a lone one is an unclosed comment
+        {"OPERATOR", "[%+\\-=*^]"},
+        // Comment and string bodies: any char but the one that ends them
+        {"Single_COMMENT", "#[^\n]*"},
+        {"MultiCOMMENT", "@[^@]*@"},
+        {"STRING_LITERAL", "\"[^\"]*\""},
+        {"SYMBOL", "[;()]"},
+        {"OPEN_BRACKET", "[{]"},
+        {"CLOSE_BRACKET", "[}]"},
+        // Malformed lexemes: identifiers with capitals or digits, numbers running into
+        // letters or extra dots, and comments/strings that never close
+        {"ERROR", "[a-zA-Z][a-zA-Z0-9]*"
+                + "|\\-[0-9][0-9.]*[a-zA-Z.][a-zA-Z0-9.]*|[0-9][0-9.]*[a-zA-Z.][a-zA-Z0-9.]*"
+                + "|@[^@]*|\"[^\"]*"},
+    };
+
+    // Reserved words by token type. The scanner lexes them as identifiers and
+    // RESERVED then tells them apart, so adding a word never touches the DFAs.
+    static final String[][] RESERVED_WORDS = {
+        {"BOOLEAN", "false", "true"},
+        {"KEYWORD", "int", "float", "global", "local", "char", "bool"},
+        {"FUNCTION", "input", "output"},
+    };
+
+    static final ReservedWords RESERVED = new ReservedWords(RESERVED_WORDS);
+
+    private static final TokenType[] RULE_TYPES = new TokenType[TOKEN_SPECS.length];
 
     static {
-        // DFA for Identifiers (variable names)
-        
-        NFA identifierNFA = ThompsonConstruction.buildNFAFromRegex(new Parser("[a-z]+").parse());
-        //ThompsonConstruction.printTransitionTable(identifierNFA);
-        DFA identifierDFA = DFAConverter.convertNFAtoDFA(identifierNFA);
-        dfaMap.put("IDENTIFIER", identifierDFA);
-
-  
-
-        // DFA for Whole Numbers (e.g., integers)
-        NFA wholeNumberNFA = ThompsonConstruction.buildNFAFromRegex(new Parser("\\-[0-9]+|[0-9]+").parse());
-        //ThompsonConstruction.printTransitionTable(wholeNumberNFA);
-        DFA wholeNumberDFA = DFAConverter.convertNFAtoDFA(wholeNumberNFA);
-        dfaMap.put("WHOLE_NUMBER", wholeNumberDFA);
-
-        // DFA for Decimal Numbers (e.g., floats)
-        NFA decimalNFA = ThompsonConstruction.buildNFAFromRegex(new Parser("\\-[0-9]+|[0-9]+(\\.[0-9]+)*").parse());
-       // ThompsonConstruction.printTransitionTable(decimalNFA);
-        DFA decimalDFA = DFAConverter.convertNFAtoDFA(decimalNFA);
-        dfaMap.put("DECIMAL", decimalDFA);
-
-        // DFA for Keywords (e.g., int, float, global, local, char, bool)
-        NFA keywordNFA = ThompsonConstruction.buildNFAFromRegex(new Parser("int|float|global|char|bool").parse());
-        //ThompsonConstruction.printTransitionTable(keywordNFA);
-        DFA keywordDFA = DFAConverter.convertNFAtoDFA(keywordNFA);
-        dfaMap.put("KEYWORD", keywordDFA);
-
-        // DFA for Char Input (e.g., single character inputs)
-        NFA charNFA = ThompsonConstruction.buildNFAFromRegex(new Parser("'[a-z0-9]'").parse());
-       // ThompsonConstruction.printTransitionTable(charNFA);
-        DFA charDFA = DFAConverter.convertNFAtoDFA(charNFA);
-        dfaMap.put("CHAR", charDFA);
-
-        // DFA for Operators (e.g., %, +, -, @, =)
-        NFA operatorNFA = ThompsonConstruction.buildNFAFromRegex(new Parser("[%+\\-@=*^]").parse());
-        //ThompsonConstruction.printTransitionTable(operatorNFA);
-        DFA operatorDFA = DFAConverter.convertNFAtoDFA(operatorNFA);
-        dfaMap.put("OPERATOR", operatorDFA);
-
-        // DFA for Single Line Comment (#)
-        NFA singleLineCommentNFA = ThompsonConstruction.buildNFAFromRegex(new Parser("#[a-z]*").parse());
-       // ThompsonConstruction.printTransitionTable(singleLineCommentNFA);
-        DFA singleLineCommentDFA = DFAConverter.convertNFAtoDFA(singleLineCommentNFA);
-        dfaMap.put("SINGLE_LINE_COMMENT", singleLineCommentDFA);
-
-        // DFA for Multi-Line Comments (@...@)
-        NFA multiLineCommentNFA = ThompsonConstruction.buildNFAFromRegex(new Parser("@[a-zA-Z0-9]*@").parse());
-       // ThompsonConstruction.printTransitionTable(multiLineCommentNFA);
-        DFA multiLineCommentDFA = DFAConverter.convertNFAtoDFA(multiLineCommentNFA);
-        dfaMap.put("MULTI_LINE_COMMENT", multiLineCommentDFA);
-      
-        // DFA for Boolean Values (true or false)
-        NFA booleanNFA = ThompsonConstruction.buildNFAFromRegex(new Parser("false|true").parse());
-       // ThompsonConstruction.printTransitionTable(booleanNFA);
-        DFA booleanDFA = DFAConverter.convertNFAtoDFA(booleanNFA);
-        dfaMap.put("BOOLEAN", booleanDFA);
-
-        NFA inputNFA = ThompsonConstruction.buildNFAFromRegex(new Parser("input|output").parse());
-        //ThompsonConstruction.printTransitionTable(inputNFA);
-        DFA inputDFA = DFAConverter.convertNFAtoDFA(inputNFA);
-        dfaMap.put("INPUT/OUTPUT", inputDFA);
-        
-        NFA anystringNFA = ThompsonConstruction.buildNFAFromRegex(new Parser("\"[^\"]*\"").parse());
-        //ThompsonConstruction.printTransitionTable(anystringNFA);
-        DFA anystringDFA = DFAConverter.convertNFAtoDFA(anystringNFA);
-        dfaMap.put("String", anystringDFA);
-        
-        // DFA for Semicolon (;)
-        NFA semicolonNFA = ThompsonConstruction.buildNFAFromRegex(new Parser("[;()]").parse());
-        //ThompsonConstruction.printTransitionTable(semicolonNFA);
-        DFA semicolonDFA = DFAConverter.convertNFAtoDFA(semicolonNFA);
-        dfaMap.put("SYMBOL", semicolonDFA);
-
-        // DFA for Open Bracket ({)
-        NFA openBracketNFA = ThompsonConstruction.buildNFAFromRegex(new Parser("[{]").parse());
-        DFA openBracketDFA = DFAConverter.convertNFAtoDFA(openBracketNFA);
-        dfaMap.put("OPEN_BRACKET", openBracketDFA);
-
-        // DFA for Close Bracket (})
-        NFA closeBracketNFA = ThompsonConstruction.buildNFAFromRegex(new Parser("[}]").parse());
-        DFA closeBracketDFA = DFAConverter.convertNFAtoDFA(closeBracketNFA);
-        dfaMap.put("CLOSE_BRACKET", closeBracketDFA);
+        for (int i = 0; i < TOKEN_SPECS.length; i++) {
+            RULE_TYPES[i] = TokenType.fromLabel(TOKEN_SPECS[i][0]);
+        }
     }
 
+    static final int WHITESPACE_RULE = ruleIndex("WHITESPACE");
+    static final int IDENTIFIER_RULE = ruleIndex("IDENTIFIER");
+    static final int WHOLE_NUMBER_RULE = ruleIndex("WHOLE_NUMBER");
+    static final int DECIMAL_RULE = ruleIndex("DECIMAL");
+    static final int ERROR_RULE = ruleIndex("ERROR");
+
+    static final String SCANNER = "SCANNER";
+
+    // Everything shared here is either built once and then only read (the tables)
+    // or kept in concurrent maps, so any number of lexers can use it at once.
+
+    // Per-rule DFAs in Map form, built on first request only
+    private static final Map<String, DFA> dfaMap = new ConcurrentHashMap<>();
+
+    // Rules added at runtime, e.g. large or user-supplied regexes. They run on
+    // matcherFor(), so registering one never pays for a full subset construction.
+    private static final Map<String, TokenMatcher> registered = new ConcurrentHashMap<>();
+
+    // The compiled tables are loaded on first use (holder idiom) from the resource
+    // written by DFATables, and only rebuilt from the regexes when that resource
+    // is missing or was generated from different TOKEN_SPECS. Class initialization
+    // publishes them safely to every thread without any locking afterwards.
+    private static class Tables {
+        static final Map<String, CompiledDFA> compiledMap;
+        static final CompiledDFA scanner;
+
+        static {
+            TablesLoadEvent event = new TablesLoadEvent();
+            event.begin();
+            long start = System.nanoTime();
+            Map<String, CompiledDFA> tables = DFATables.load();
+            boolean compiled = tables == null;
+            if (compiled) {
+                tables = compileTables();
+            }
+            scanner = tables.remove(SCANNER);
+            compiledMap = Collections.unmodifiableMap(tables);
+            long nanos = System.nanoTime() - start;
+            event.compiled = compiled;
+            event.commit();
+            LexerMetrics.current().tablesLoaded(compiled, nanos);
+        }
+    }
+
+    // Runs the full regex -> NFA -> DFA -> table pipeline for every rule
+    static Map<String, CompiledDFA> compileTables() {
+        Map<String, DFA> toCompile = new LinkedHashMap<>();
+        List<NFA> ruleNFAs = new ArrayList<>();
+        for (String[] spec : TOKEN_SPECS) {
+            NFA nfa = buildNFA(spec[1]);
+            ruleNFAs.add(nfa);
+            toCompile.put(spec[0], measure(spec[0], () -> DFAConverter.convertNFAtoDFA(nfa)));
+        }
+
+        // One DFA for all rules at once, used by the lexer for longest-match scanning
+        toCompile.put(SCANNER, measure(SCANNER, () -> DFAConverter.convertRulesToDFA(ruleNFAs)));
+
+        // Table form of every DFA above, sharing one character class table
+        return CompiledDFA.compileAll(toCompile);
+    }
+
+    // Null for an unknown token type
     public static DFA getDFA(String tokenType) {
-        return dfaMap.get(tokenType);
+        return dfaMap.computeIfAbsent(tokenType, type -> {
+            String regex = regexOf(type);
+            if (regex == null) {
+                return null;
+            }
+            NFA nfa = buildNFA(regex);
+            return measure(type, () -> DFAConverter.convertNFAtoDFA(nfa));
+        });
+    }
+
+    // Runs one NFA -> DFA conversion, reporting it to LexerMetrics and as a DFABuildEvent
+    private static DFA measure(String rule, Supplier<DFA> conversion) {
+        LexerMetrics metrics = LexerMetrics.current();
+        DFABuildEvent event = new DFABuildEvent();
+        event.begin();
+        long start = System.nanoTime();
+        DFA dfa = conversion.get();
+        long nanos = System.nanoTime() - start;
+        event.end();
+        if (event.shouldCommit() || metrics.enabled()) {
+            int dfaStates = dfa.stateCount();
+            event.rule = rule;
+            event.nfaStates = dfa.nfaStateCount;
+            event.dfaStates = dfaStates;
+            event.commit();
+            metrics.dfaBuilt(rule, dfa.nfaStateCount, dfaStates, nanos);
+        }
+        return dfa;
+    }
+
+    public static CompiledDFA getCompiledDFA(String tokenType) {
+        return Tables.compiledMap.get(tokenType);
+    }
+
+    public static TokenMatcher register(String name, String regex) {
+        if (regexOf(name) != null) {
+            throw new RuntimeException("Token rule already defined: " + name);
+        }
+        TokenMatcher matcher = matcherFor(regex);
+        registered.put(name, matcher);
+        return matcher;
+    }
+
+    // The cheapest engine for one regex: bit-parallel when it has at most
+    // BitParallelMatcher.MAX_POSITIONS positions, a lazy DFA otherwise
+    public static TokenMatcher matcherFor(String regex) {
+        RegexNode tree = new Parser(regex).parse();
+        TokenMatcher matcher = BitParallelMatcher.build(tree);
+        if (matcher == null) {
+            matcher = new LazyDFA(ThompsonConstruction.buildNFAFromRegex(tree));
+        }
+        return matcher;
+    }
+
+    // A built-in rule's compiled table or a registered rule's matcher; null if unknown
+    public static TokenMatcher getMatcher(String name) {
+        TokenMatcher matcher = registered.get(name);
+        return matcher != null ? matcher : getCompiledDFA(name);
+    }
+
+    public static CompiledDFA getScanner() {
+        return Tables.scanner;
+    }
+
+    private static NFA buildNFA(String regex) {
+        return ThompsonConstruction.buildNFAFromRegex(new Parser(regex).parse());
+    }
+
+    static TokenType ruleType(int rule) {
+        return RULE_TYPES[rule];
+    }
+
+    private static String regexOf(String name) {
+        for (String[] spec : TOKEN_SPECS) {
+            if (spec[0].equals(name)) {
+                return spec[1];
+            }
+        }
+        return null;
+    }
+
+    private static int ruleIndex(String name) {
+        for (int i = 0; i < TOKEN_SPECS.length; i++) {
+            if (TOKEN_SPECS[i][0].equals(name)) {
+                return i;
+            }
+        }
+        throw new RuntimeException("No token rule named " + name);
     }
 }
@@ -0,0 +1,137 @@
+package Lexer;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Binary form of the compiled DFA tables, so a JVM start does not have to run
+// Parser, ThompsonConstruction and DFAConverter again. The file is generated by
+// running main below and starts with a hash of TOKEN_SPECS and the code version;
+// DFAStore ignores it and compiles at runtime when the hash does not match.
+//
+// Layout (DataOutputStream, big-endian):
+//   int magic, int version, long spec hash, int classCount, byte[256] classMap,
+//   int highClass, int tableCount, then per table: UTF name, int stateCount, int startState,
+//   int[stateCount * classCount] transitions, int acceptingWords, long[] accepting,
+//   boolean hasRules, int[stateCount] acceptRule (if hasRules)
+public class DFATables {
+    static final String RESOURCE = "/Lexer/dfa-tables.bin";
+    private static final int MAGIC = 0x434D5844; // "CMXD"
+    private static final int VERSION = 2;
+    // Version of the code that builds the tables (Parser, ThompsonConstruction,
+    // DFAConverter, CompiledDFA.compileAll). Bump it with any change there that
+    // could alter the tables, so a resource generated by older code is treated
+    // as stale and cannot hide a regression in the compile path.
+    static final int CONSTRUCTION_VERSION = 2;
+
+    // Generates the resource: DFATables [output file], default src/Lexer/dfa-tables.bin
+    public static void main(String[] args) throws IOException {
+        Path out = Paths.get(args.length > 0 ? args[0] : "src/Lexer/dfa-tables.bin");
+        Map<String, CompiledDFA> tables = DFAStore.compileTables();
+        try (OutputStream file = Files.newOutputStream(out)) {
+            write(tables, file);
+        }
+        System.out.println("Wrote " + tables.size() + " tables (" + Files.size(out) + " bytes) to " + out);
+    }
+
+    static void write(Map<String, CompiledDFA> tables, OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        CompiledDFA first = tables.values().iterator().next();
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(specHash());
+        out.writeInt(first.classCount);
+        out.write(first.classMap);
+        out.writeInt(first.highClass);
+        out.writeInt(tables.size());
+        for (Map.Entry<String, CompiledDFA> entry : tables.entrySet()) {
+            CompiledDFA dfa = entry.getValue();
+            if (dfa.classMap != first.classMap) {
+                throw new RuntimeException("Tables must share one class map: " + entry.getKey());
+            }
+            out.writeUTF(entry.getKey());
+            out.writeInt(dfa.stateCount);
+            out.writeInt(dfa.startState);
+            for (int t : dfa.transitions) {
+                out.writeInt(t);
+            }
+            long[] accepting = dfa.accepting.toLongArray();
+            out.writeInt(accepting.length);
+            for (long word : accepting) {
+                out.writeLong(word);
+            }
+            out.writeBoolean(dfa.acceptRule != null);
+            if (dfa.acceptRule != null) {
+                for (int rule : dfa.acceptRule) {
+                    out.writeInt(rule);
+                }
+            }
+        }
+        out.flush();
+    }
+
+    // Reads the bundled tables, or returns null if they are missing, unreadable
+    // or were generated from different token specs
+    static Map<String, CompiledDFA> load() {
+        try (InputStream stream = DFATables.class.getResourceAsStream(RESOURCE)) {
+            if (stream == null) {
+                return null;
+            }
+            return read(stream);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    static Map<String, CompiledDFA> read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != specHash()) {
+            return null;
+        }
+        int classCount = in.readInt();
+        byte[] classMap = new byte[CompiledDFA.TABLE_SIZE];
+        in.readFully(classMap);
+        int highClass = in.readInt();
+        int tableCount = in.readInt();
+        Map<String, CompiledDFA> tables = new LinkedHashMap<>();
+        for (int t = 0; t < tableCount; t++) {
+            String name = in.readUTF();
+            int stateCount = in.readInt();
+            int startState = in.readInt();
+            int[] transitions = new int[stateCount * classCount];
+            for (int i = 0; i < transitions.length; i++) {
+                transitions[i] = in.readInt();
+            }
+            long[] words = new long[in.readInt()];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = in.readLong();
+            }
+            int[] acceptRule = null;
+            if (in.readBoolean()) {
+                acceptRule = new int[stateCount];
+                for (int i = 0; i < stateCount; i++) {
+                    acceptRule[i] = in.readInt();
+                }
+            }
+            tables.put(name, new CompiledDFA(classMap, classCount, highClass, stateCount, startState, transitions,
+                    BitSet.valueOf(words), acceptRule));
+        }
+        return tables;
+    }
+
+    // 64-bit FNV-1a over the format and construction versions, the
+    // minimization switch and every spec, so it changes whenever any of them does
+    static long specHash() {
+        long hash = 0xcbf29ce484222325L;
+        String key = VERSION + "|" + CONSTRUCTION_VERSION + "|" + DFAConverter.isMinimization();
+        for (String[] spec : DFAStore.TOKEN_SPECS) {
+            key += "|" + spec[0] + "\0" + spec[1];
+        }
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,38 @@
+package Lexer;
+
+// One lexical error found in error-recovery mode: where it is and the message
+// the lexer would otherwise have thrown
+public class Diagnostic {
+    private final int line;
+    private final int start;
+    private final int end;
+    private final String message;
+
+    public Diagnostic(int line, int start, int end, String message) {
+        this.line = line;
+        this.start = start;
+        this.end = end;
+        this.message = message;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return message;
+    }
+}
@@ -0,0 +1,23 @@
+package Lexer;
+
+// Chars low..high (inclusive) lead to target; an NFA move or a DFA transition
+class Edge {
+    final char low;
+    final char high;
+    final State target;
+
+    Edge(char low, char high, State target) {
+        this.low = low;
+        this.high = high;
+        this.target = target;
+    }
+
+    // "a" or "a-z"; chars outside printable ASCII as Java-style hex escapes
+    String label() {
+        return low == high ? show(low) : show(low) + "-" + show(high);
+    }
+
+    private static String show(char c) {
+        return c >= ' ' && c <= '~' ? String.valueOf(c) : String.format("\\u%04x", (int) c);
+    }
+}
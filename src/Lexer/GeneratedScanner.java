@@ -0,0 +1,398 @@
+package Lexer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Generated by ScannerGenerator from DFAStore.TOKEN_SPECS; do not edit.
+// Same tokens as LexicalAnalyzer, with the scanner DFA direct-coded: one
+// case per state and one range test per transition, no table lookups.
+// Errors, error recovery and metrics work as in LexicalAnalyzer.
+public class GeneratedScanner {
+    // DFATables.specHash() of the specs this was generated from
+    static final long SPEC_HASH = 0x9131f8111ee3f6e9L;
+
+    private static final int WHITESPACE_RULE = 0;
+    private static final int IDENTIFIER_RULE = 1;
+    private static final int WHOLE_NUMBER_RULE = 2;
+    private static final int DECIMAL_RULE = 3;
+    private static final int ERROR_RULE = 12;
+
+    private static final TokenType[] RULE_TYPES = {
+        TokenType.WHITESPACE,
+        TokenType.IDENTIFIER,
+        TokenType.WHOLE_NUMBER,
+        TokenType.DECIMAL,
+        TokenType.CHAR_LITERAL,
+        TokenType.OPERATOR,
+        TokenType.SINGLE_COMMENT,
+        TokenType.MULTI_COMMENT,
+        TokenType.STRING_LITERAL,
+        TokenType.SYMBOL,
+        TokenType.OPEN_BRACKET,
+        TokenType.CLOSE_BRACKET,
+        TokenType.ERROR,
+    };
+
+    private final CharSequence input;
+    private int position = 0;
+    private int lineNumber = 1;
+    private final SymbolTable symbolTable = new SymbolTable();
+    private boolean errorRecovery = false;
+    private final List<Diagnostic> diagnostics = new ArrayList<>();
+    private long dfaSteps = 0;
+
+    public GeneratedScanner(CharSequence input) {
+        this.input = input;
+    }
+
+    public List<Token> tokenize() {
+        return tokenizeToBuffer().asList();
+    }
+
+    public TokenBuffer tokenizeToBuffer() {
+        return measure(new TokenBuffer(input));
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    public void setErrorRecovery(boolean enabled) {
+        errorRecovery = enabled;
+    }
+
+    public List<Diagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
+    private TokenBuffer measure(TokenBuffer tokens) {
+        LexerMetrics metrics = LexerMetrics.current();
+        if (!metrics.enabled() && !LexEvent.TYPE.isEnabled()) {
+            return scan(tokens);
+        }
+        LexEvent event = new LexEvent();
+        int from = position;
+        int firstToken = tokens.size();
+        long stepsBefore = dfaSteps;
+        long allocatedBefore = LexStats.allocatedBytes();
+        event.begin();
+        long start = System.nanoTime();
+        scan(tokens);
+        long nanos = System.nanoTime() - start;
+        event.end();
+        long allocatedAfter = LexStats.allocatedBytes();
+        if (event.shouldCommit()) {
+            event.chars = position - from;
+            event.tokens = tokens.size() - firstToken;
+            event.transitions = dfaSteps - stepsBefore;
+            event.commit();
+        }
+        if (metrics.enabled()) {
+            long allocated = allocatedBefore < 0 || allocatedAfter < 0 ? -1 : allocatedAfter - allocatedBefore;
+            metrics.lexed(new LexStats(position - from, tokens, firstToken, nanos, dfaSteps - stepsBefore, allocated));
+        }
+        return tokens;
+    }
+
+    private TokenBuffer scan(TokenBuffer tokens) {
+        CharSequence input = this.input;
+        int length = input.length();
+        long steps = 0;
+        while (position < length) {
+            int state = 0;
+            int rule = -1;
+            int end = position;
+            int newlines = 0;
+            int newlinesInMatch = 0;
+            int i = position;
+            scan:
+            for (; i < length; i++) {
+                char c = input.charAt(i);
+                if (c == '\n') newlines++;
+                switch (state) {
+                    case 0:
+                        if ((c >= 9 && c <= 10) || (c >= 12 && c <= 13) || c == ' ') {
+                            state = 1;
+                            rule = 0;
+                            end = i + 1;
+                            newlinesInMatch = newlines;
+                        } else if (c == '"') {
+                            state = 2;
+                            rule = 12;
+                            end = i + 1;
+                            newlinesInMatch = newlines;
+                        } else if (c == '#') {
+                            state = 3;
+                            rule = 6;
+                            end = i + 1;
+                            newlinesInMatch = newlines;
+                        } else if (c == '%' || (c >= '*' && c <= '+') || c == '=' || c == '^') {
+                            state = 4;
+                            rule = 5;
+                            end = i + 1;
+                            newlinesInMatch = newlines;
+                        } else if (c == '\'') {
+                            state = 5;
+                        } else if ((c >= '(' && c <= ')') || c == ';') {
+                            state = 6;
+                            rule = 9;
+                            end = i + 1;
+                            newlinesInMatch = newlines;
+                        } else if (c == '-') {
+                            state = 7;
+                            rule = 5;
+                            end = i + 1;
+                            newlinesInMatch = newlines;
+                        } else if (c >= '0' && c <= '9') {
+                            state = 8;
+                            rule = 2;
+                            end = i + 1;
+                            newlinesInMatch = newlines;
+                        } else if (c == '@') {
+                            state = 9;
+                            rule = 12;
+                            end = i + 1;
+                            newlinesInMatch = newlines;
+                        } else if (c >= 'A' && c <= 'Z') {
+                            state = 10;
+                            rule = 12;
+                            end = i + 1;
+                            newlinesInMatch = newlines;
+                        } else if (c >= 'a' && c <= 'z') {
+                            state = 11;
+                            rule = 1;
+                            end = i + 1;
+                            newlinesInMatch = newlines;
+                        } else if (c == '{') {
+                            state = 12;
+                            rule = 10;
+                            end = i + 1;
+                            newlinesInMatch = newlines;
+                        } else if (c == '}') {
+                            state = 13;
+                            rule = 11;
+                            end = i + 1;
+                            newlinesInMatch = newlines;
+                        } else {
+                            break scan;
+                        }
+                        break;
+                    case 1:
+                        if ((c >= 9 && c <= 10) || (c >= 12 && c <= 13) || c == ' ') {
+                            state = 1;
+                            rule = 0;
+                            end = i + 1;
+                            newlinesInMatch = newlines;
+                        } else {
+                            break scan;
+                        }
+                        break;
+                    case 2:
+                        if ((c >= 0 && c <= '!') || (c >= '#' && c <= 65535)) {
+                            state = 2;
+                            rule = 12;
+                            end = i + 1;
+                            newlinesInMatch = newlines;
+                        } else if (c == '"') {
+                            state = 14;
+                            rule = 8;
+                            end = i + 1;
+                            newlinesInMatch = newlines;
+                        } else {
+                            break scan;
+                        }
+                        break;
+                    case 3:
+                        if ((c >= 0 && c <= 9) || (c >= 11 && c <= 65535)) {
+                            state = 3;
+                            rule = 6;
+                            end = i + 1;
+                            newlinesInMatch = newlines;
+                        } else {
+                            break scan;
+                        }
+                        break;
+                    case 5:
+                        if (c >= ' ' && c <= '~') {
+                            state = 15;
+                        } else {
+                            break scan;
+                        }
+                        break;
+                    case 7:
+                        if (c >= '0' && c <= '9') {
+                            state = 8;
+                            rule = 2;
+                            end = i + 1;
+                            newlinesInMatch = newlines;
+                        } else {
+                            break scan;
+                        }
+                        break;
+                    case 8:
+                        if (c == '.') {
+                            state = 16;
+                            rule = 12;
+                            end = i + 1;
+                            newlinesInMatch = newlines;
+                        } else if (c >= '0' && c <= '9') {
+                            state = 8;
+                            rule = 2;
+                            end = i + 1;
+                            newlinesInMatch = newlines;
+                        } else if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')) {
+                            state = 17;
+                            rule = 12;
+                            end = i + 1;
+                            newlinesInMatch = newlines;
+                        } else {
+                            break scan;
+                        }
+                        break;
+                    case 9:
+                        if ((c >= 0 && c <= '?') || (c >= 'A' && c <= 65535)) {
+                            state = 9;
+                            rule = 12;
+                            end = i + 1;
+                            newlinesInMatch = newlines;
+                        } else if (c == '@') {
+                            state = 18;
+                            rule = 7;
+                            end = i + 1;
+                            newlinesInMatch = newlines;
+                        } else {
+                            break scan;
+                        }
+                        break;
+                    case 10:
+                        if ((c >= '0' && c <= '9') || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')) {
+                            state = 10;
+                            rule = 12;
+                            end = i + 1;
+                            newlinesInMatch = newlines;
+                        } else {
+                            break scan;
+                        }
+                        break;
+                    case 11:
+                        if ((c >= '0' && c <= '9') || (c >= 'A' && c <= 'Z')) {
+                            state = 10;
+                            rule = 12;
+                            end = i + 1;
+                            newlinesInMatch = newlines;
+                        } else if (c >= 'a' && c <= 'z') {
+                            state = 11;
+                            rule = 1;
+                            end = i + 1;
+                            newlinesInMatch = newlines;
+                        } else {
+                            break scan;
+                        }
+                        break;
+                    case 15:
+                        if (c == '\'') {
+                            state = 19;
+                            rule = 4;
+                            end = i + 1;
+                            newlinesInMatch = newlines;
+                        } else {
+                            break scan;
+                        }
+                        break;
+                    case 16:
+                        if (c == '.' || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')) {
+                            state = 17;
+                            rule = 12;
+                            end = i + 1;
+                            newlinesInMatch = newlines;
+                        } else if (c >= '0' && c <= '9') {
+                            state = 20;
+                            rule = 3;
+                            end = i + 1;
+                            newlinesInMatch = newlines;
+                        } else {
+                            break scan;
+                        }
+                        break;
+                    case 17:
+                        if (c == '.' || (c >= '0' && c <= '9') || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')) {
+                            state = 17;
+                            rule = 12;
+                            end = i + 1;
+                            newlinesInMatch = newlines;
+                        } else {
+                            break scan;
+                        }
+                        break;
+                    case 20:
+                        if (c == '.' || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')) {
+                            state = 17;
+                            rule = 12;
+                            end = i + 1;
+                            newlinesInMatch = newlines;
+                        } else if (c >= '0' && c <= '9') {
+                            state = 20;
+                            rule = 3;
+                            end = i + 1;
+                            newlinesInMatch = newlines;
+                        } else {
+                            break scan;
+                        }
+                        break;
+                    default:
+                        break scan;
+                }
+            }
+            steps += i < length ? i - position + 1 : i - position;
+
+            if (rule == -1) {
+                // The invalid run goes up to the next char that can start a token
+                end = position + 1;
+                while (end < length && !startsToken(input.charAt(end))) {
+                    end++;
+                }
+                error(tokens, end, LexicalAnalyzer.invalidTokenMessage(input.subSequence(position, end).toString(), lineNumber));
+            } else if (rule == ERROR_RULE) {
+                error(tokens, end, LexicalAnalyzer.errorMessage(input.subSequence(position, end).toString(), lineNumber));
+            } else if (rule == IDENTIFIER_RULE) {
+                TokenType reserved = DFAStore.RESERVED.classify(input, position, end);
+                if (reserved != null) {
+                    tokens.add(reserved, position, end, lineNumber);
+                } else {
+                    tokens.add(TokenType.IDENTIFIER, position, end, lineNumber);
+                    symbolTable.addSymbol(input, position, end, "UNKNOWN", lineNumber);
+                }
+            } else if (rule == WHOLE_NUMBER_RULE) {
+                try {
+                    tokens.addWhole(position, end, lineNumber, NumberLiterals.wholeValue(input, position, end));
+                } catch (NumberFormatException e) {
+                    error(tokens, end, LexicalAnalyzer.outOfRangeMessage(input.subSequence(position, end).toString(), lineNumber));
+                }
+            } else if (rule == DECIMAL_RULE) {
+                try {
+                    tokens.addDecimal(position, end, lineNumber, NumberLiterals.decimalValue(input, position, end));
+                } catch (NumberFormatException e) {
+                    error(tokens, end, LexicalAnalyzer.outOfRangeMessage(input.subSequence(position, end).toString(), lineNumber));
+                }
+            } else if (rule != WHITESPACE_RULE) {
+                tokens.add(RULE_TYPES[rule], position, end, lineNumber);
+            }
+            lineNumber += newlinesInMatch;
+            position = end;
+        }
+        dfaSteps += steps;
+        return tokens;
+    }
+
+    private void error(TokenBuffer tokens, int end, String message) {
+        if (!errorRecovery) {
+            throw new RuntimeException(message);
+        }
+        tokens.add(TokenType.ERROR, position, end, lineNumber);
+        diagnostics.add(new Diagnostic(lineNumber, position, end, message));
+    }
+
+    private static boolean startsToken(char c) {
+        return (c >= 9 && c <= 10) || (c >= 12 && c <= 13) || c == ' ' || (c >= '"' && c <= '#') || c == '%' || (c >= '\'' && c <= '+') || c == '-' || (c >= '0' && c <= '9') || c == ';' || c == '=' || (c >= '@' && c <= 'Z') || c == '^' || (c >= 'a' && c <= '{') || c == '}';
+    }
+}
@@ -0,0 +1,60 @@
+package Lexer;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Symbols of a whole project. Variables are global by default, so every file's
+// SymbolTable is merged into one; files may be merged concurrently and in any
+// order. Each name keeps its first definition: the one in the file that comes
+// first in the project's order and, within it, the first line, whichever
+// thread got there first.
+public class GlobalSymbolTable {
+    private final ConcurrentHashMap<String, GlobalSymbol> symbols = new ConcurrentHashMap<>();
+
+    // Merges the table of a file; fileIndex is the file's place in the project
+    public void addAll(SymbolTable table, Path file, int fileIndex) {
+        for (Symbol symbol : table.getSymbols()) {
+            GlobalSymbol candidate = new GlobalSymbol(symbol, file, fileIndex);
+            symbols.merge(symbol.getName(), candidate, (old, added) -> added.before(old) ? added : old);
+        }
+    }
+
+    public GlobalSymbol getSymbol(String name) {
+        return symbols.get(name);
+    }
+
+    public int size() {
+        return symbols.size();
+    }
+
+    // Every symbol, by name
+    public List<GlobalSymbol> getSymbols() {
+        List<GlobalSymbol> sorted = new ArrayList<>(symbols.values());
+        sorted.sort(Comparator.comparing(Symbol::getName));
+        return sorted;
+    }
+
+    public static class GlobalSymbol extends Symbol {
+        private final Path file;
+        private final int fileIndex;
+
+        GlobalSymbol(Symbol symbol, Path file, int fileIndex) {
+            super(symbol.getName(), symbol.getType(), symbol.getLineNumber());
+            setValue(symbol.getValue());
+            this.file = file;
+            this.fileIndex = fileIndex;
+        }
+
+        // The file of the first definition
+        public Path getFile() {
+            return file;
+        }
+
+        boolean before(GlobalSymbol other) {
+            return fileIndex != other.fileIndex ? fileIndex < other.fileIndex : getLineNumber() < other.getLineNumber();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package Lexer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// One JSON object per line: {"type":...,"text":...,"line":...} for a token and
+// {"symbol":...,"value":...,"type":...,"line":...} for a symbol
+public class JsonLinesSink extends BufferedSink {
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    public JsonLinesSink(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void token(TokenType type, CharSequence source, int start, int end, int line) throws IOException {
+        writeUtf8("{\"type\":\"");
+        writeUtf8(type.getLabel());
+        writeUtf8("\",\"text\":");
+        writeString(source, start, end);
+        writeUtf8(",\"line\":");
+        writeDecimal(line);
+        writeUtf8("}\n");
+    }
+
+    @Override
+    public void symbols(SymbolTable table) throws IOException {
+        for (Symbol symbol : table.getSymbols()) {
+            writeUtf8("{\"symbol\":");
+            writeString(symbol.getName(), 0, symbol.getName().length());
+            writeUtf8(",\"value\":");
+            if (symbol.getValue() == null) {
+                writeUtf8("null");
+            } else {
+                writeString(symbol.getValue(), 0, symbol.getValue().length());
+            }
+            writeUtf8(",\"type\":");
+            writeString(symbol.getType(), 0, symbol.getType().length());
+            writeUtf8(",\"line\":");
+            writeDecimal(symbol.getLineNumber());
+            writeUtf8("}\n");
+        }
+    }
+
+    // s[start, end) as a quoted JSON string, escaped as LexerDaemon does. The
+    // non-ASCII chars of a MappedSource are UTF-8 bytes and go out unchanged.
+    private void writeString(CharSequence s, int start, int end) throws IOException {
+        boolean utf8 = s instanceof MappedSource;
+        writeByte('"');
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': writeUtf8("\\\""); break;
+                case '\\': writeUtf8("\\\\"); break;
+                case '\n': writeUtf8("\\n"); break;
+                case '\r': writeUtf8("\\r"); break;
+                case '\t': writeUtf8("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        writeUtf8("\\u00");
+                        writeByte(HEX[c >> 4]);
+                        writeByte(HEX[c & 0xF]);
+                    } else if (c < 0x80 || utf8) {
+                        writeByte(c);
+                    } else {
+                        i = writeNonAscii(s, i, end);
+                    }
+            }
+        }
+        writeByte('"');
+    }
+}
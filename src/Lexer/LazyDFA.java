@@ -0,0 +1,192 @@
+package Lexer;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Runs a Thompson NFA by building DFA states only as the input reaches them,
+// in the style of RE2. Each DFA state is an epsilon-closed set of NFA states and
+// keeps its successors for chars below 256 once they are known; other chars are
+// stepped through the NFA every time. At most maxStates DFA states are cached:
+// when the cache is full it is flushed and matching carries on from the current
+// state, so memory stays bounded however large the equivalent full DFA would be.
+// Matching takes no lock although every caller shares the cache: states are
+// interned in a ConcurrentHashMap, a flush swaps in a new one, and a missing
+// transition is only ever filled in, so a caller that misses another's write
+// computes the same successor again.
+public class LazyDFA implements TokenMatcher {
+    static final int DEFAULT_MAX_STATES = 4096;
+    private static final int ALPHABET = 256;
+
+    private final CompactNFA nfa;
+
+    private final int maxStates;
+    private final AtomicReference<Cache> cache;
+    private final AtomicInteger flushes = new AtomicInteger();
+
+    // A DFA state. next[c] is null until the transition on c has been computed;
+    // the final fields make a state safe to reach through that racy array.
+    private static class Node {
+        final int[] states;
+        final boolean accepting;
+        final Node[] next = new Node[ALPHABET];
+
+        Node(int[] states, boolean accepting) {
+            this.states = states;
+            this.accepting = accepting;
+        }
+    }
+
+    // One generation of cached states. A flush replaces it whole, so callers
+    // still walking the old one finish undisturbed.
+    private static class Cache {
+        final Map<IntBuffer, Node> nodes = new ConcurrentHashMap<>();
+        final Node start;
+
+        Cache(Node start) {
+            this.start = start;
+            nodes.put(IntBuffer.wrap(start.states), start);
+        }
+    }
+
+    // Target of every transition that leads nowhere
+    private static final Node DEAD = new Node(new int[0], false);
+
+    public LazyDFA(NFA nfa) {
+        this(nfa, DEFAULT_MAX_STATES);
+    }
+
+    public LazyDFA(NFA nfa, int maxStates) {
+        if (maxStates < 2) {
+            throw new RuntimeException("LazyDFA needs room for at least 2 cached states");
+        }
+        this.maxStates = maxStates;
+        this.nfa = new CompactNFA(nfa);
+        cache = new AtomicReference<>(new Cache(newNode(this.nfa.closure[0])));
+    }
+
+    public static LazyDFA fromRegex(String regex) {
+        return new LazyDFA(ThompsonConstruction.buildNFAFromRegex(regex));
+    }
+
+    @Override
+    public boolean matches(CharSequence s, int from, int to) {
+        Node state = cache.get().start;
+        for (int i = from; i < to; i++) {
+            state = step(state, s.charAt(i));
+            if (state == DEAD) {
+                return false;
+            }
+        }
+        return state.accepting;
+    }
+
+    @Override
+    public int longestMatch(CharSequence s, int from, int to) {
+        Node state = cache.get().start;
+        int end = state.accepting ? from : -1;
+        for (int i = from; i < to; i++) {
+            state = step(state, s.charAt(i));
+            if (state == DEAD) {
+                break;
+            }
+            if (state.accepting) {
+                end = i + 1;
+            }
+        }
+        return end;
+    }
+
+    // DFA states currently cached, and how often the cache was flushed
+    public int getCachedStates() {
+        return cache.get().nodes.size();
+    }
+
+    public int getFlushes() {
+        return flushes.get();
+    }
+
+    private Node step(Node from, char c) {
+        if (c < ALPHABET) {
+            Node next = from.next[c];
+            if (next != null) {
+                return next;
+            }
+        }
+        Node next = move(from.states, c);
+        if (c < ALPHABET) {
+            from.next[c] = next;
+        }
+        return next;
+    }
+
+    // Successor of a state set on c: the union of the precomputed closures of
+    // every target of c, interned. Built in a fresh array rather than shared
+    // work space, since callers may be moving at the same time.
+    private Node move(int[] states, char c) {
+        int[] members = null;
+        int size = 0;
+        for (int s : states) {
+            int e = nfa.edgeOn(s, c);
+            if (e < 0) {
+                continue;
+            }
+            int[] closure = nfa.closure[nfa.targets[e]];
+            if (members == null) {
+                members = new int[Math.max(16, closure.length)];
+            } else if (size + closure.length > members.length) {
+                members = Arrays.copyOf(members, Math.max(2 * members.length, size + closure.length));
+            }
+            System.arraycopy(closure, 0, members, size, closure.length);
+            size += closure.length;
+        }
+        if (size == 0) {
+            return DEAD;
+        }
+        Arrays.sort(members, 0, size);
+        int distinct = 1;
+        for (int i = 1; i < size; i++) {
+            if (members[i] != members[distinct - 1]) {
+                members[distinct++] = members[i];
+            }
+        }
+        return intern(Arrays.copyOf(members, distinct));
+    }
+
+    private Node intern(int[] states) {
+        IntBuffer key = IntBuffer.wrap(states);
+        Cache current = cache.get();
+        Node node = current.nodes.get(key);
+        if (node != null) {
+            return node;
+        }
+        if (current.nodes.size() >= maxStates) {
+            // Flush everything and start over; the start state comes back first
+            // so that later matches do not have to rebuild it. Of the callers
+            // that find the cache full at once, only one flushes it.
+            Cache flushed = new Cache(new Node(current.start.states, current.start.accepting));
+            if (cache.compareAndSet(current, flushed)) {
+                flushes.incrementAndGet();
+            }
+            current = cache.get();
+            node = current.nodes.get(key);
+            if (node != null) {
+                return node;
+            }
+        }
+        Node added = newNode(states);
+        node = current.nodes.putIfAbsent(key, added);
+        return node != null ? node : added;
+    }
+
+    private Node newNode(int[] states) {
+        boolean accepting = false;
+        for (int s : states) {
+            accepting |= nfa.acceptRule[s] != CompactNFA.NO_RULE;
+        }
+        return new Node(states, accepting);
+    }
+}
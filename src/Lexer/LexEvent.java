@@ -0,0 +1,28 @@
+package Lexer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// JFR event for one LexicalAnalyzer run. Like the other events in category
+// "Lexer" it costs nothing unless a recording enables it, e.g.
+//   java -XX:StartFlightRecording=filename=lex.jfr -cp build/classes/java/main Lexer.App ...
+//   jfr print --categories Lexer lex.jfr
+@Name("Lexer.Lex")
+@Label("Lex")
+@Category("Lexer")
+class LexEvent extends Event {
+    // Whether a recording has the event on, asked before one is created
+    static final EventType TYPE = EventType.getEventType(LexEvent.class);
+
+    @Label("Chars")
+    int chars;
+
+    @Label("Tokens")
+    int tokens;
+
+    @Label("DFA Transitions")
+    long transitions;
+}
@@ -0,0 +1,94 @@
+package Lexer;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+// What one lexer run measured. Chars are the input chars lexed, which are bytes
+// for a MappedSource. Transitions counts every DFA step, including the one per
+// token that runs into the dead state.
+public class LexStats {
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+    private final int chars;
+    private final int tokens;
+    private final long nanos;
+    private final long transitions;
+    private final long allocatedBytes;
+    private final int[] typeCounts = new int[TokenType.values().length];
+
+    LexStats(int chars, TokenBuffer buffer, int firstToken, long nanos, long transitions, long allocatedBytes) {
+        this.chars = chars;
+        this.tokens = buffer.size() - firstToken;
+        this.nanos = nanos;
+        this.transitions = transitions;
+        this.allocatedBytes = allocatedBytes;
+        for (int i = firstToken; i < buffer.size(); i++) {
+            typeCounts[buffer.type(i).id()]++;
+        }
+    }
+
+    public int getChars() {
+        return chars;
+    }
+
+    public int getTokens() {
+        return tokens;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public long getTransitions() {
+        return transitions;
+    }
+
+    // Bytes allocated by the lexing thread during the run; -1 where the JVM
+    // cannot tell, e.g. on a virtual thread
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public int getCount(TokenType type) {
+        return typeCounts[type.id()];
+    }
+
+    public double charsPerSecond() {
+        return nanos == 0 ? 0 : chars * 1e9 / nanos;
+    }
+
+    public double tokensPerSecond() {
+        return nanos == 0 ? 0 : tokens * 1e9 / nanos;
+    }
+
+    public double transitionsPerChar() {
+        return chars == 0 ? 0 : (double) transitions / chars;
+    }
+
+    public double allocationPerToken() {
+        return allocatedBytes < 0 || tokens == 0 ? -1 : (double) allocatedBytes / tokens;
+    }
+
+    // Bytes allocated so far by the current thread, or -1
+    static long allocatedBytes() {
+        return THREADS == null ? -1 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+            if (counter.isThreadAllocatedMemorySupported() && counter.isThreadAllocatedMemoryEnabled()) {
+                return counter;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d chars, %d tokens in %.3f ms (%.1f MB/s, %.0f tokens/s), %.2f transitions/char, %s",
+                chars, tokens, nanos / 1e6, charsPerSecond() / 1e6, tokensPerSecond(), transitionsPerChar(),
+                allocatedBytes < 0 ? "allocation unknown" : String.format("%.1f bytes allocated/token", allocationPerToken()));
+    }
+}
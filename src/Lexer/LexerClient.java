@@ -0,0 +1,88 @@
+package Lexer;
+
+import java.io.*;
+import java.net.SocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Sends a batch of lex requests to a LexerDaemon over one connection and
+// returns its JSON lines. When no daemon is listening the same requests are
+// lexed in this JVM instead, with the same output, so callers never need to
+// know whether one is running. Over TCP, where the daemon does not read files,
+// the client reads them and sends their contents.
+public class LexerClient {
+    private final SocketAddress address;
+    private boolean usedDaemon;
+
+    public LexerClient(SocketAddress address) {
+        this.address = address;
+    }
+
+    // One JSON line per request, in request order
+    public List<String> lex(List<LexerDaemon.Request> requests) {
+        SocketChannel channel;
+        try {
+            channel = SocketChannel.open(address);
+        } catch (IOException e) {
+            return lexInProcess(requests);
+        }
+        try (channel) {
+            // All requests go out first: the daemon reads and lexes them
+            // concurrently while the replies queue up on its side
+            boolean inline = !LexerDaemon.servesFiles(address);
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel));
+            String[] replies = new String[requests.size()];
+            List<Integer> sent = new ArrayList<>(requests.size());
+            for (int i = 0; i < requests.size(); i++) {
+                LexerDaemon.Request request = requests.get(i);
+                if (inline) {
+                    try {
+                        request = request.inline();
+                    } catch (IOException e) {
+                        // Answered here, as the daemon would have
+                        replies[i] = request.readError(e);
+                        continue;
+                    }
+                }
+                request.write(out);
+                sent.add(i);
+            }
+            out.flush();
+            channel.shutdownOutput();
+
+            BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+            int answered = 0;
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                if (answered < sent.size()) {
+                    replies[sent.get(answered)] = line;
+                }
+                answered++;
+            }
+            if (answered != sent.size()) {
+                throw new IOException("Daemon answered " + answered + " of " + sent.size() + " requests");
+            }
+            usedDaemon = true;
+            return Arrays.asList(replies);
+        } catch (IOException e) {
+            throw new RuntimeException("Lexer daemon at " + address + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    // Whether the last batch was served by the daemon rather than in-process
+    public boolean usedDaemon() {
+        return usedDaemon;
+    }
+
+    private List<String> lexInProcess(List<LexerDaemon.Request> requests) {
+        usedDaemon = false;
+        List<String> replies = new ArrayList<>(requests.size());
+        for (LexerDaemon.Request request : requests) {
+            replies.add(request.handle());
+        }
+        return replies;
+    }
+}
@@ -0,0 +1,369 @@
+package Lexer;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.Set;
+import java.util.concurrent.*;
+
+// Keeps the lexer warm in one long-running JVM and lexes on request over a
+// Unix domain socket (the default) or a localhost TCP port. Every connection
+// and every request gets its own virtual thread. Requests are lines:
+//   FILE <path>\n                    lex a file the daemon can read
+//   SOURCE <bytes>[ <name>]\n<bytes> lex inline UTF-8 source, reported as file
+//                                    <name> if given
+// A client may send any number of requests before reading; the replies come
+// back one JSON line per request, in request order (see Request.handle).
+// FILE is only served on a Unix domain socket, whose file permissions limit
+// who can connect; any local process can reach a TCP port, so there a client
+// has to send its files' contents. The default socket lives in a directory
+// only its owner can enter.
+public class LexerDaemon {
+    static final String DEFAULT_SOCKET = "cmx-lexer.sock";
+    // File type bits of a unix:mode, and the type of a socket
+    private static final int S_IFMT = 0170000;
+    private static final int S_IFSOCK = 0140000;
+
+    private final SocketAddress address;
+
+    public LexerDaemon(SocketAddress address) {
+        this.address = address;
+    }
+
+    // A port number means localhost TCP, anything else a socket file; null is
+    // the default socket
+    public static SocketAddress address(String spec) {
+        if (spec == null) {
+            return UnixDomainSocketAddress.of(defaultSocket());
+        }
+        if (spec.matches("[0-9]+")) {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(spec));
+        }
+        return UnixDomainSocketAddress.of(spec);
+    }
+
+    // DEFAULT_SOCKET in a per-user directory under the temp directory
+    static Path defaultSocket() {
+        return Paths.get(System.getProperty("java.io.tmpdir"), "cmx-lexer-" + System.getProperty("user.name"), DEFAULT_SOCKET);
+    }
+
+    // Whether requests on this address may name files for the daemon to read
+    static boolean servesFiles(SocketAddress address) {
+        return address instanceof UnixDomainSocketAddress;
+    }
+
+    public void run() throws IOException {
+        // Load the tables before the first request rather than during it
+        DFAStore.getScanner();
+
+        ServerSocketChannel server;
+        if (address instanceof UnixDomainSocketAddress) {
+            Path socket = ((UnixDomainSocketAddress) address).getPath();
+            if (socket.equals(defaultSocket())) {
+                createPrivateDirectory(socket.getParent());
+            }
+            removeStaleSocket(socket);
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    Files.deleteIfExists(socket);
+                } catch (IOException ignored) {
+                }
+            }));
+        } else {
+            server = ServerSocketChannel.open(StandardProtocolFamily.INET);
+        }
+        boolean files = servesFiles(address);
+        try (server; ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor()) {
+            server.bind(address);
+            System.out.println("Lexer daemon listening on " + address);
+            while (true) {
+                SocketChannel channel = server.accept();
+                connections.submit(() -> serve(channel, files));
+            }
+        }
+    }
+
+    // Creates dir with owner-only access, or checks that an existing one is a
+    // directory owned by this user that nobody else can use; in a shared temp
+    // directory anyone could have created it first
+    private static void createPrivateDirectory(Path dir) throws IOException {
+        if (!FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createDirectories(dir);
+            return;
+        }
+        Set<PosixFilePermission> ownerOnly = PosixFilePermissions.fromString("rwx------");
+        try {
+            Files.createDirectory(dir, PosixFilePermissions.asFileAttribute(ownerOnly));
+        } catch (FileAlreadyExistsException e) {
+            // Checked below like a directory that was there before
+        }
+        UserPrincipal user = dir.getFileSystem().getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+        if (!Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS)
+                || !Files.getOwner(dir, LinkOption.NOFOLLOW_LINKS).equals(user)
+                || !Files.getPosixFilePermissions(dir, LinkOption.NOFOLLOW_LINKS).equals(ownerOnly)) {
+            throw new IOException("Socket directory is not private to " + user.getName() + ": " + dir);
+        }
+    }
+
+    // A socket file left behind by a daemon that is gone; refuse to take over a
+    // live one, or to delete anything at that path that is not a socket, such
+    // as a file or a symlink someone put there
+    private static void removeStaleSocket(Path socket) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(socket, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        if (!isSocket(socket, attributes)) {
+            throw new IOException("Not a socket, refusing to replace it: " + socket);
+        }
+        boolean live;
+        try {
+            SocketChannel.open(UnixDomainSocketAddress.of(socket)).close();
+            live = true;
+        } catch (IOException e) {
+            live = false;
+        }
+        if (live) {
+            throw new IOException("A lexer daemon is already listening on " + socket);
+        }
+        Files.delete(socket);
+    }
+
+    // Sockets are among the "other" files; where the unix view is available
+    // its mode tells them from FIFOs and devices
+    private static boolean isSocket(Path path, BasicFileAttributes attributes) throws IOException {
+        if (!attributes.isOther()) {
+            return false;
+        }
+        if (!path.getFileSystem().supportedFileAttributeViews().contains("unix")) {
+            return true;
+        }
+        int mode = (Integer) Files.getAttribute(path, "unix:mode", LinkOption.NOFOLLOW_LINKS);
+        return (mode & S_IFMT) == S_IFSOCK;
+    }
+
+    // Requests are read and lexed as they arrive, each on a virtual thread;
+    // a writer thread sends the replies back in order
+    private void serve(SocketChannel channel, boolean files) {
+        Future<String> end = CompletableFuture.completedFuture(null);
+        try (channel; ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+            InputStream in = new BufferedInputStream(Channels.newInputStream(channel));
+            Writer out = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+            BlockingQueue<Future<String>> replies = new LinkedBlockingQueue<>();
+            Future<?> writer = requests.submit(() -> {
+                for (Future<String> reply = replies.take(); reply != end; reply = replies.take()) {
+                    out.write(reply.get());
+                    out.write('\n');
+                    if (replies.isEmpty()) {
+                        out.flush();
+                    }
+                }
+                out.flush();
+                return null;
+            });
+            try {
+                for (Request request = Request.read(in, files); request != null; request = Request.read(in, files)) {
+                    Request current = request;
+                    replies.add(requests.submit(current::handle));
+                }
+            } catch (IOException e) {
+                // A malformed request: answer it and stop reading from this client
+                replies.add(CompletableFuture.completedFuture(Request.errorLine(null, e.getMessage())));
+            } finally {
+                // Whatever went wrong, the writer must get to the end
+                replies.add(end);
+            }
+            writer.get();
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            // The client went away; nothing to report back to
+        }
+    }
+
+    // One lex request, as sent over the wire or handled in-process by LexerClient
+    public static class Request {
+        private final Path file;     // set for FILE requests, and for SOURCE ones with a name
+        private final String source; // set for SOURCE requests
+
+        private Request(Path file, String source) {
+            this.file = file;
+            this.source = source;
+        }
+
+        public static Request file(Path file) {
+            return new Request(file.toAbsolutePath(), null);
+        }
+
+        public static Request source(String source) {
+            return new Request(null, source);
+        }
+
+        // A FILE request as a SOURCE one with the file's contents, read here
+        // rather than by the daemon; others as they are
+        Request inline() throws IOException {
+            if (source != null) {
+                return this;
+            }
+            return new Request(file, new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        }
+
+        void write(OutputStream out) throws IOException {
+            if (source == null) {
+                out.write(("FILE " + file + "\n").getBytes(StandardCharsets.UTF_8));
+            } else {
+                byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+                String name = file != null ? " " + file : "";
+                out.write(("SOURCE " + bytes.length + name + "\n").getBytes(StandardCharsets.UTF_8));
+                out.write(bytes);
+            }
+        }
+
+        // The next request, or null at the end of the stream. FILE requests are
+        // refused unless files is set.
+        static Request read(InputStream in, boolean files) throws IOException {
+            String header = readLine(in);
+            if (header == null) {
+                return null;
+            }
+            if (header.startsWith("FILE ")) {
+                if (!files) {
+                    throw new IOException("FILE requests are only served on a Unix domain socket; send SOURCE");
+                }
+                return new Request(Paths.get(header.substring(5)), null);
+            }
+            if (header.startsWith("SOURCE ")) {
+                String[] fields = header.substring(7).split(" ", 2);
+                int length;
+                try {
+                    length = Integer.parseInt(fields[0].trim());
+                } catch (NumberFormatException e) {
+                    throw new IOException("Bad source length: " + fields[0]);
+                }
+                if (length < 0) {
+                    throw new IOException("Bad source length: " + length);
+                }
+                Path name = fields.length == 2 ? Paths.get(fields[1]) : null;
+                byte[] bytes = in.readNBytes(length);
+                if (bytes.length != length) {
+                    throw new IOException("Source ended after " + bytes.length + " of " + length + " bytes");
+                }
+                return new Request(name, new String(bytes, StandardCharsets.UTF_8));
+            }
+            throw new IOException("Unknown request: " + header);
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != '\n') {
+                if (b == -1) {
+                    return line.size() == 0 ? null : line.toString(StandardCharsets.UTF_8);
+                }
+                line.write(b);
+            }
+            return line.toString(StandardCharsets.UTF_8);
+        }
+
+        // Lexes the request, with error recovery, into one JSON line:
+        //   {"file":...,"tokens":[[type,text,line],...],"symbols":[[name,line],...],
+        //    "diagnostics":[[line,message],...]}
+        // or {"file":...,"error":message} if the file cannot be read. "file" is
+        // left out for inline source.
+        public String handle() {
+            String code;
+            try {
+                code = source != null ? source : new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                return readError(e);
+            }
+            LexicalAnalyzer analyzer = new LexicalAnalyzer(code);
+            analyzer.setErrorRecovery(true);
+            TokenBuffer tokens = analyzer.tokenizeToBuffer();
+
+            StringBuilder json = new StringBuilder(tokens.size() * 24);
+            json.append('{');
+            appendFile(json, file);
+            json.append("\"tokens\":[");
+            for (int i = 0; i < tokens.size(); i++) {
+                json.append(i == 0 ? "[" : ",[");
+                appendString(json, tokens.type(i).getLabel());
+                json.append(',');
+                appendString(json, tokens.text(i));
+                json.append(',').append(tokens.line(i)).append(']');
+            }
+            json.append("],\"symbols\":[");
+            boolean first = true;
+            for (Symbol symbol : analyzer.getSymbolTable().getSymbols()) {
+                json.append(first ? "[" : ",[");
+                appendString(json, symbol.getName());
+                json.append(',').append(symbol.getLineNumber()).append(']');
+                first = false;
+            }
+            json.append("],\"diagnostics\":[");
+            first = true;
+            for (Diagnostic diagnostic : analyzer.getDiagnostics()) {
+                json.append(first ? "[" : ",[").append(diagnostic.getLine()).append(',');
+                appendString(json, diagnostic.getMessage());
+                json.append(']');
+                first = false;
+            }
+            return json.append("]}").toString();
+        }
+
+        String readError(IOException e) {
+            return errorLine(file, "Error reading the file: " + e.getMessage());
+        }
+
+        static String errorLine(Path file, String message) {
+            StringBuilder json = new StringBuilder("{");
+            appendFile(json, file);
+            json.append("\"error\":");
+            appendString(json, message);
+            return json.append('}').toString();
+        }
+
+        private static void appendFile(StringBuilder json, Path file) {
+            if (file != null) {
+                json.append("\"file\":");
+                appendString(json, file.toString());
+                json.append(',');
+            }
+        }
+    }
+
+    static void appendString(StringBuilder json, CharSequence s) {
+        json.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': json.append("\\\""); break;
+                case '\\': json.append("\\\\"); break;
+                case '\n': json.append("\\n"); break;
+                case '\r': json.append("\\r"); break;
+                case '\t': json.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+}
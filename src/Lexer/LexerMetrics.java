@@ -0,0 +1,46 @@
+package Lexer;
+
+// Receives measurements from the lexer and from the regex -> DFA pipeline.
+// Install an implementation (e.g. MetricsRecorder) with install(); until then
+// NOOP is in place and LexicalAnalyzer checks enabled() once per run, so
+// nothing is timed, counted or allocated for metrics. The same phases are also
+// recorded as JFR events (LexEvent, DFABuildEvent, TablesLoadEvent) while a
+// flight recording has them enabled, whatever is installed here.
+public interface LexerMetrics {
+    LexerMetrics NOOP = new LexerMetrics() {
+        @Override
+        public boolean enabled() {
+            return false;
+        }
+    };
+
+    default boolean enabled() {
+        return true;
+    }
+
+    // One LexicalAnalyzer run: tokenize, tokenizeToBuffer or tokenizeInto, or
+    // one ParallelLexer chunk, speculative runs that are thrown away included
+    default void lexed(LexStats stats) {
+    }
+
+    // The DFAStore tables became available, either read from the resource or,
+    // when that was missing or stale, compiled from the regexes
+    default void tablesLoaded(boolean compiled, long nanos) {
+    }
+
+    // One NFA -> DFA conversion; rule is a token type or DFAStore.SCANNER
+    default void dfaBuilt(String rule, int nfaStates, int dfaStates, long nanos) {
+    }
+
+    static void install(LexerMetrics metrics) {
+        InstalledMetrics.current = metrics == null ? NOOP : metrics;
+    }
+
+    static LexerMetrics current() {
+        return InstalledMetrics.current;
+    }
+}
+
+class InstalledMetrics {
+    static volatile LexerMetrics current = LexerMetrics.NOOP;
+}
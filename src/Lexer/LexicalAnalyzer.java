@@ -2,340 +2,240 @@ package Lexer;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 public class LexicalAnalyzer {
-    
-       private final String input;
+
+    private final CharSequence input;
     private int position = 0;
+    private final int limit; // Lex only up to here (a chunk of the input, see ParallelLexer)
     private int lineNumber = 1; // Track the current line number
     private final SymbolTable symbolTable = new SymbolTable(); // Symbol table for identifiers
+    // Start of a token cut off by the chunk limit, and its line; -1 if none
+    private int openTail = -1;
+    private int openTailLine;
+    // Report errors as ERROR tokens and diagnostics instead of throwing
+    private boolean errorRecovery = false;
+    private final List<Diagnostic> diagnostics = new ArrayList<>();
+    // DFA steps taken so far, for LexerMetrics
+    private long dfaSteps = 0;
+
+    // Any character source works, e.g. a String or a memory-mapped file
+    public LexicalAnalyzer(CharSequence input) {
+        this(input, 0, input.length(), 1);
+    }
 
-    public LexicalAnalyzer(String input) {
+    LexicalAnalyzer(CharSequence input, int from, int to, int startLine) {
         this.input = input;
+        this.position = from;
+        this.limit = to;
+        this.lineNumber = startLine;
     }
 
     public List<Token> tokenize() {
-        List<Token> tokens = new ArrayList<>();
-
-        while (position < input.length()) {
-            char currentChar = input.charAt(position);
-
-            // Skip whitespace
-            if (Character.isWhitespace(currentChar)) {
-                if (currentChar == '\n') lineNumber++; // Track line numbers
-                position++;
-                continue;
-            }
-
-            // Handle character literals (e.g., 'a')
-            if (currentChar == '\'') {
-                String charLiteral = readCharacterLiteral();
-                tokens.add(new Token("CHAR_LITERAL", charLiteral));
-                continue;
-            }
+        return tokenizeToBuffer().asList();
+    }
+
+    // Lexes into a compact TokenBuffer; no Token objects are created
+    public TokenBuffer tokenizeToBuffer() {
+        return measure(new TokenBuffer(input));
+    }
+
+    // Lexes into a caller-owned buffer (cleared first), so a buffer reused across
+    // inputs makes lexing allocation-free once it has grown large enough
+    public TokenBuffer tokenizeInto(TokenBuffer tokens) {
+        tokens.reset(input);
+        return measure(tokens);
+    }
+
+    // scan() reported to the installed LexerMetrics and as a LexEvent; just
+    // scan() when neither is switched on, without even creating the event.
+    // ParallelLexer measures each chunk.
+    TokenBuffer measure(TokenBuffer tokens) {
+        LexerMetrics metrics = LexerMetrics.current();
+        if (!metrics.enabled() && !LexEvent.TYPE.isEnabled()) {
+            return scan(tokens);
+        }
+        LexEvent event = new LexEvent();
+        // Table loading is reported on its own (tablesLoaded), not as part of this run
+        DFAStore.getScanner();
+        int from = position;
+        int firstToken = tokens.size();
+        long stepsBefore = dfaSteps;
+        long allocatedBefore = LexStats.allocatedBytes();
+        event.begin();
+        long start = System.nanoTime();
+        scan(tokens);
+        long nanos = System.nanoTime() - start;
+        event.end();
+        long allocatedAfter = LexStats.allocatedBytes();
+
+        if (event.shouldCommit()) {
+            event.chars = position - from;
+            event.tokens = tokens.size() - firstToken;
+            event.transitions = dfaSteps - stepsBefore;
+            event.commit();
+        }
+        if (metrics.enabled()) {
+            long allocated = allocatedBefore < 0 || allocatedAfter < 0 ? -1 : allocatedAfter - allocatedBefore;
+            metrics.lexed(new LexStats(position - from, tokens, firstToken, nanos, dfaSteps - stepsBefore, allocated));
+        }
+        return tokens;
+    }
 
-            if (currentChar == '#') {
-                skipSingleLineComment(tokens);
-                continue;
-            }
-    
-            // Handle multi-line comments (@...@)
-            if (currentChar == '@') {
-                skipMultiLineComment(tokens);
-                continue;
-            }
-    
-            // Handle function calls input(x) and output(x)
-            if (startsWith("input(") || startsWith("output(")) {
-                readFunctionCall(tokens);
-                continue;
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    // With recovery on, a lexical error no longer ends lexing: the bad lexeme
+    // becomes an ERROR token, a Diagnostic is recorded and lexing carries on
+    // after it, so one pass finds every error. Malformed identifiers and
+    // numbers, and unclosed comments and strings, end where the ERROR rule's
+    // longest match ends; a number out of range is its whole lexeme; a run of
+    // chars that cannot start any token is one error up to the next char that can.
+    public void setErrorRecovery(boolean enabled) {
+        errorRecovery = enabled;
+    }
+
+    // Errors found so far in error-recovery mode, in input order
+    public List<Diagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
+    int getOpenTail() {
+        return openTail;
+    }
+
+    int getOpenTailLine() {
+        return openTailLine;
+    }
+
+    // The hot loop: lexemes stay (offset, length) ranges of the input and the
+    // scanner tables are read into locals once, so nothing is allocated per
+    // character or per token beyond growing the output buffer and the first
+    // sighting of each identifier name
+    TokenBuffer scan(TokenBuffer tokens) {
+        CompiledDFA scanner = DFAStore.getScanner();
+        int[] transitions = scanner.transitions;
+        byte[] classMap = scanner.classMap;
+        int[] acceptRule = scanner.acceptRule;
+        int[] body = scanner.body;
+        int classCount = scanner.classCount;
+        int highClass = scanner.highClass;
+        int length = limit;
+        long steps = 0;
+
+        while (position < length) {
+            // Longest match: run the combined DFA until it dies and fall back to
+            // the last accepting state seen on the way
+            int state = scanner.startState;
+            int rule = CompiledDFA.NO_RULE;
+            int end = position;
+            int newlines = 0;
+            int newlinesInMatch = 0;
+            int i = position;
+            for (; i < length; i++) {
+                char c = input.charAt(i);
+                int cls = c < CompiledDFA.TABLE_SIZE ? classMap[c] & 0xFF : highClass;
+                int next = transitions[state * classCount + cls];
+                if (next == CompiledDFA.DEAD) {
+                    break;
+                }
+                if (c == '\n') newlines++;
+                if (next == state && body[state] != CompiledDFA.NOT_BODY) {
+                    // Inside a comment or string body: the DFA would stay in this
+                    // state, so jump over the plain body chars in bulk
+                    long skipped = BulkScan.skipBody(input, i + 1, length, body[state]);
+                    newlines += (int) (skipped >>> 32);
+                    steps -= (int) skipped - (i + 1);
+                    i = (int) skipped - 1;
+                }
+                state = next;
+                if (acceptRule[state] != CompiledDFA.NO_RULE) {
+                    rule = acceptRule[state];
+                    end = i + 1;
+                    newlinesInMatch = newlines;
+                }
             }
-            
+            // One step per char read (less those skipped), plus the one into the dead state
+            steps += i < length ? i - position + 1 : i - position;
 
-            // Handle function calls input(x) and output(x)
-            if (startsWith("input(") || startsWith("output(")) {
-                readFunctionCall(tokens);
-                continue;
+            // The token may continue past the end of this chunk; leave it to the caller
+            if (i == length && length < input.length()) {
+                openTail = position;
+                openTailLine = lineNumber;
+                break;
             }
 
-            // Check for identifiers or keywords
-            if (Character.isLetter(currentChar)) {
-                String token = readIdentifier();
-                if (token.equals("true") || token.equals("false")) {
-                    tokens.add(new Token("BOOLEAN", token)); // Add Boolean token
-                } else if (isValidToken(token, "KEYWORD")) {
-                    tokens.add(new Token("KEYWORD", token));
-                } else if (isValidToken(token, "IDENTIFIER")) {
-                    tokens.add(new Token("IDENTIFIER", token));
-                    symbolTable.addSymbol(token, "UNKNOWN", lineNumber);
-                } else {
-                    throw new RuntimeException("Invalid identifier at line " + lineNumber + ": " + token);
+            if (rule == CompiledDFA.NO_RULE) {
+                // The invalid run goes up to the next char that can start a token,
+                // where lexing resumes in error-recovery mode. It is reported
+                // through subSequence, which decodes a MappedSource range, since
+                // charAt there is one raw byte of a possibly multi-byte char.
+                end = position + 1;
+                while (end < length && !scanner.startsToken(input.charAt(end))) {
+                    end++;
                 }
-                continue;
-            }
-            
-
-            // Check for numbers (whole or decimal)
-            // Check for numbers (whole or decimal), including negative numbers
-            if (Character.isDigit(currentChar) ||
-            (currentChar == '-' && (position + 1 < input.length() && Character.isDigit(input.charAt(position + 1))))) {
-            String token = readNumber();
-            if (token.contains(".")) {
-                if (isValidToken(token, "DECIMAL")) {
-                    tokens.add(new Token("DECIMAL", token));
+                error(tokens, end, invalidTokenMessage(input.subSequence(position, end).toString(), lineNumber));
+            } else if (rule == DFAStore.ERROR_RULE) {
+                error(tokens, end, errorMessage(input.subSequence(position, end).toString(), lineNumber));
+            } else if (rule == DFAStore.IDENTIFIER_RULE) {
+                TokenType reserved = DFAStore.RESERVED.classify(input, position, end);
+                if (reserved != null) {
+                    tokens.add(reserved, position, end, lineNumber);
                 } else {
-                    throw new RuntimeException("Invalid decimal number at line " + lineNumber + ": " + token);
+                    tokens.add(TokenType.IDENTIFIER, position, end, lineNumber);
+                    symbolTable.addSymbol(input, position, end, "UNKNOWN", lineNumber);
                 }
-            } else {
-                if (isValidToken(token, "WHOLE_NUMBER")) {
-                    tokens.add(new Token("WHOLE_NUMBER", token));
-                } else {
-                    throw new RuntimeException("Invalid whole number at line " + lineNumber + ": " + token);
+            } else if (rule == DFAStore.WHOLE_NUMBER_RULE) {
+                try {
+                    tokens.addWhole(position, end, lineNumber, NumberLiterals.wholeValue(input, position, end));
+                } catch (NumberFormatException e) {
+                    error(tokens, end, outOfRangeMessage(input.subSequence(position, end).toString(), lineNumber));
                 }
+            } else if (rule == DFAStore.DECIMAL_RULE) {
+                try {
+                    tokens.addDecimal(position, end, lineNumber, NumberLiterals.decimalValue(input, position, end));
+                } catch (NumberFormatException e) {
+                    error(tokens, end, outOfRangeMessage(input.subSequence(position, end).toString(), lineNumber));
+                }
+            } else if (rule != DFAStore.WHITESPACE_RULE) {
+                tokens.add(DFAStore.ruleType(rule), position, end, lineNumber);
             }
-            continue;
-            }
-
-            // Handle operators
-            if (isValidToken(String.valueOf(currentChar), "OPERATOR")) {
-                tokens.add(new Token("OPERATOR", String.valueOf(currentChar)));
-                position++;
-                continue;
-            }
-
-            // Handle symbols and punctuation
-            if (!isValidToken(String.valueOf(currentChar), "SYMBOL")) {
-                throw new RuntimeException("Invalid token at line " + lineNumber + ": " + currentChar);
-            }
-            tokens.add(new Token("SYMBOL", String.valueOf(currentChar)));
-            position++;
+            lineNumber += newlinesInMatch;
+            position = end;
         }
-
-        // Print the symbol table after tokenization
-        symbolTable.printSymbolTable();
+        dfaSteps += steps;
         return tokens;
     }
-    private String readStringLiteral() {
-        StringBuilder sb = new StringBuilder();
-        
-        if (input.charAt(position) != '"') {
-            throw new RuntimeException("Invalid string literal at line " + lineNumber);
-        }
-    
-        sb.append('"');
-        position++; // Skip opening quote
-    
-        while (position < input.length()) {
-            char currentChar = input.charAt(position);
-            
-            if (currentChar == '"') { // Closing quote
-                sb.append('"');
-                position++;
-                return sb.toString();
-            }
-            
-            sb.append(currentChar);
-            position++;
-        }
-    
-        throw new RuntimeException("Unclosed string literal at line " + lineNumber);
-    }
-    
-    private String readCharacterLiteral() {
-        if (position + 2 >= input.length() || input.charAt(position) != '\'') {
-            throw new RuntimeException("Invalid character literal at line " + lineNumber);
-        }
-    
-        char charValue = input.charAt(position + 1); // Extract character inside quotes
-    
-        // Ensure closing single quote
-        if (input.charAt(position + 2) != '\'') {
-            throw new RuntimeException("Unclosed character literal at line " + lineNumber);
-        }
-    
-        position += 3; // Move past the full character literal
-        return "'" + charValue + "'";
-    }
-    
-    // Skips everything after #
-    private void skipSingleLineComment(List<Token> tokens) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("#"); // Include '#' in the token
-    
-        position++; // Move past the '#'
-    
-        while (position < input.length() && input.charAt(position) != '\n') {
-            sb.append(input.charAt(position));
-            position++;
-        }
-    
-        tokens.add(new Token("Single_COMMENT", sb.toString())); // Store entire comment
-    }
-    
 
-    // Skips everything between @...@
-    private void skipMultiLineComment(List<Token> tokens) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("@"); // Include opening '@' in the token
-    
-        position++; // Move past the first '@'
-    
-        while (position < input.length()) {
-            if (input.charAt(position) == '@') {  
-                sb.append("@"); // Include closing '@' in the token
-                position++; // Move past the closing '@'
-                tokens.add(new Token("MultiCOMMENT", sb.toString())); // Store entire comment
-                return;
-            }
-    
-            if (input.charAt(position) == '\n') {
-                lineNumber++; // Track line numbers correctly
-            }
-    
-            sb.append(input.charAt(position));
-            position++;
+    // Throws, or in error-recovery mode records input[position, end) as an ERROR token
+    private void error(TokenBuffer tokens, int end, String message) {
+        if (!errorRecovery) {
+            throw new RuntimeException(message);
         }
-    
-        // If we reach here, it means we never found the closing '@'
-        throw new RuntimeException("Unclosed multi-line comment at line " + lineNumber);
+        tokens.add(TokenType.ERROR, position, end, lineNumber);
+        diagnostics.add(new Diagnostic(lineNumber, position, end, message));
     }
-    
-    private String readIdentifier() {
-    StringBuilder sb = new StringBuilder();
 
-    // Read only valid identifier characters
-    while (position < input.length() && Character.isLetter(input.charAt(position))) {
-        sb.append(input.charAt(position));
-        position++;
+    static String invalidTokenMessage(String run, int lineNumber) {
+        return "Invalid token at line " + lineNumber + ": " + run;
     }
 
-    // Stop reading if we hit an operator or invalid character
-    if (position < input.length() && !Character.isDigit(input.charAt(position))) {
-        char nextChar = input.charAt(position);
-        if (isValidToken(String.valueOf(nextChar), "OPERATOR") || isValidToken(String.valueOf(nextChar), "SYMBOL")) {
-            return sb.toString(); // Stop at operator/symbol
-        }
-    }
-
-    // If number follows the identifier, check if it's valid
-    while (position < input.length() && Character.isDigit(input.charAt(position))) {
-        sb.append(input.charAt(position));
-        position++;
+    static String outOfRangeMessage(String lexeme, int lineNumber) {
+        return "Number out of range at line " + lineNumber + ": " + lexeme;
     }
 
-    return sb.toString();
-}
-
-private String readNumber() {
-    StringBuilder sb = new StringBuilder();
-    boolean hasDecimal = false;
-
-    // Handle optional negative sign
-    if (position < input.length() && input.charAt(position) == '-') {
-        if (position + 1 < input.length() && Character.isDigit(input.charAt(position + 1))) {
-            sb.append('-');
-            position++;
-        } else {
-            throw new RuntimeException("Invalid number at line " + lineNumber + ": '-' must be followed by a digit");
-        }
-    }
-
-    while (position < input.length()) {
-        char currentChar = input.charAt(position);
-        if (Character.isDigit(currentChar)) {
-            sb.append(currentChar);
-        } else if (currentChar == '.' && !hasDecimal) {
-            hasDecimal = true;
-            sb.append(currentChar);
-        } else {
-            break;
+    static String errorMessage(String lexeme, int lineNumber) {
+        switch (lexeme.charAt(0)) {
+            case '@':
+                return "Unclosed multi-line comment at line " + lineNumber;
+            case '"':
+                return "Unclosed string literal at line " + lineNumber;
+            default:
+                if (Character.isLetter(lexeme.charAt(0))) {
+                    return "Invalid identifier at line " + lineNumber + ": " + lexeme;
+                }
+                return "Invalid number at line " + lineNumber + ": " + lexeme;
         }
-        position++;
-    }
-
-    // Ensure the number is valid and not just '-' or '-.'
-    if (sb.toString().equals("-") || sb.toString().equals("-.")) {
-        throw new RuntimeException("Invalid number at line " + lineNumber + ": '" + sb.toString() + "' is not a valid number");
     }
-
-    // Check for invalid number formats like '-3x'
-    if (position < input.length() && Character.isLetter(input.charAt(position))) {
-        throw new RuntimeException("Invalid identifier at line " + lineNumber + ": " + sb.toString() + input.charAt(position));
-    }
-
-    return sb.toString();
 }
-    // Reads input(x) or output(x)
-    private void readFunctionCall(List<Token> tokens) {
-        StringBuilder sb = new StringBuilder();
-     
-    
-        // Read function name (input or output)
-        while (position < input.length() && Character.isLetter(input.charAt(position))) {
-            sb.append(input.charAt(position));
-            position++;
-        }
-    
-        String functionName = sb.toString();
-        if (!functionName.equals("input") && !functionName.equals("output")) {
-            throw new RuntimeException("Invalid function at line " + lineNumber + ": " + functionName);
-        }
-    
-        tokens.add(new Token("FUNCTION", functionName)); // Add FUNCTION token
-    
-        // Ensure '(' follows immediately
-        if (position < input.length() && input.charAt(position) == '(') {
-            tokens.add(new Token("SYMBOL", "("));
-            position++;
-        } else {
-            throw new RuntimeException("Expected '(' after function name at line " + lineNumber);
-        }
-    
-        // Read argument (identifier or string)
-        if (position < input.length()) {
-            char nextChar = input.charAt(position);
-    
-            if (Character.isLetter(nextChar)) {
-                // Read identifier
-                String arg = readIdentifier();
-                tokens.add(new Token("IDENTIFIER", arg));
-            } else if (nextChar == '"') {
-                // Read string literal
-                String arg = readStringLiteral();
-                tokens.add(new Token("STRING_LITERAL", arg));
-            } else {
-                throw new RuntimeException("Invalid function argument at line " + lineNumber);
-            }
-        }
-    
-        // Ensure ')' follows
-        if (position < input.length() && input.charAt(position) == ')') {
-            tokens.add(new Token("SYMBOL", ")"));
-            position++;
-        } else {
-            throw new RuntimeException("Expected ')' at the end of function call at line " + lineNumber);
-        }
-    }
-         
-    private boolean startsWith(String prefix) {
-        return input.startsWith(prefix, position);
-    }
-
-    private boolean isValidToken(String token, String tokenType) {
-        DFA dfa = DFAStore.getDFA(tokenType);
-        if (dfa == null) {
-            throw new RuntimeException("No DFA found for token type: " + tokenType);
-        }
-      
-        State currentState = dfa.startState;
-        for (char c : token.toCharArray()) {
-            Map<Character, State> transitions = dfa.transitionTable.get(currentState);
-            if (transitions == null || !transitions.containsKey(c)) {
-                return false;
-            }
-            currentState = transitions.get(c);
-        }
-        return dfa.finalStates.contains(currentState);
-    }
-}
\ No newline at end of file
@@ -0,0 +1,90 @@
+package Lexer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// A memory-mapped file seen as a CharSequence, one char per byte. The lexer
+// scans the mapped bytes directly; only token values asked for later are decoded
+// (as UTF-8) into Strings. Offsets are byte offsets into the file.
+public class MappedSource implements CharSequence {
+    // Files smaller than this are read rather than mapped by open
+    static final int MAP_THRESHOLD = 1 << 20;
+
+    private final ByteBuffer bytes;
+    private final int offset;
+    private final int length;
+
+    MappedSource(ByteBuffer bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public static MappedSource map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large to map (" + size + " bytes), use --stream instead: " + path);
+            }
+            // The mapping stays valid after the channel is closed
+            return new MappedSource(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), 0, (int) size);
+        }
+    }
+
+    // Maps a large file, and reads a small one into a heap buffer that is seen
+    // the same way. Every mapping holds a kernel memory area until the buffer
+    // is collected, and lexing many small files at once could otherwise run
+    // into the per-process limit on those (vm.max_map_count); for small files
+    // a read is about as fast anyway.
+    public static MappedSource open(Path path) throws IOException {
+        return open(path, MAP_THRESHOLD);
+    }
+
+    static MappedSource open(Path path, int mapThreshold) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= mapThreshold) {
+                return map(path);
+            }
+            ByteBuffer bytes = ByteBuffer.allocate((int) size);
+            while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+            }
+            return new MappedSource(bytes, 0, bytes.position());
+        }
+    }
+
+    // The mapped bytes and where this sequence starts in them, for BulkScan
+    ByteBuffer bytes() {
+        return bytes;
+    }
+
+    int offset() {
+        return offset;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (bytes.get(offset + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new MappedSource(bytes, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        byte[] copy = new byte[length];
+        bytes.get(offset, copy);
+        return new String(copy, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,84 @@
+package Lexer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// A LexerMetrics that adds everything up across threads and prints a summary,
+// e.g. App --metrics. Install it before the first lex to see table loading.
+public class MetricsRecorder implements LexerMetrics {
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder chars = new LongAdder();
+    private final LongAdder tokens = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final LongAdder transitions = new LongAdder();
+    // Only runs where the allocation could be measured
+    private final LongAdder allocated = new LongAdder();
+    private final LongAdder allocatedTokens = new LongAdder();
+    private final LongAdder[] typeCounts = new LongAdder[TokenType.values().length];
+
+    private volatile String tables;
+    private final Map<String, String> builds = new ConcurrentHashMap<>();
+
+    public MetricsRecorder() {
+        for (int i = 0; i < typeCounts.length; i++) {
+            typeCounts[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public void lexed(LexStats stats) {
+        runs.increment();
+        chars.add(stats.getChars());
+        tokens.add(stats.getTokens());
+        nanos.add(stats.getNanos());
+        transitions.add(stats.getTransitions());
+        if (stats.getAllocatedBytes() >= 0) {
+            allocated.add(stats.getAllocatedBytes());
+            allocatedTokens.add(stats.getTokens());
+        }
+        for (TokenType type : TokenType.values()) {
+            typeCounts[type.id()].add(stats.getCount(type));
+        }
+    }
+
+    @Override
+    public void tablesLoaded(boolean compiled, long nanos) {
+        tables = String.format("%s in %.1f ms", compiled ? "compiled from the regexes" : "loaded", nanos / 1e6);
+    }
+
+    @Override
+    public void dfaBuilt(String rule, int nfaStates, int dfaStates, long nanos) {
+        builds.put(rule, String.format("%d NFA -> %d DFA states in %.2f ms", nfaStates, dfaStates, nanos / 1e6));
+    }
+
+    public String report() {
+        StringBuilder out = new StringBuilder("Lexer metrics:\n");
+        long time = nanos.sum();
+        long charCount = chars.sum();
+        long tokenCount = tokens.sum();
+        out.append(String.format("  %d runs, %d chars, %d tokens in %.1f ms%n", runs.sum(), charCount, tokenCount, time / 1e6));
+        if (time > 0) {
+            out.append(String.format("  %.1f MB/s, %.0f tokens/s%n", charCount * 1e3 / time, tokenCount * 1e9 / time));
+        }
+        if (charCount > 0) {
+            out.append(String.format("  %.2f DFA transitions per char%n", (double) transitions.sum() / charCount));
+        }
+        if (allocatedTokens.sum() > 0) {
+            out.append(String.format("  %.1f bytes allocated per token%n", (double) allocated.sum() / allocatedTokens.sum()));
+        }
+        for (TokenType type : TokenType.values()) {
+            long count = typeCounts[type.id()].sum();
+            if (count > 0) {
+                out.append("  ").append(type.getLabel()).append(": ").append(count).append('\n');
+            }
+        }
+        if (tables != null) {
+            out.append("  Tables ").append(tables).append('\n');
+        }
+        for (Map.Entry<String, String> build : builds.entrySet()) {
+            out.append("  DFA ").append(build.getKey()).append(": ").append(build.getValue()).append('\n');
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,79 @@
+package Lexer;
+
+// Values of WHOLE_NUMBER and DECIMAL lexemes, decoded straight from the source
+// chars once the scanner has matched them, so no String is built. Both assume
+// a lexeme the scanner accepted: an optional '-', digits and, for a decimal,
+// one '.' between digits. A value out of range is a NumberFormatException.
+final class NumberLiterals {
+    private static final long MIN_DIV_10 = Long.MIN_VALUE / 10;
+    // Integers up to 2^53 are exact doubles
+    private static final long MAX_EXACT = 1L << 53;
+    // Powers of ten that are exact doubles
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private NumberLiterals() {
+    }
+
+    static long wholeValue(CharSequence s, int start, int end) {
+        boolean negative = s.charAt(start) == '-';
+        // Accumulated as a negative number, which has room for Long.MIN_VALUE
+        long value = 0;
+        for (int i = negative ? start + 1 : start; i < end; i++) {
+            if (value < MIN_DIV_10) {
+                throw new NumberFormatException("out of range");
+            }
+            value = value * 10 - (s.charAt(i) - '0');
+            if (value > 0) {
+                // Wrapped around past Long.MIN_VALUE
+                throw new NumberFormatException("out of range");
+            }
+        }
+        if (negative) {
+            return value;
+        }
+        if (value == Long.MIN_VALUE) {
+            throw new NumberFormatException("out of range");
+        }
+        return -value;
+    }
+
+    // Correctly rounded. The usual case takes Clinger's fast path: with at most
+    // 2^53 as the digits read as one integer and at most 22 digits after the
+    // point, both operands of digits / 10^fraction are exact doubles and one
+    // IEEE division rounds correctly. Anything else goes to Double.parseDouble.
+    static double decimalValue(CharSequence s, int start, int end) {
+        boolean negative = s.charAt(start) == '-';
+        long digits = 0;
+        int fraction = -1; // digits after the point, once it has been seen
+        for (int i = negative ? start + 1 : start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c == '.') {
+                fraction = 0;
+                continue;
+            }
+            digits = digits * 10 + (c - '0');
+            if (digits > MAX_EXACT) {
+                return slowDecimalValue(s, start, end);
+            }
+            if (fraction >= 0) {
+                fraction++;
+            }
+        }
+        if (fraction > 22) {
+            return slowDecimalValue(s, start, end);
+        }
+        double value = digits / POWERS_OF_TEN[Math.max(fraction, 0)];
+        return negative ? -value : value;
+    }
+
+    private static double slowDecimalValue(CharSequence s, int start, int end) {
+        double value = Double.parseDouble(s.subSequence(start, end).toString());
+        if (Double.isInfinite(value)) {
+            throw new NumberFormatException("out of range");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,208 @@
+package Lexer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Lexes a large input on a ForkJoinPool. The input is cut into chunks at line
+// starts and every chunk is lexed twice at the same time: once as if it starts
+// outside a multi-line comment and once as if it starts inside one (i.e. up to
+// the first closing '@'). The merge walks the chunks in order and picks the
+// right result for each, stitching comments that span chunks back together.
+// Any other token cut by a chunk boundary (e.g. a string literal containing a
+// newline) is re-lexed serially from its start through the next chunk.
+public class ParallelLexer {
+    static final int MIN_CHUNK_SIZE = 1 << 20;
+
+    private static final int COMMENT_OPEN = -1;    // comment body runs past the end of the chunk
+    private static final int COMMENT_INVALID = -2; // not a valid comment body; re-lex serially
+
+    private final CharSequence input;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final SymbolTable symbolTable = new SymbolTable();
+
+    public ParallelLexer(CharSequence input) {
+        this(input, ForkJoinPool.commonPool(),
+                Math.max(MIN_CHUNK_SIZE, input.length() / (ForkJoinPool.commonPool().getParallelism() * 4)));
+    }
+
+    public ParallelLexer(CharSequence input, ForkJoinPool pool, int chunkSize) {
+        this.input = input;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    public List<Token> tokenize() {
+        return tokenizeToBuffer().asList();
+    }
+
+    public TokenBuffer tokenizeToBuffer() {
+        List<Chunk> chunks = split();
+
+        // Line numbers only depend on position, so count newlines first and give
+        // every speculative run its real starting line
+        List<Runnable> counts = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            counts.add(() -> chunk.newlines = countNewlines(chunk.start, chunk.end));
+        }
+        invokeAll(counts);
+        int line = 1;
+        for (Chunk chunk : chunks) {
+            chunk.startLine = line;
+            line += chunk.newlines;
+        }
+
+        List<Runnable> runs = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            runs.add(() -> chunk.outside = new Run(input, chunk.start, chunk.end, chunk.startLine));
+            if (chunk.start > 0) {
+                runs.add(() -> {
+                    chunk.commentEnd = commentEnd(chunk);
+                    if (chunk.commentEnd >= 0) {
+                        int insideLine = chunk.startLine + countNewlines(chunk.start, chunk.commentEnd);
+                        chunk.inside = new Run(input, chunk.commentEnd, chunk.end, insideLine);
+                    }
+                });
+            }
+        }
+        invokeAll(runs);
+
+        TokenBuffer tokens = new TokenBuffer(input);
+        int pendingComment = -1; // start of a comment still open at the end of the previous chunk
+        int pendingLine = 0;
+        for (int c = 0; c < chunks.size(); c++) {
+            Chunk chunk = chunks.get(c);
+            Run run;
+            if (pendingComment < 0) {
+                run = chunk.outside;
+            } else if (chunk.commentEnd == COMMENT_OPEN) {
+                continue;
+            } else if (chunk.commentEnd == COMMENT_INVALID) {
+                run = new Run(input, pendingComment, chunk.end, pendingLine);
+                pendingComment = -1;
+            } else {
+                tokens.add(TokenType.MULTI_COMMENT, pendingComment, chunk.commentEnd, pendingLine);
+                pendingComment = -1;
+                run = chunk.inside;
+            }
+
+            collect(run, tokens);
+            while (run.lexer.getOpenTail() >= 0) {
+                int tail = run.lexer.getOpenTail();
+                char first = input.charAt(tail);
+                if (Character.isWhitespace(first)) {
+                    break;
+                }
+                if (first == '@') {
+                    pendingComment = tail;
+                    pendingLine = run.lexer.getOpenTailLine();
+                    break;
+                }
+                chunk = chunks.get(++c);
+                run = new Run(input, tail, chunk.end, run.lexer.getOpenTailLine());
+                collect(run, tokens);
+            }
+        }
+        if (pendingComment >= 0) {
+            throw new RuntimeException(LexicalAnalyzer.errorMessage("@", pendingLine));
+        }
+        return tokens;
+    }
+
+    private void collect(Run run, TokenBuffer tokens) {
+        if (run.error != null) {
+            throw run.error;
+        }
+        tokens.addAll(run.tokens);
+        // Chunks are merged in order, so addSymbol keeps the first definition
+        for (Symbol symbol : run.lexer.getSymbolTable().getSymbols()) {
+            symbolTable.addSymbol(symbol.getName(), symbol.getType(), symbol.getLineNumber());
+        }
+    }
+
+    // Where a multi-line comment that was already open at the chunk start closes
+    private int commentEnd(Chunk chunk) {
+        CompiledDFA comment = DFAStore.getCompiledDFA("MultiCOMMENT");
+        int state = comment.transitions[comment.startState * comment.classCount + comment.classOf('@')];
+        for (int i = chunk.start; i < chunk.end; i++) {
+            int next = comment.transitions[state * comment.classCount + comment.classOf(input.charAt(i))];
+            if (next == CompiledDFA.DEAD) {
+                return COMMENT_INVALID;
+            }
+            if (next == state && comment.body[state] != CompiledDFA.NOT_BODY) {
+                i = (int) BulkScan.skipBody(input, i + 1, chunk.end, comment.body[state]) - 1;
+            }
+            state = next;
+            if (comment.accepting.get(state)) {
+                return i + 1;
+            }
+        }
+        return COMMENT_OPEN;
+    }
+
+    private int countNewlines(int from, int to) {
+        return BulkScan.countNewlines(input, from, to);
+    }
+
+    private void invokeAll(List<Runnable> work) {
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (Runnable runnable : work) {
+            tasks.add(ForkJoinTask.adapt(runnable));
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+    }
+
+    private List<Chunk> split() {
+        List<Chunk> chunks = new ArrayList<>();
+        int length = input.length();
+        int start = 0;
+        while (start < length) {
+            int end = Math.min(length, start + chunkSize);
+            while (end < length && input.charAt(end - 1) != '\n') {
+                end++;
+            }
+            chunks.add(new Chunk(start, end));
+            start = end;
+        }
+        return chunks;
+    }
+
+    private static class Chunk {
+        final int start;
+        final int end;
+        int newlines;
+        int startLine;
+        Run outside;    // lexed from the chunk start
+        int commentEnd; // end of a comment continued from the previous chunk
+        Run inside;     // lexed from commentEnd
+
+        Chunk(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    // One lexer run over part of the input. Errors are kept rather than thrown,
+    // since a speculative run that hit one may never be picked.
+    private static class Run {
+        final LexicalAnalyzer lexer;
+        TokenBuffer tokens;
+        RuntimeException error;
+
+        Run(CharSequence input, int from, int to, int startLine) {
+            lexer = new LexicalAnalyzer(input, from, to, startLine);
+            tokens = new TokenBuffer(input, 0);
+            try {
+                lexer.measure(tokens);
+            } catch (RuntimeException e) {
+                error = e;
+            }
+        }
+    }
+}
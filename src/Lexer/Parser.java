@@ -81,7 +81,7 @@ public class Parser {
 
     private RegexNode parseCharClass() {
         consume();
-        Set<Character> chars = new HashSet<>();
+        List<char[]> ranges = new ArrayList<>();
         boolean negate = false;
         if (peek() == '^') {
             negate = true;
@@ -102,11 +102,12 @@ public class Parser {
                         throw new RuntimeException("Dangling escape in char class range");
                     end = consume();
                 }
-                for (char c = start; c <= end; c++) {
-                    chars.add(c);
+                // A reversed range such as z-a is empty
+                if (start <= end) {
+                    ranges.add(new char[] {start, end});
                 }
             } else {
-                chars.add(start);
+                ranges.add(new char[] {start, start});
             }
         }
         if (hasMore() && peek() == ']') {
@@ -114,7 +115,7 @@ public class Parser {
         } else {
             throw new RuntimeException("Unclosed character class");
         }
-        return new CharClassNode(chars);
+        return CharClassNode.of(ranges, negate);
     }
 
     private char peek() {
@@ -0,0 +1,118 @@
+package Lexer;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Lexes every .cmx file under a directory, one task per file on a ForkJoinPool,
+// and merges the files' symbols into one GlobalSymbolTable. Tasks are submitted
+// largest file first: workers take submissions in order, so the long files
+// start early and the small ones fill in the gaps at the end instead of one
+// big file finishing last on its own. Each file is lexed in error-recovery
+// mode, so a bad file reports its errors without stopping the others. Only
+// large files are mapped (MappedSource.open), so a project of many thousands of
+// small files does not hold a mapping for each.
+public class ProjectLexer {
+    private final Path root;
+    private final ForkJoinPool pool;
+    private final GlobalSymbolTable symbolTable = new GlobalSymbolTable();
+
+    public ProjectLexer(Path root) {
+        this(root, ForkJoinPool.commonPool());
+    }
+
+    public ProjectLexer(Path root, ForkJoinPool pool) {
+        this.root = root;
+        this.pool = pool;
+    }
+
+    public GlobalSymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    // One result per file, in path order, which is also the order that decides
+    // which definition of a symbol is the first
+    public List<FileResult> lex() throws IOException {
+        List<FileResult> files = find();
+        List<FileResult> bySize = new ArrayList<>(files);
+        bySize.sort(Comparator.comparingLong((FileResult file) -> file.size).reversed());
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (FileResult file : bySize) {
+            tasks.add(pool.submit(() -> lex(file)));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+        return files;
+    }
+
+    private void lex(FileResult file) {
+        try {
+            LexicalAnalyzer analyzer = new LexicalAnalyzer(MappedSource.open(file.path));
+            analyzer.setErrorRecovery(true);
+            file.tokens = analyzer.tokenizeToBuffer().size();
+            file.diagnostics = analyzer.getDiagnostics();
+            symbolTable.addAll(analyzer.getSymbolTable(), file.path, file.index);
+        } catch (IOException e) {
+            file.error = "Error reading the file: " + e.getMessage();
+        }
+    }
+
+    private List<FileResult> find() throws IOException {
+        List<FileResult> files = new ArrayList<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (attributes.isRegularFile() && file.getFileName().toString().endsWith(".cmx")) {
+                    files.add(new FileResult(file, attributes.size()));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        files.sort(Comparator.comparing(file -> file.path));
+        for (int i = 0; i < files.size(); i++) {
+            files.get(i).index = i;
+        }
+        return files;
+    }
+
+    public static class FileResult {
+        final Path path;
+        final long size;
+        int index;
+        int tokens;
+        List<Diagnostic> diagnostics = Collections.emptyList();
+        String error; // set if the file could not be read
+
+        FileResult(Path path, long size) {
+            this.path = path;
+            this.size = size;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public int getTokenCount() {
+            return tokens;
+        }
+
+        public List<Diagnostic> getDiagnostics() {
+            return diagnostics;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+}
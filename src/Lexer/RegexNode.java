@@ -39,9 +39,47 @@ class PlusNode extends RegexNode {
     }
 }
 
+// The class as sorted ranges that neither overlap nor touch: chars
+// ranges[2i] .. ranges[2i + 1], inclusive. A negated class is stored as its
+// complement, so every consumer sees plain ranges.
 class CharClassNode extends RegexNode {
-    Set<Character> characters = new HashSet<>();
-    public CharClassNode(Set<Character> characters) {
-        this.characters = characters;
+    char[] ranges;
+    public CharClassNode(char[] ranges) {
+        this.ranges = ranges;
     }
-}
\ No newline at end of file
+
+    // Normalizes {low, high} pairs in any order, complemented over all chars if negate
+    static CharClassNode of(List<char[]> pairs, boolean negate) {
+        List<char[]> sorted = new ArrayList<>(pairs);
+        sorted.sort((a, b) -> a[0] - b[0]);
+        List<char[]> merged = new ArrayList<>();
+        for (char[] pair : sorted) {
+            char[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && pair[0] <= last[1] + 1) {
+                last[1] = (char) Math.max(last[1], pair[1]);
+            } else {
+                merged.add(new char[] {pair[0], pair[1]});
+            }
+        }
+        if (negate) {
+            List<char[]> gaps = new ArrayList<>();
+            int next = Character.MIN_VALUE;
+            for (char[] range : merged) {
+                if (range[0] > next) {
+                    gaps.add(new char[] {(char) next, (char) (range[0] - 1)});
+                }
+                next = range[1] + 1;
+            }
+            if (next <= Character.MAX_VALUE) {
+                gaps.add(new char[] {(char) next, Character.MAX_VALUE});
+            }
+            merged = gaps;
+        }
+        char[] ranges = new char[merged.size() * 2];
+        for (int i = 0; i < merged.size(); i++) {
+            ranges[2 * i] = merged.get(i)[0];
+            ranges[2 * i + 1] = merged.get(i)[1];
+        }
+        return new CharClassNode(ranges);
+    }
+}
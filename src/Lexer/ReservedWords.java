@@ -0,0 +1,187 @@
+package Lexer;
+
+import java.util.*;
+
+// Tells reserved words (keywords, boolean literals, built-in functions) apart
+// from ordinary identifiers in constant time. A minimal perfect hash gives
+// every reserved word its own slot in 0..n-1, so classifying a lexeme takes one
+// hash and one comparison against the only word it could be. As in gperf, the
+// hash only reads the length and the chars at a few positions (first, last,
+// second, ...), picked when the table is built as the fewest that tell all the
+// words apart. The hash itself is found by hash-and-displace: one hash spreads
+// the words over n buckets, then each bucket, largest first, gets the first
+// seed that sends all of its words to slots still free.
+public class ReservedWords {
+    private static final int MAX_SEED = 1 << 20;
+
+    private final String[] words;    // by slot
+    private final TokenType[] types; // by slot
+    private final int[] seeds;       // by bucket
+    private final int[] positions;   // chars hashed: i from the start, or -i from the end
+    // Bit (length % 64) of entry (first char % 128) is set if some word has that
+    // first char and length; most identifiers fail this one test
+    private final long[] firstAndLength = new long[128];
+
+    // Each row is a token type label followed by its words
+    public ReservedWords(String[][] wordsByType) {
+        List<String> all = new ArrayList<>();
+        List<TokenType> allTypes = new ArrayList<>();
+        int max = 0;
+        for (String[] row : wordsByType) {
+            TokenType type = TokenType.fromLabel(row[0]);
+            for (int i = 1; i < row.length; i++) {
+                if (all.contains(row[i])) {
+                    throw new RuntimeException("Reserved word listed twice: " + row[i]);
+                }
+                if (row[i].isEmpty()) {
+                    throw new RuntimeException("Empty reserved word for " + row[0]);
+                }
+                all.add(row[i]);
+                allTypes.add(type);
+                firstAndLength[row[i].charAt(0) & 0x7F] |= 1L << row[i].length();
+                max = Math.max(max, row[i].length());
+            }
+        }
+        int n = all.size();
+        words = new String[n];
+        types = new TokenType[n];
+        seeds = new int[Math.max(n, 1)];
+        positions = choosePositions(all, max);
+
+        List<List<Integer>> buckets = new ArrayList<>();
+        for (int b = 0; b < seeds.length; b++) {
+            buckets.add(new ArrayList<>());
+        }
+        long[] hashes = new long[n];
+        for (int k = 0; k < n; k++) {
+            hashes[k] = hash(all.get(k), 0, all.get(k).length());
+            buckets.get(bucket(hashes[k])).add(k);
+        }
+        Integer[] order = new Integer[seeds.length];
+        for (int b = 0; b < order.length; b++) {
+            order[b] = b;
+        }
+        Arrays.sort(order, (a, b) -> buckets.get(b).size() - buckets.get(a).size());
+
+        int[] slots = new int[n];
+        for (int b : order) {
+            List<Integer> bucket = buckets.get(b);
+            if (bucket.isEmpty()) {
+                break;
+            }
+            for (int seed = 1; ; seed++) {
+                if (seed == MAX_SEED) {
+                    throw new RuntimeException("No perfect hash found for the reserved words");
+                }
+                if (place(bucket, hashes, seed, slots)) {
+                    seeds[b] = seed;
+                    for (int j = 0; j < bucket.size(); j++) {
+                        words[slots[j]] = all.get(bucket.get(j));
+                        types[slots[j]] = allTypes.get(bucket.get(j));
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    // Adds positions in the order 0, -1, 1, -2, 2, ... until no two words agree
+    // on their length and the chars there. Words of equal length differ at some
+    // position, so this always ends.
+    private static int[] choosePositions(List<String> words, int maxLength) {
+        List<Integer> chosen = new ArrayList<>();
+        for (int i = 0; !distinct(words, chosen) && i < 2 * maxLength; i++) {
+            chosen.add(i % 2 == 0 ? i / 2 : -(i / 2 + 1));
+        }
+        int[] positions = new int[chosen.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = chosen.get(i);
+        }
+        return positions;
+    }
+
+    private static boolean distinct(List<String> words, List<Integer> positions) {
+        Set<String> keys = new HashSet<>();
+        for (String word : words) {
+            StringBuilder key = new StringBuilder().append(word.length());
+            for (int p : positions) {
+                key.append(',').append((int) charAt(word, 0, word.length(), p));
+            }
+            if (!keys.add(key.toString())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Whether seed sends every word of the bucket to a different free slot; the
+    // slots are left in slots[0 .. bucket.size())
+    private boolean place(List<Integer> bucket, long[] hashes, int seed, int[] slots) {
+        for (int j = 0; j < bucket.size(); j++) {
+            int slot = slot(hashes[bucket.get(j)], seed);
+            if (words[slot] != null) {
+                return false;
+            }
+            for (int k = 0; k < j; k++) {
+                if (slots[k] == slot) {
+                    return false;
+                }
+            }
+            slots[j] = slot;
+        }
+        return true;
+    }
+
+    // The reserved word type of s[start, end), or null for an ordinary identifier
+    public TokenType classify(CharSequence s, int start, int end) {
+        int length = end - start;
+        if (length == 0 || (firstAndLength[s.charAt(start) & 0x7F] >>> length & 1) == 0) {
+            return null;
+        }
+        long hash = hash(s, start, end);
+        int slot = slot(hash, seeds[bucket(hash)]);
+        String word = words[slot];
+        if (word.length() != length) {
+            return null;
+        }
+        for (int i = 0; i < length; i++) {
+            if (word.charAt(i) != s.charAt(start + i)) {
+                return null;
+            }
+        }
+        return types[slot];
+    }
+
+    public TokenType classify(String lexeme) {
+        return classify(lexeme, 0, lexeme.length());
+    }
+
+    public int size() {
+        return words.length;
+    }
+
+    // The length and the chosen chars, packed and mixed
+    private long hash(CharSequence s, int start, int end) {
+        long key = end - start;
+        for (int p : positions) {
+            key = key * 0x10001 + charAt(s, start, end, p);
+        }
+        return key * 0x9e3779b97f4a7c15L;
+    }
+
+    private static char charAt(CharSequence s, int start, int end, int position) {
+        int i = position >= 0 ? start + position : end + position;
+        return i >= start && i < end ? s.charAt(i) : 0;
+    }
+
+    // Both map a 32-bit hash onto 0..size-1 by multiplying, not dividing
+    private int bucket(long hash) {
+        return (int) (((hash >>> 32) * seeds.length) >>> 32);
+    }
+
+    // The hash displaced by the bucket's seed and mixed once more
+    private int slot(long hash, int seed) {
+        long z = (hash ^ seed) * 0xbf58476d1ce4e5b9L;
+        return (int) (((z >>> 32) * words.length) >>> 32);
+    }
+}
@@ -0,0 +1,289 @@
+package Lexer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Emits GeneratedScanner.java, a direct-coded version of the combined scanner
+// DFA in the style of re2c/JFlex: every state becomes a case of one switch and
+// its transitions become character range tests, so the hot loop reads no
+// tables at all. Regenerate after changing TOKEN_SPECS:
+//   ./gradlew generateScanner
+public class ScannerGenerator {
+    static final String CLASS_NAME = "GeneratedScanner";
+
+    public static void main(String[] args) throws IOException {
+        Path out = Paths.get(args.length > 0 ? args[0] : "src/Lexer/" + CLASS_NAME + ".java");
+        Files.write(out, generate(DFAStore.getScanner()).getBytes(StandardCharsets.UTF_8));
+        System.out.println("Wrote " + out);
+    }
+
+    static String generate(CompiledDFA scanner) {
+        if (scanner.acceptRule[scanner.startState] != CompiledDFA.NO_RULE) {
+            throw new RuntimeException("The scanner DFA must not accept the empty string");
+        }
+        StringBuilder out = new StringBuilder();
+        out.append("package Lexer;\n\n");
+        out.append("import java.util.ArrayList;\n");
+        out.append("import java.util.List;\n\n");
+        out.append("// Generated by ScannerGenerator from DFAStore.TOKEN_SPECS; do not edit.\n");
+        out.append("// Same tokens as LexicalAnalyzer, with the scanner DFA direct-coded: one\n");
+        out.append("// case per state and one range test per transition, no table lookups.\n");
+        out.append("// Errors, error recovery and metrics work as in LexicalAnalyzer.\n");
+        out.append("public class ").append(CLASS_NAME).append(" {\n");
+        out.append("    // DFATables.specHash() of the specs this was generated from\n");
+        out.append("    static final long SPEC_HASH = 0x").append(Long.toHexString(DFATables.specHash())).append("L;\n\n");
+        out.append("    private static final int WHITESPACE_RULE = ").append(DFAStore.WHITESPACE_RULE).append(";\n");
+        out.append("    private static final int IDENTIFIER_RULE = ").append(DFAStore.IDENTIFIER_RULE).append(";\n");
+        out.append("    private static final int WHOLE_NUMBER_RULE = ").append(DFAStore.WHOLE_NUMBER_RULE).append(";\n");
+        out.append("    private static final int DECIMAL_RULE = ").append(DFAStore.DECIMAL_RULE).append(";\n");
+        out.append("    private static final int ERROR_RULE = ").append(DFAStore.ERROR_RULE).append(";\n\n");
+        out.append("    private static final TokenType[] RULE_TYPES = {\n");
+        for (int rule = 0; rule < DFAStore.TOKEN_SPECS.length; rule++) {
+            out.append("        TokenType.").append(DFAStore.ruleType(rule).name()).append(",\n");
+        }
+        out.append("    };\n\n");
+
+        out.append(
+                "    private final CharSequence input;\n" +
+                "    private int position = 0;\n" +
+                "    private int lineNumber = 1;\n" +
+                "    private final SymbolTable symbolTable = new SymbolTable();\n" +
+                "    private boolean errorRecovery = false;\n" +
+                "    private final List<Diagnostic> diagnostics = new ArrayList<>();\n" +
+                "    private long dfaSteps = 0;\n" +
+                "\n" +
+                "    public " + CLASS_NAME + "(CharSequence input) {\n" +
+                "        this.input = input;\n" +
+                "    }\n" +
+                "\n" +
+                "    public List<Token> tokenize() {\n" +
+                "        return tokenizeToBuffer().asList();\n" +
+                "    }\n" +
+                "\n" +
+                "    public TokenBuffer tokenizeToBuffer() {\n" +
+                "        return measure(new TokenBuffer(input));\n" +
+                "    }\n" +
+                "\n" +
+                "    public SymbolTable getSymbolTable() {\n" +
+                "        return symbolTable;\n" +
+                "    }\n" +
+                "\n" +
+                "    public void setErrorRecovery(boolean enabled) {\n" +
+                "        errorRecovery = enabled;\n" +
+                "    }\n" +
+                "\n" +
+                "    public List<Diagnostic> getDiagnostics() {\n" +
+                "        return diagnostics;\n" +
+                "    }\n" +
+                "\n" +
+                "    private TokenBuffer measure(TokenBuffer tokens) {\n" +
+                "        LexerMetrics metrics = LexerMetrics.current();\n" +
+                "        if (!metrics.enabled() && !LexEvent.TYPE.isEnabled()) {\n" +
+                "            return scan(tokens);\n" +
+                "        }\n" +
+                "        LexEvent event = new LexEvent();\n" +
+                "        int from = position;\n" +
+                "        int firstToken = tokens.size();\n" +
+                "        long stepsBefore = dfaSteps;\n" +
+                "        long allocatedBefore = LexStats.allocatedBytes();\n" +
+                "        event.begin();\n" +
+                "        long start = System.nanoTime();\n" +
+                "        scan(tokens);\n" +
+                "        long nanos = System.nanoTime() - start;\n" +
+                "        event.end();\n" +
+                "        long allocatedAfter = LexStats.allocatedBytes();\n" +
+                "        if (event.shouldCommit()) {\n" +
+                "            event.chars = position - from;\n" +
+                "            event.tokens = tokens.size() - firstToken;\n" +
+                "            event.transitions = dfaSteps - stepsBefore;\n" +
+                "            event.commit();\n" +
+                "        }\n" +
+                "        if (metrics.enabled()) {\n" +
+                "            long allocated = allocatedBefore < 0 || allocatedAfter < 0 ? -1 : allocatedAfter - allocatedBefore;\n" +
+                "            metrics.lexed(new LexStats(position - from, tokens, firstToken, nanos, dfaSteps - stepsBefore, allocated));\n" +
+                "        }\n" +
+                "        return tokens;\n" +
+                "    }\n" +
+                "\n" +
+                "    private TokenBuffer scan(TokenBuffer tokens) {\n" +
+                "        CharSequence input = this.input;\n" +
+                "        int length = input.length();\n" +
+                "        long steps = 0;\n" +
+                "        while (position < length) {\n" +
+                "            int state = " + scanner.startState + ";\n" +
+                "            int rule = -1;\n" +
+                "            int end = position;\n" +
+                "            int newlines = 0;\n" +
+                "            int newlinesInMatch = 0;\n" +
+                "            int i = position;\n" +
+                "            scan:\n" +
+                "            for (; i < length; i++) {\n" +
+                "                char c = input.charAt(i);\n" +
+                "                if (c == '\\n') newlines++;\n" +
+                "                switch (state) {\n");
+        for (int state = 0; state < scanner.stateCount; state++) {
+            appendState(out, scanner, state);
+        }
+        out.append(
+                "                    default:\n" +
+                "                        break scan;\n" +
+                "                }\n" +
+                "            }\n" +
+                "            steps += i < length ? i - position + 1 : i - position;\n" +
+                "\n" +
+                "            if (rule == -1) {\n" +
+                "                // The invalid run goes up to the next char that can start a token\n" +
+                "                end = position + 1;\n" +
+                "                while (end < length && !startsToken(input.charAt(end))) {\n" +
+                "                    end++;\n" +
+                "                }\n" +
+                "                error(tokens, end, LexicalAnalyzer.invalidTokenMessage(input.subSequence(position, end).toString(), lineNumber));\n" +
+                "            } else if (rule == ERROR_RULE) {\n" +
+                "                error(tokens, end, LexicalAnalyzer.errorMessage(input.subSequence(position, end).toString(), lineNumber));\n" +
+                "            } else if (rule == IDENTIFIER_RULE) {\n" +
+                "                TokenType reserved = DFAStore.RESERVED.classify(input, position, end);\n" +
+                "                if (reserved != null) {\n" +
+                "                    tokens.add(reserved, position, end, lineNumber);\n" +
+                "                } else {\n" +
+                "                    tokens.add(TokenType.IDENTIFIER, position, end, lineNumber);\n" +
+                "                    symbolTable.addSymbol(input, position, end, \"UNKNOWN\", lineNumber);\n" +
+                "                }\n" +
+                "            } else if (rule == WHOLE_NUMBER_RULE) {\n" +
+                "                try {\n" +
+                "                    tokens.addWhole(position, end, lineNumber, NumberLiterals.wholeValue(input, position, end));\n" +
+                "                } catch (NumberFormatException e) {\n" +
+                "                    error(tokens, end, LexicalAnalyzer.outOfRangeMessage(input.subSequence(position, end).toString(), lineNumber));\n" +
+                "                }\n" +
+                "            } else if (rule == DECIMAL_RULE) {\n" +
+                "                try {\n" +
+                "                    tokens.addDecimal(position, end, lineNumber, NumberLiterals.decimalValue(input, position, end));\n" +
+                "                } catch (NumberFormatException e) {\n" +
+                "                    error(tokens, end, LexicalAnalyzer.outOfRangeMessage(input.subSequence(position, end).toString(), lineNumber));\n" +
+                "                }\n" +
+                "            } else if (rule != WHITESPACE_RULE) {\n" +
+                "                tokens.add(RULE_TYPES[rule], position, end, lineNumber);\n" +
+                "            }\n" +
+                "            lineNumber += newlinesInMatch;\n" +
+                "            position = end;\n" +
+                "        }\n" +
+                "        dfaSteps += steps;\n" +
+                "        return tokens;\n" +
+                "    }\n" +
+                "\n" +
+                "    private void error(TokenBuffer tokens, int end, String message) {\n" +
+                "        if (!errorRecovery) {\n" +
+                "            throw new RuntimeException(message);\n" +
+                "        }\n" +
+                "        tokens.add(TokenType.ERROR, position, end, lineNumber);\n" +
+                "        diagnostics.add(new Diagnostic(lineNumber, position, end, message));\n" +
+                "    }\n" +
+                "\n" +
+                "    private static boolean startsToken(char c) {\n" +
+                "        return ");
+        appendCondition(out, startRanges(scanner));
+        out.append(
+                ";\n" +
+                "    }\n" +
+                "}\n");
+        return out.toString();
+    }
+
+    // One case: an if/else chain with one branch per target state, testing every
+    // character range that leads there. Targets come in order of their lowest
+    // character. States without transitions fall through to the default. Chars
+    // past the byte table are walked too, so the last range may run up to U+FFFF.
+    private static void appendState(StringBuilder out, CompiledDFA scanner, int state) {
+        Map<Integer, List<int[]>> rangesByTarget = new LinkedHashMap<>(); // target -> {from, to}
+        int[] last = null;
+        int lastTarget = CompiledDFA.DEAD;
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            int target = scanner.transitions[state * scanner.classCount + scanner.classOf((char) c)];
+            if (target == CompiledDFA.DEAD) {
+                lastTarget = CompiledDFA.DEAD;
+                continue;
+            }
+            if (target == lastTarget) {
+                last[1] = c;
+            } else {
+                last = new int[] {c, c};
+                rangesByTarget.computeIfAbsent(target, t -> new ArrayList<>()).add(last);
+                lastTarget = target;
+            }
+        }
+        if (rangesByTarget.isEmpty()) {
+            return;
+        }
+
+        String indent = "                        ";
+        out.append("                    case ").append(state).append(":\n");
+        boolean first = true;
+        for (Map.Entry<Integer, List<int[]>> entry : rangesByTarget.entrySet()) {
+            out.append(indent).append(first ? "if (" : "} else if (");
+            first = false;
+            appendCondition(out, entry.getValue());
+            out.append(") {\n");
+            int target = entry.getKey();
+            out.append(indent).append("    state = ").append(target).append(";\n");
+            if (scanner.acceptRule[target] != CompiledDFA.NO_RULE) {
+                out.append(indent).append("    rule = ").append(scanner.acceptRule[target]).append(";\n");
+                out.append(indent).append("    end = i + 1;\n");
+                out.append(indent).append("    newlinesInMatch = newlines;\n");
+            }
+        }
+        out.append(indent).append("} else {\n");
+        out.append(indent).append("    break scan;\n");
+        out.append(indent).append("}\n");
+        out.append(indent).append("break;\n");
+    }
+
+    // The chars the start state has a transition on, as {from, to} ranges
+    private static List<int[]> startRanges(CompiledDFA scanner) {
+        List<int[]> ranges = new ArrayList<>();
+        int[] last = null;
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            if (scanner.transitions[scanner.startState * scanner.classCount + scanner.classOf((char) c)] == CompiledDFA.DEAD) {
+                last = null;
+            } else if (last != null) {
+                last[1] = c;
+            } else {
+                last = new int[] {c, c};
+                ranges.add(last);
+            }
+        }
+        return ranges;
+    }
+
+    // A test that c is in one of the {from, to} ranges
+    private static void appendCondition(StringBuilder out, List<int[]> ranges) {
+        for (int r = 0; r < ranges.size(); r++) {
+            int[] range = ranges.get(r);
+            if (r > 0) {
+                out.append(" || ");
+            }
+            if (range[0] == range[1]) {
+                out.append("c == ").append(charLiteral(range[0]));
+            } else if (ranges.size() == 1) {
+                out.append("c >= ").append(charLiteral(range[0])).append(" && c <= ").append(charLiteral(range[1]));
+            } else {
+                out.append("(c >= ").append(charLiteral(range[0])).append(" && c <= ").append(charLiteral(range[1])).append(")");
+            }
+        }
+    }
+
+    // Printable ASCII as a char literal, anything else as a plain number (a unicode
+    // escape for a line break would be translated before the source is parsed)
+    private static String charLiteral(int c) {
+        if (c == '\'' || c == '\\') {
+            return "'\\" + (char) c + "'";
+        }
+        if (c >= ' ' && c <= '~') {
+            return "'" + (char) c + "'";
+        }
+        return Integer.toString(c);
+    }
+}
@@ -5,15 +5,26 @@ import java.util.*;
 public class State {
     int id;
     boolean isFinal;
-    Map<Character, Set<State>> transitions = new HashMap<>();
+    // Moves on a char, one edge per range of chars
+    List<Edge> edges = new ArrayList<>();
+    // Moves on no input
+    Set<State> epsilon = new HashSet<>();
 
     public State(int id, boolean isFinal) {
         this.id = id;
         this.isFinal = isFinal;
     }
 
+    public void addTransition(char low, char high, State nextState) {
+        edges.add(new Edge(low, high, nextState));
+    }
+
     public void addTransition(char symbol, State nextState) {
-        transitions.computeIfAbsent(symbol, k -> new HashSet<>()).add(nextState);
+        addTransition(symbol, symbol, nextState);
+    }
+
+    public void addEpsilon(State nextState) {
+        epsilon.add(nextState);
     }
 
     @Override
@@ -28,4 +39,4 @@ public class State {
     public int hashCode() {
         return Objects.hash(id);
     }
-}
\ No newline at end of file
+}
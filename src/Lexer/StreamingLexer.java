@@ -0,0 +1,253 @@
+package Lexer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// Pull-based lexer over a Reader. Input goes through a fixed buffer that is
+// compacted and refilled as tokens are consumed, so memory depends on the longest
+// single token rather than on the size of the input. The buffer only grows when
+// one token (for example a long @...@ comment) does not fit in it, and never
+// past maxTokenLength chars: a longer token is an error. Without that limit an
+// unclosed @ would pull the whole rest of the input into memory, since the
+// ERROR rule for it matches up to the end. Errors are reported, and recovered
+// from, as LexicalAnalyzer reports them.
+public class StreamingLexer implements Iterator<Token> {
+    static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    static final int DEFAULT_MAX_TOKEN_LENGTH = 16 * 1024 * 1024;
+
+    private final Reader reader;
+    private final int maxTokenLength;
+    private final CompiledDFA scanner = DFAStore.getScanner();
+    private final SymbolTable symbolTable = new SymbolTable();
+    private char[] buffer;
+    private int position = 0; // start of the next token in the buffer
+    private int limit = 0;    // end of the valid characters in the buffer
+    private long dropped = 0; // characters read before the start of the buffer
+    private boolean eof = false;
+    private int lineNumber = 1;
+    private int tokenLine = 0; // line of the token nextToken() returned last
+    private Token lookahead;
+    private boolean errorRecovery = false;
+    private final List<Diagnostic> diagnostics = new ArrayList<>();
+
+    public StreamingLexer(Reader reader) {
+        this(reader, DEFAULT_BUFFER_SIZE);
+    }
+
+    public StreamingLexer(Reader reader, int bufferSize) {
+        this(reader, bufferSize, Math.max(bufferSize, DEFAULT_MAX_TOKEN_LENGTH));
+    }
+
+    public StreamingLexer(Reader reader, int bufferSize, int maxTokenLength) {
+        if (bufferSize > maxTokenLength) {
+            throw new IllegalArgumentException("Buffer larger than the longest token allowed");
+        }
+        this.reader = reader;
+        this.maxTokenLength = maxTokenLength;
+        this.buffer = new char[bufferSize];
+    }
+
+    public StreamingLexer(ReadableByteChannel channel) {
+        this(Channels.newReader(channel, StandardCharsets.UTF_8), DEFAULT_BUFFER_SIZE);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (lookahead == null) {
+            lookahead = nextToken();
+        }
+        return lookahead != null;
+    }
+
+    @Override
+    public Token next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Token token = lookahead;
+        lookahead = null;
+        return token;
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    // As LexicalAnalyzer.setErrorRecovery: each error becomes an ERROR token and
+    // a Diagnostic, and lexing carries on after it
+    public void setErrorRecovery(boolean enabled) {
+        errorRecovery = enabled;
+    }
+
+    // Errors found so far in error-recovery mode, in input order. Offsets count
+    // the chars read from the Reader.
+    public List<Diagnostic> getDiagnostics() {
+        return diagnostics;
+    }
+
+    // Line the token last returned by nextToken() starts on. Tokens from next()
+    // may be one behind it, since hasNext() reads ahead.
+    public int getTokenLine() {
+        return tokenLine;
+    }
+
+    // Returns the next token, or null once the input is exhausted
+    public Token nextToken() {
+        while (true) {
+            if (position == limit && !fill()) {
+                return null;
+            }
+
+            // Same longest-match walk as LexicalAnalyzer.tokenize(), except that
+            // running off the end of the buffer pulls in more input first
+            int state = scanner.startState;
+            int rule = CompiledDFA.NO_RULE;
+            int end = position;
+            int newlines = 0;
+            int newlinesInMatch = 0;
+            int i = position;
+            while (true) {
+                if (i == limit) {
+                    int before = position;
+                    boolean more = fill();
+                    int shift = before - position;
+                    i -= shift;
+                    end -= shift;
+                    if (!more) {
+                        break;
+                    }
+                }
+                char c = buffer[i];
+                state = scanner.transitions[state * scanner.classCount + scanner.classOf(c)];
+                if (state == CompiledDFA.DEAD) {
+                    break;
+                }
+                i++;
+                if (c == '\n') newlines++;
+                if (scanner.acceptRule[state] != CompiledDFA.NO_RULE) {
+                    rule = scanner.acceptRule[state];
+                    end = i;
+                    newlinesInMatch = newlines;
+                }
+            }
+
+            Token token = null;
+            if (rule == CompiledDFA.NO_RULE) {
+                end = invalidRunEnd();
+                String run = new String(buffer, position, end - position);
+                token = error(run, end, LexicalAnalyzer.invalidTokenMessage(run, lineNumber));
+            } else if (rule == DFAStore.ERROR_RULE) {
+                String lexeme = new String(buffer, position, end - position);
+                token = error(lexeme, end, LexicalAnalyzer.errorMessage(lexeme, lineNumber));
+            } else if (rule != DFAStore.WHITESPACE_RULE) {
+                String lexeme = new String(buffer, position, end - position);
+                TokenType type = DFAStore.ruleType(rule);
+                if (rule == DFAStore.IDENTIFIER_RULE) {
+                    TokenType reserved = DFAStore.RESERVED.classify(lexeme);
+                    if (reserved != null) {
+                        type = reserved;
+                    } else {
+                        symbolTable.addSymbol(lexeme, "UNKNOWN", lineNumber);
+                    }
+                }
+                if ((rule == DFAStore.WHOLE_NUMBER_RULE || rule == DFAStore.DECIMAL_RULE) && !inRange(rule, lexeme)) {
+                    token = error(lexeme, end, LexicalAnalyzer.outOfRangeMessage(lexeme, lineNumber));
+                } else {
+                    token = new Token(type.getLabel(), lexeme);
+                }
+                tokenLine = lineNumber;
+            }
+            lineNumber += newlinesInMatch;
+            position = end;
+            if (token != null) {
+                return token;
+            }
+        }
+    }
+
+    // End of the run of chars that cannot start a token beginning at position,
+    // reading on as far as it goes. It is one invalid token, as in LexicalAnalyzer.
+    private int invalidRunEnd() {
+        int end = position + 1;
+        while (true) {
+            if (end == limit) {
+                int before = position;
+                boolean more = fill();
+                end -= before - position;
+                if (!more) {
+                    return end;
+                }
+            }
+            if (scanner.startsToken(buffer[end])) {
+                return end;
+            }
+            end++;
+        }
+    }
+
+    // Throws, or in error-recovery mode returns buffer[position, end) as an ERROR token
+    private Token error(String lexeme, int end, String message) {
+        if (!errorRecovery) {
+            throw new RuntimeException(message);
+        }
+        diagnostics.add(new Diagnostic(lineNumber, (int) (dropped + position), (int) (dropped + end), message));
+        tokenLine = lineNumber;
+        return new Token(TokenType.ERROR.getLabel(), lexeme);
+    }
+
+    // Moves the pending characters to the front of the buffer and reads more.
+    // Returns false when nothing more could be read.
+    private boolean fill() {
+        if (eof) {
+            return false;
+        }
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            dropped += position;
+            position = 0;
+        } else if (limit == buffer.length) {
+            // A single token fills the whole buffer
+            if (buffer.length >= maxTokenLength) {
+                throw new RuntimeException("Token at line " + lineNumber + " is longer than "
+                        + maxTokenLength + " chars");
+            }
+            buffer = Arrays.copyOf(buffer, (int) Math.min(2L * buffer.length, maxTokenLength));
+        }
+        try {
+            int read = reader.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                eof = true;
+                return false;
+            }
+            limit += read;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Tokens here keep only their text, but a number out of range is still an
+    // error, as it is for LexicalAnalyzer
+    private static boolean inRange(int rule, String lexeme) {
+        try {
+            if (rule == DFAStore.WHOLE_NUMBER_RULE) {
+                NumberLiterals.wholeValue(lexeme, 0, lexeme.length());
+            } else {
+                NumberLiterals.decimalValue(lexeme, 0, lexeme.length());
+            }
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
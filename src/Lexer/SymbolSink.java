@@ -0,0 +1,16 @@
+package Lexer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// Where a symbol table goes once lexing is done; see TokenSink
+public interface SymbolSink extends Closeable {
+    SymbolSink NULL = table -> {
+    };
+
+    void symbols(SymbolTable table) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -1,10 +1,17 @@
 package Lexer;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
 public class SymbolTable {
     private final Map<String, Symbol> symbols = new HashMap<>();
+    // Open-addressing index over the same symbols, so the lexer can look a name up
+    // by its range in the source without building a String first
+    private Symbol[] slots = new Symbol[64];
+    private int[] slotHashes = new int[64];
 
     // Add a new symbol to the table
     public void addSymbol(String name, String type, int lineNumber) {
@@ -12,7 +19,67 @@ public class SymbolTable {
             //throw new RuntimeException("Duplicate identifier at line " + lineNumber + ": " + name);
             return;
         }
-        symbols.put(name, new Symbol(name, type, lineNumber));
+        insert(new Symbol(name, type, lineNumber));
+    }
+
+    // Same as addSymbol(String, ...) for the name source[start, end); only allocates
+    // when the name is new
+    public void addSymbol(CharSequence source, int start, int end, String type, int lineNumber) {
+        int hash = hash(source, start, end);
+        int mask = slots.length - 1;
+        for (int i = hash & mask; slots[i] != null; i = (i + 1) & mask) {
+            if (slotHashes[i] == hash && sameName(slots[i].getName(), source, start, end)) {
+                return;
+            }
+        }
+        insert(new Symbol(source.subSequence(start, end).toString(), type, lineNumber));
+    }
+
+    private void insert(Symbol symbol) {
+        symbols.put(symbol.getName(), symbol);
+        if (symbols.size() * 2 > slots.length) {
+            Symbol[] old = slots;
+            slots = new Symbol[old.length * 2];
+            slotHashes = new int[old.length * 2];
+            for (Symbol s : old) {
+                if (s != null) {
+                    index(s);
+                }
+            }
+        }
+        index(symbol);
+    }
+
+    private void index(Symbol symbol) {
+        String name = symbol.getName();
+        int hash = hash(name, 0, name.length());
+        int mask = slots.length - 1;
+        int i = hash & mask;
+        while (slots[i] != null) {
+            i = (i + 1) & mask;
+        }
+        slots[i] = symbol;
+        slotHashes[i] = hash;
+    }
+
+    private static int hash(CharSequence s, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + s.charAt(i);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean sameName(String name, CharSequence s, int start, int end) {
+        if (name.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != s.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     // Look up a symbol by name
@@ -29,15 +96,18 @@ public class SymbolTable {
         symbol.setValue(value);
     }
 
-    // Print the symbol table
+    public Collection<Symbol> getSymbols() {
+        return symbols.values();
+    }
+
+    // Print the symbol table to stdout; TextSink writes the same listing anywhere
     public void printSymbolTable() {
-        System.out.println("Symbol Table:");
-        System.out.println("Name\tValue\tType\tLine Number");
-        for (Symbol symbol : symbols.values()) {
-            System.out.println(symbol.getName() + "\t" +
-                    (symbol.getValue() != null ? symbol.getValue() : "null") + "\t" +
-                    symbol.getType() + "\t" +
-                    symbol.getLineNumber());
+        TextSink sink = new TextSink(System.out);
+        try {
+            sink.symbols(this);
+            sink.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 }
\ No newline at end of file
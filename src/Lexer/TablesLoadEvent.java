@@ -0,0 +1,15 @@
+package Lexer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// JFR event for the one-time DFAStore table initialization
+@Name("Lexer.LoadTables")
+@Label("Load Tables")
+@Category("Lexer")
+class TablesLoadEvent extends Event {
+    @Label("Compiled From Regexes")
+    boolean compiled;
+}
@@ -0,0 +1,51 @@
+package Lexer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// The human-readable output: one Token.toString() line per token, and the
+// symbol table as a tab-separated listing under a header
+public class TextSink extends BufferedSink {
+    public TextSink(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void token(TokenType type, CharSequence source, int start, int end, int line) throws IOException {
+        writeUtf8("Token{type='");
+        writeUtf8(type.getLabel());
+        writeUtf8("', value='");
+        writeSource(source, start, end);
+        writeUtf8("'}\n");
+    }
+
+    @Override
+    public void symbols(SymbolTable table) throws IOException {
+        writeUtf8("Symbol Table:\nName\tValue\tType\tLine Number\n");
+        for (Symbol symbol : table.getSymbols()) {
+            writeUtf8(symbol.getName());
+            writeByte('\t');
+            writeUtf8(symbol.getValue() != null ? symbol.getValue() : "null");
+            writeByte('\t');
+            writeUtf8(symbol.getType());
+            writeByte('\t');
+            writeDecimal(symbol.getLineNumber());
+            writeByte('\n');
+        }
+    }
+
+    // A project's symbols, by name, each with the file and line it is first defined at
+    public void globalSymbols(GlobalSymbolTable table) throws IOException {
+        writeUtf8("Global Symbol Table:\nName\tType\tFile\tLine Number\n");
+        for (GlobalSymbolTable.GlobalSymbol symbol : table.getSymbols()) {
+            writeUtf8(symbol.getName());
+            writeByte('\t');
+            writeUtf8(symbol.getType());
+            writeByte('\t');
+            writeUtf8(symbol.getFile().toString());
+            writeByte('\t');
+            writeDecimal(symbol.getLineNumber());
+            writeByte('\n');
+        }
+    }
+}
@@ -3,26 +3,15 @@ package Lexer;
 import java.util.*;
 
 public class ThompsonConstruction {
-    private static int stateCounter = 1;
-    private static String[][] tokenRegexes = {
-        {"BOOLEAN", "false|true"},
-        {"IDENTIFIER", "[a-z]+"},
-        {"WHOLE_NUMBER", "\\-?[0-9]+"},
-        {"DECIMAL", "\\-?[0-9]+(\\.[0-9]+)*"},
-        {"KEYWORD", "int|float|global|char|bool"},
-        {"CHAR", "'[a-z0-9]'"},
-        {"OPERATOR", "[%+\\-@=*^]"},
-        {"SINGLE_LINE_COMMENT", "#[a-z]*"},
-        {"MULTI_LINE_COMMENT", "@[a-zA-Z0-9]*@"},
-        {"String", "\"[^\"]*\""},
-        {"SYMBOL", "[;()]"},
-        {"OPEN_BRACKET", "[{]"},
-        {"CLOSE_BRACKET", "[}]"},
-        {"INPUT/OUTPUT", "input|output"},
-    };
+    // Each build numbers its own states from 1, so NFAs can be built on many
+    // threads at once. Ids are only unique within one NFA.
+    private int stateCounter = 1;
 
     public static NFA buildNFAFromRegex(RegexNode node) {
-        
+        return new ThompsonConstruction().build(node);
+    }
+
+    private NFA build(RegexNode node) {
         if (node instanceof LiteralNode) {
             return buildLiteralNFA(((LiteralNode) node).literal);
         } else if (node instanceof CharClassNode) {
@@ -38,73 +27,73 @@ public class ThompsonConstruction {
         } else {
             throw new RuntimeException("Unknown RegexNode type");
         }
-        
     }
 
-    private static NFA buildLiteralNFA(char literal) {
+    private NFA buildLiteralNFA(char literal) {
         State start = new State(stateCounter++, false);
         State end = new State(stateCounter++, true);
         start.addTransition(literal, end);
         return new NFA(start, end);
     }
 
-    private static NFA buildCharClassNFA(CharClassNode node) {
-        List<RegexNode> literals = new ArrayList<>();
-        for (char c : node.characters) {
-            literals.add(new LiteralNode(c));
+    // Two states whatever the size of the class: one edge per range
+    private NFA buildCharClassNFA(CharClassNode node) {
+        State start = new State(stateCounter++, false);
+        State end = new State(stateCounter++, true);
+        for (int i = 0; i < node.ranges.length; i += 2) {
+            start.addTransition(node.ranges[i], node.ranges[i + 1], end);
         }
-        UnionNode unionNode = new UnionNode(literals);
-        return buildUnionNFA(unionNode);
+        return new NFA(start, end);
     }
 
-    private static NFA buildConcatNFA(ConcatNode node) {
+    private NFA buildConcatNFA(ConcatNode node) {
         List<RegexNode> nodes = node.nodes;
         if (nodes.isEmpty()) {
             State start = new State(stateCounter++, true);
             return new NFA(start, start);
         }
-        NFA result = buildNFAFromRegex(nodes.get(0));
+        NFA result = build(nodes.get(0));
         for (int i = 1; i < nodes.size(); i++) {
-            NFA next = buildNFAFromRegex(nodes.get(i));
+            NFA next = build(nodes.get(i));
             result.finalState.isFinal = false;
-            result.finalState.addTransition('\0', next.startState);
+            result.finalState.addEpsilon(next.startState);
             result = new NFA(result.startState, next.finalState);
         }
         return result;
     }
 
-    private static NFA buildUnionNFA(UnionNode node) {
+    private NFA buildUnionNFA(UnionNode node) {
         State start = new State(stateCounter++, false);
         State end = new State(stateCounter++, true);
         for (RegexNode alternative : node.alternatives) {
-            NFA altNFA = buildNFAFromRegex(alternative);
-            start.addTransition('\0', altNFA.startState);
+            NFA altNFA = build(alternative);
+            start.addEpsilon(altNFA.startState);
             altNFA.finalState.isFinal = false;
-            altNFA.finalState.addTransition('\0', end);
+            altNFA.finalState.addEpsilon(end);
         }
         return new NFA(start, end);
     }
 
-    private static NFA buildStarNFA(RegexNode node) {
-        NFA inner = buildNFAFromRegex(node);
+    private NFA buildStarNFA(RegexNode node) {
+        NFA inner = build(node);
         State start = new State(stateCounter++, false);
         State end = new State(stateCounter++, true);
-        start.addTransition('\0', inner.startState);
-        start.addTransition('\0', end);
+        start.addEpsilon(inner.startState);
+        start.addEpsilon(end);
         inner.finalState.isFinal = false;
-        inner.finalState.addTransition('\0', inner.startState);
-        inner.finalState.addTransition('\0', end);
+        inner.finalState.addEpsilon(inner.startState);
+        inner.finalState.addEpsilon(end);
         return new NFA(start, end);
     }
 
-    private static NFA buildPlusNFA(RegexNode node) {
-        NFA inner = buildNFAFromRegex(node);
+    private NFA buildPlusNFA(RegexNode node) {
+        NFA inner = build(node);
         State start = new State(stateCounter++, false);
         State end = new State(stateCounter++, true);
-        start.addTransition('\0', inner.startState);
+        start.addEpsilon(inner.startState);
         inner.finalState.isFinal = false;
-        inner.finalState.addTransition('\0', inner.startState);
-        inner.finalState.addTransition('\0', end);
+        inner.finalState.addEpsilon(inner.startState);
+        inner.finalState.addEpsilon(end);
         return new NFA(start, end);
     }
 
@@ -123,12 +112,13 @@ public class ThompsonConstruction {
                 continue;
             visited.add(current.id);
 
-            for (Map.Entry<Character, Set<State>> entry : current.transitions.entrySet()) {
-                char symbol = entry.getKey();
-                for (State next : entry.getValue()) {
-                    System.out.println(current.id + "\t" + (symbol == '\0' ? "ε" : symbol) + "\t" + next.id);
-                    queue.add(next);
-                }
+            for (State next : current.epsilon) {
+                System.out.println(current.id + "\tε\t" + next.id);
+                queue.add(next);
+            }
+            for (Edge edge : current.edges) {
+                System.out.println(current.id + "\t" + edge.label() + "\t" + edge.target.id);
+                queue.add(edge.target);
             }
         }
     }
@@ -142,10 +132,9 @@ public class ThompsonConstruction {
     public static void showTransitionTable() {
         // 2D array where each entry contains [tokenType, regex]
       
-        for (int i = 0; i < tokenRegexes.length; i++) {
-            stateCounter = 1; // Reset state counter for each regex
-            String tokenType = tokenRegexes[i][0];
-            String regex = tokenRegexes[i][1];
+        for (int i = 0; i < DFAStore.TOKEN_SPECS.length; i++) {
+            String tokenType = DFAStore.TOKEN_SPECS[i][0];
+            String regex = DFAStore.TOKEN_SPECS[i][1];
     
             System.out.println("NFA for Token Type: " + tokenType + ", Regex: " + regex);
             NFA nfa = buildNFAFromRegex(regex);
@@ -161,7 +150,6 @@ public class ThompsonConstruction {
     }
     
     public static void DFAfromNFA(NFA nfa) {
-         DFAConverter.convertNFAtoDFA(nfa);
         DFA dfa = DFAConverter.convertNFAtoDFA(nfa);
         DFAConverter.printDFATransitionTable(dfa);
 
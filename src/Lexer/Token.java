@@ -3,10 +3,25 @@ package Lexer;
 public class Token {
     private final String type;
     private final String value;
+    // Tokens from LexicalAnalyzer point into the source instead of copying the lexeme
+    private final CharSequence source;
+    private final int start;
+    private final int end;
 
     public Token(String type, String value) {
         this.type = type;
         this.value = value;
+        this.source = value;
+        this.start = 0;
+        this.end = value.length();
+    }
+
+    public Token(String type, CharSequence source, int start, int end) {
+        this.type = type;
+        this.value = null;
+        this.source = source;
+        this.start = start;
+        this.end = end;
     }
 
     public String getType() {
@@ -14,14 +29,23 @@ public class Token {
     }
 
     public String getValue() {
-        return value;
+        return value != null ? value : source.subSequence(start, end).toString();
+    }
+
+    // Offset of the lexeme in the source (0 for tokens built from a plain value)
+    public int getStart() {
+        return start;
+    }
+
+    public int getLength() {
+        return end - start;
     }
 
     @Override
     public String toString() {
         return "Token{" +
                 "type='" + type + '\'' +
-                ", value='" + value + '\'' +
+                ", value='" + getValue() + '\'' +
                 '}';
     }
-}
\ No newline at end of file
+}
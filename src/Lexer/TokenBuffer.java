@@ -0,0 +1,240 @@
+package Lexer;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+// Tokens stored as parallel primitive arrays: type id, start offset, length
+// and line of each token. The decoded values of numbers sit in a sparse side
+// array that only number tokens take room in. Token objects are only created
+// when asked for.
+public class TokenBuffer {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private CharSequence source;
+    private byte[] types;
+    private int[] starts;
+    private int[] lengths;
+    private int[] lines;
+    private int size = 0;
+    // Index of each number token in increasing order, and its value: for a
+    // WHOLE_NUMBER the value, for a DECIMAL the bits of the double
+    private int[] numbered = new int[16];
+    private long[] values = new long[16];
+    private int numbers = 0;
+
+    public TokenBuffer(CharSequence source) {
+        this(source, INITIAL_CAPACITY);
+    }
+
+    public TokenBuffer(CharSequence source, int capacity) {
+        this.source = source;
+        int initial = Math.max(capacity, 16);
+        types = new byte[initial];
+        starts = new int[initial];
+        lengths = new int[initial];
+        lines = new int[initial];
+    }
+
+    public void add(TokenType type, int start, int end, int line) {
+        if (size == types.length) {
+            grow(size + 1);
+        }
+        types[size] = type.id();
+        starts[size] = start;
+        lengths[size] = end - start;
+        lines[size] = line;
+        size++;
+    }
+
+    public void addWhole(int start, int end, int line, long value) {
+        add(TokenType.WHOLE_NUMBER, start, end, line);
+        addValue(value);
+    }
+
+    public void addDecimal(int start, int end, int line, double value) {
+        add(TokenType.DECIMAL, start, end, line);
+        addValue(Double.doubleToRawLongBits(value));
+    }
+
+    private void addValue(long value) {
+        if (numbers == numbered.length) {
+            growValues(numbers + 1);
+        }
+        numbered[numbers] = size - 1;
+        values[numbers] = value;
+        numbers++;
+    }
+
+    // Empties the buffer for reuse over a new source, keeping its arrays
+    public void reset(CharSequence source) {
+        this.source = source;
+        this.size = 0;
+        this.numbers = 0;
+    }
+
+    // Appends every token of another buffer over the same source
+    public void addAll(TokenBuffer other) {
+        if (size + other.size > types.length) {
+            grow(size + other.size);
+        }
+        System.arraycopy(other.types, 0, types, size, other.size);
+        System.arraycopy(other.starts, 0, starts, size, other.size);
+        System.arraycopy(other.lengths, 0, lengths, size, other.size);
+        System.arraycopy(other.lines, 0, lines, size, other.size);
+        if (numbers + other.numbers > numbered.length) {
+            growValues(numbers + other.numbers);
+        }
+        for (int i = 0; i < other.numbers; i++) {
+            numbered[numbers + i] = size + other.numbered[i];
+        }
+        System.arraycopy(other.values, 0, values, numbers, other.numbers);
+        numbers += other.numbers;
+        size += other.size;
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = Math.max(minCapacity, types.length + (types.length >> 1));
+        types = Arrays.copyOf(types, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        lines = Arrays.copyOf(lines, capacity);
+    }
+
+    private void growValues(int minCapacity) {
+        int capacity = Math.max(minCapacity, numbered.length + (numbered.length >> 1));
+        numbered = Arrays.copyOf(numbered, capacity);
+        values = Arrays.copyOf(values, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public CharSequence getSource() {
+        return source;
+    }
+
+    public TokenType type(int index) {
+        return TokenType.fromId(types[index]);
+    }
+
+    public int start(int index) {
+        return starts[index];
+    }
+
+    public int length(int index) {
+        return lengths[index];
+    }
+
+    public int line(int index) {
+        return lines[index];
+    }
+
+    // Only meaningful for a WHOLE_NUMBER token
+    public long wholeValue(int index) {
+        return values[valueOf(index)];
+    }
+
+    // Only meaningful for a DECIMAL token
+    public double decimalValue(int index) {
+        return Double.longBitsToDouble(values[valueOf(index)]);
+    }
+
+    // Slot of a number token's value, found by binary search
+    private int valueOf(int index) {
+        int slot = Arrays.binarySearch(numbered, 0, numbers, index);
+        if (slot < 0) {
+            throw new RuntimeException("Token " + index + " is not a number");
+        }
+        return slot;
+    }
+
+    public CharSequence text(int index) {
+        return source.subSequence(starts[index], starts[index] + lengths[index]);
+    }
+
+    public Token token(int index) {
+        return new Token(type(index).getLabel(), source, starts[index], starts[index] + lengths[index]);
+    }
+
+    // List view that builds each Token when it is read
+    public List<Token> asList() {
+        return new AbstractList<Token>() {
+            @Override
+            public Token get(int index) {
+                if (index < 0 || index >= size) {
+                    throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+                }
+                return token(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    // Walks the buffer without creating Token objects. It keeps its place in
+    // the number values as well, so reading them needs no search.
+    public class Cursor {
+        private int index = -1;
+        // Number tokens before index
+        private int number = 0;
+
+        public boolean next() {
+            if (isNumber()) {
+                number++;
+            }
+            return ++index < size;
+        }
+
+        private boolean isNumber() {
+            return number < numbers && numbered[number] == index;
+        }
+
+        private int value() {
+            if (!isNumber()) {
+                throw new RuntimeException("Token " + index + " is not a number");
+            }
+            return number;
+        }
+
+        public int index() {
+            return index;
+        }
+
+        public TokenType type() {
+            return TokenBuffer.this.type(index);
+        }
+
+        public int start() {
+            return starts[index];
+        }
+
+        public int length() {
+            return lengths[index];
+        }
+
+        public int line() {
+            return lines[index];
+        }
+
+        public long wholeValue() {
+            return values[value()];
+        }
+
+        public double decimalValue() {
+            return Double.longBitsToDouble(values[value()]);
+        }
+
+        public CharSequence text() {
+            return TokenBuffer.this.text(index);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package Lexer;
+
+// A recognizer for one token rule, whichever engine runs it: a precompiled
+// table (CompiledDFA), a bit-parallel simulation of the Glushkov automaton
+// (BitParallelMatcher) or an automaton determinized on the fly (LazyDFA).
+public interface TokenMatcher {
+    boolean matches(CharSequence s, int from, int to);
+
+    default boolean matches(CharSequence s) {
+        return matches(s, 0, s.length());
+    }
+
+    // End of the longest match that starts at from and stays before to, or -1
+    int longestMatch(CharSequence s, int from, int to);
+}
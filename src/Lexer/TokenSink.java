@@ -0,0 +1,27 @@
+package Lexer;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// Where lexed tokens go once lexing is done: a file or stdout in some format
+// (TextSink, JsonLinesSink, BinarySink), or nowhere (NULL). The lexers never
+// write anything themselves; callers hand their tokens to a sink.
+public interface TokenSink extends Closeable {
+    TokenSink NULL = (type, source, start, end, line) -> {
+    };
+
+    // One token: its type, its lexeme source[start, end) and the line it starts on
+    void token(TokenType type, CharSequence source, int start, int end, int line) throws IOException;
+
+    default void tokens(TokenBuffer tokens) throws IOException {
+        CharSequence source = tokens.getSource();
+        for (int i = 0; i < tokens.size(); i++) {
+            int start = tokens.start(i);
+            token(tokens.type(i), source, start, start + tokens.length(i), tokens.line(i));
+        }
+    }
+
+    @Override
+    default void close() throws IOException {
+    }
+}
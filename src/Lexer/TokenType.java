@@ -0,0 +1,50 @@
+package Lexer;
+
+public enum TokenType {
+    WHITESPACE("WHITESPACE"),
+    BOOLEAN("BOOLEAN"),
+    KEYWORD("KEYWORD"),
+    FUNCTION("FUNCTION"),
+    IDENTIFIER("IDENTIFIER"),
+    WHOLE_NUMBER("WHOLE_NUMBER"),
+    DECIMAL("DECIMAL"),
+    CHAR_LITERAL("CHAR_LITERAL"),
+    OPERATOR("OPERATOR"),
+    SINGLE_COMMENT("Single_COMMENT"),
+    MULTI_COMMENT("MultiCOMMENT"),
+    STRING_LITERAL("STRING_LITERAL"),
+    SYMBOL("SYMBOL"),
+    OPEN_BRACKET("OPEN_BRACKET"),
+    CLOSE_BRACKET("CLOSE_BRACKET"),
+    ERROR("ERROR");
+
+    private static final TokenType[] VALUES = values();
+
+    // Name printed in Token output and used for the rule in DFAStore
+    private final String label;
+
+    TokenType(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public byte id() {
+        return (byte) ordinal();
+    }
+
+    public static TokenType fromId(int id) {
+        return VALUES[id];
+    }
+
+    public static TokenType fromLabel(String label) {
+        for (TokenType type : VALUES) {
+            if (type.label.equals(label)) {
+                return type;
+            }
+        }
+        throw new RuntimeException("Unknown token type: " + label);
+    }
+}
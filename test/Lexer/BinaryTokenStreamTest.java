@@ -0,0 +1,166 @@
+package Lexer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// What BinarySink writes, BinaryTokenReader must read back unchanged: every
+// token's type, text, offsets and line, the symbols, and the tokens of a line
+// through seekLine
+class BinaryTokenStreamTest {
+
+    @Test
+    void roundTripsLexedPrograms() throws IOException {
+        Random random = new Random(16);
+        for (int round = 0; round < 100; round++) {
+            LexicalAnalyzer lexer = new LexicalAnalyzer(RandomPrograms.program(random, random.nextInt(1000)));
+            TokenBuffer tokens = lexer.tokenizeToBuffer();
+            BinaryTokenReader reader = write(tokens, lexer.getSymbolTable());
+            assertEquals(describe(tokens), describe(reader.cursor(), tokens.size()));
+            assertEquals(RandomPrograms.describe(lexer.getSymbolTable()), RandomPrograms.describe(reader.symbols()));
+        }
+    }
+
+    @Test
+    void roundTripsMappedFiles(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("program.cmx");
+        Files.write(file, RandomPrograms.program(new Random(17), 20000).getBytes(StandardCharsets.UTF_8));
+        LexicalAnalyzer lexer = new LexicalAnalyzer(MappedSource.map(file));
+        TokenBuffer tokens = lexer.tokenizeToBuffer();
+        Path stream = dir.resolve("program.tokens");
+        try (BinarySink sink = new BinarySink(Files.newOutputStream(stream))) {
+            sink.tokens(tokens);
+            sink.symbols(lexer.getSymbolTable());
+        }
+        BinaryTokenReader reader = BinaryTokenReader.map(stream);
+        assertEquals(describe(tokens), describe(reader.cursor(), tokens.size()));
+    }
+
+    @Test
+    void seekLineFindsTheFirstTokenOfALine() throws IOException {
+        TokenBuffer tokens = new LexicalAnalyzer(RandomPrograms.program(new Random(18), 5000)).tokenizeToBuffer();
+        BinaryTokenReader reader = write(tokens, new SymbolTable());
+        int lastLine = tokens.line(tokens.size() - 1);
+        for (int line = 0; line <= lastLine + 1; line++) {
+            int first = 0;
+            while (first < tokens.size() && tokens.line(first) < line) {
+                first++;
+            }
+            BinaryTokenReader.Cursor cursor = reader.seekLine(line);
+            if (first == tokens.size()) {
+                assertFalse(cursor.next(), "line " + line);
+            } else {
+                assertTrue(cursor.next(), "line " + line);
+                assertEquals(first, cursor.index(), "line " + line);
+                assertEquals(tokens.line(first), cursor.line(), "line " + line);
+            }
+        }
+    }
+
+    @Test
+    void keepsOnlyIdentifierNamesInTheStringTable() throws IOException {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            source.append("v").append((char) ('a' + i % 7)).append(" = ").append(i).append(" \"s").append(i).append("\";\n");
+        }
+        TokenBuffer tokens = new LexicalAnalyzer(source.toString()).tokenizeToBuffer();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BinarySink sink = new BinarySink(out)) {
+            sink.tokens(tokens);
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(out.toByteArray());
+        assertEquals(7, bytes.getInt(bytes.limit() - BinarySink.FOOTER_SIZE + 4));
+        assertEquals(describe(tokens), describe(new BinaryTokenReader(bytes).cursor(), tokens.size()));
+    }
+
+    @Test
+    void writesNonAsciiLexemesInTheirRecords() throws IOException {
+        String text = "x = 'a' # ça \uD83D\uDE00\n\"héllo \uD83D\" @ wörld\n\u0800 @ y";
+        TokenBuffer tokens = new LexicalAnalyzer(text).tokenizeToBuffer();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BinarySink sink = new BinarySink(out)) {
+            sink.tokens(tokens);
+        }
+        BinaryTokenReader.Cursor cursor = new BinaryTokenReader(ByteBuffer.wrap(out.toByteArray())).cursor();
+        for (int i = 0; i < tokens.size(); i++) {
+            assertTrue(cursor.next());
+            assertEquals(tokens.length(i), cursor.length());
+            // A lone surrogate is written as '?', as String.getBytes writes it
+            assertEquals(tokens.text(i).toString().replace("\uD83D\"", "?\""), cursor.text().toString());
+        }
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    void keepsLargeLineJumps() throws IOException {
+        Random random = new Random(19);
+        int[] lines = new int[1000];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = switch (random.nextInt(4)) {
+                case 0 -> 1 + random.nextInt(Integer.MAX_VALUE - 1);
+                case 1 -> (1 << 26) - 1 + random.nextInt(3);
+                default -> i == 0 ? 1 : lines[i - 1];
+            };
+        }
+        int[] sorted = lines.clone();
+        Arrays.sort(sorted);
+        for (int[] order : new int[][] {lines, sorted}) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (BinarySink sink = new BinarySink(out)) {
+                for (int line : order) {
+                    sink.token(TokenType.IDENTIFIER, "x", 0, 1, line);
+                }
+            }
+            BinaryTokenReader reader = new BinaryTokenReader(ByteBuffer.wrap(out.toByteArray()));
+            BinaryTokenReader.Cursor cursor = reader.cursor();
+            for (int line : order) {
+                assertTrue(cursor.next());
+                assertEquals(line, cursor.line());
+            }
+            if (order == sorted) {
+                for (int i = 0; i < sorted.length; i += 7) {
+                    cursor = reader.seekLine(sorted[i]);
+                    assertTrue(cursor.next());
+                    assertEquals(sorted[i], cursor.line());
+                }
+            }
+        }
+    }
+
+    private static BinaryTokenReader write(TokenBuffer tokens, SymbolTable symbols) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BinarySink sink = new BinarySink(out)) {
+            sink.tokens(tokens);
+            sink.symbols(symbols);
+        }
+        return new BinaryTokenReader(ByteBuffer.wrap(out.toByteArray()));
+    }
+
+    private static List<String> describe(TokenBuffer tokens) {
+        List<String> described = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            described.add(tokens.type(i) + " " + tokens.text(i) + " " + tokens.start(i) + "+" + tokens.length(i) + " " + tokens.line(i));
+        }
+        return described;
+    }
+
+    private static List<String> describe(BinaryTokenReader.Cursor cursor, int expectedSize) {
+        List<String> described = new ArrayList<>(expectedSize);
+        while (cursor.next()) {
+            described.add(cursor.type() + " " + cursor.text() + " " + cursor.start() + "+" + cursor.length() + " " + cursor.line());
+        }
+        return described;
+    }
+}
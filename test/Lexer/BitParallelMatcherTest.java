@@ -0,0 +1,70 @@
+package Lexer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// BitParallelMatcher must match exactly what the compiled DFA of the same
+// regex matches, for the token rules small enough for it and for nested
+// stars, unions and empty matches
+class BitParallelMatcherTest {
+
+    @Test
+    void tokenRulesMatchTheCompiledDFAs() {
+        Random random = new Random(12);
+        int checked = 0;
+        for (String[] spec : DFAStore.TOKEN_SPECS) {
+            BitParallelMatcher matcher = BitParallelMatcher.fromRegex(spec[1]);
+            if (matcher == null) {
+                continue;
+            }
+            checked++;
+            CompiledDFA compiled = DFAStore.getCompiledDFA(spec[0]);
+            for (int i = 0; i < 50000; i++) {
+                assertSameMatches(compiled, matcher, RandomPrograms.text(random, 14), random, spec[0]);
+            }
+        }
+        assertTrue(checked > 0);
+    }
+
+    @Test
+    void operatorsMatchTheCompiledDFAs() {
+        Random random = new Random(13);
+        for (String regex : new String[] {"(ab)*", "a*b*", "(a|b)*abb", "(a*)*", "a+b+|c*", "(a|bc)+c?", "[a-b]+c"}) {
+            BitParallelMatcher matcher = BitParallelMatcher.fromRegex(regex);
+            CompiledDFA compiled = compile(regex);
+            for (int i = 0; i < 20000; i++) {
+                StringBuilder s = new StringBuilder();
+                for (int length = random.nextInt(10); length > 0; length--) {
+                    s.append("abc".charAt(random.nextInt(3)));
+                }
+                assertSameMatches(compiled, matcher, s.toString(), random, regex);
+            }
+        }
+    }
+
+    @Test
+    void largeRegexesGoToTheLazyDFA() {
+        assertInstanceOf(BitParallelMatcher.class, DFAStore.matcherFor("[a-z]+"));
+        String large = "abcdefghij".repeat(7);
+        assertNull(BitParallelMatcher.fromRegex(large));
+        TokenMatcher matcher = DFAStore.matcherFor(large);
+        assertInstanceOf(LazyDFA.class, matcher);
+        assertTrue(matcher.matches(large));
+    }
+
+    private static CompiledDFA compile(String regex) {
+        return CompiledDFA.compileAll(Map.of(regex,
+                DFAConverter.convertNFAtoDFA(ThompsonConstruction.buildNFAFromRegex(regex)))).get(regex);
+    }
+
+    private static void assertSameMatches(CompiledDFA compiled, BitParallelMatcher matcher, String s, Random random, String rule) {
+        int from = s.isEmpty() ? 0 : random.nextInt(s.length());
+        assertEquals(compiled.matches(s), matcher.matches(s), rule + " on [" + s + "]");
+        assertEquals(compiled.longestMatch(s, from, s.length()), matcher.longestMatch(s, from, s.length()),
+                rule + " from " + from + " on [" + s + "]");
+    }
+}
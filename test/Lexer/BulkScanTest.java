@@ -0,0 +1,181 @@
+package Lexer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The eight-bytes-at-a-time scan of a MappedSource must stop exactly where a
+// plain char loop stops and count the same newlines, whichever byte of a word
+// the newline or the terminating char falls in, for bodies and blank runs alike
+class BulkScanTest {
+    // Stop chars and lines flags of the scanner's body states, a body with
+    // neither, and the whitespace run
+    private static final int[] BODIES = {
+        '@' | BulkScan.LINES, '"' | BulkScan.LINES, 0, '@', BulkScan.LINES, BulkScan.BLANKS,
+    };
+    // Chars that end some body, next to ones that never do
+    private static final char[] SPECIAL = {'\n', '@', '"', '\t', '\r', 0, 0x1F, 0x7F, 0x80, 0xC3, 0xFF, ' ', '~', '#'};
+    // Chars that end a whitespace run, or nearly do: the vertical tab and the
+    // blanks with the high bit set are not blanks
+    private static final char[] NOT_BLANK = {'a', 0, 0x0B, 0x0E, 0x08, 0x1F, '@', 0x89, 0x8A, 0xA0, 0xFF};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void stopsAtEveryByteLane() throws IOException {
+        List<String> texts = new ArrayList<>();
+        for (int length = 0; length <= 40; length++) {
+            for (int at = 0; at < length; at++) {
+                for (char special : SPECIAL) {
+                    char[] chars = "a".repeat(length).toCharArray();
+                    chars[at] = special;
+                    texts.add(new String(chars));
+                }
+            }
+        }
+        assertAllAgree(texts);
+    }
+
+    @Test
+    void blankRunsStopAtEveryByteLane() throws IOException {
+        List<String> texts = new ArrayList<>();
+        String blanks = " \t\n\r\f";
+        for (int length = 0; length <= 24; length++) {
+            for (int at = 0; at < length; at++) {
+                for (char special : NOT_BLANK) {
+                    char[] chars = new char[length];
+                    for (int i = 0; i < length; i++) {
+                        chars[i] = blanks.charAt((i + at) % blanks.length());
+                    }
+                    chars[at] = special;
+                    texts.add(new String(chars));
+                }
+            }
+        }
+        assertAllAgree(texts);
+    }
+
+    @Test
+    void countsNewlinesInEveryByteLane() throws IOException {
+        List<String> texts = new ArrayList<>();
+        for (int length = 0; length <= 40; length++) {
+            for (int at = 0; at < length; at++) {
+                char[] chars = "x".repeat(length).toCharArray();
+                chars[at] = '\n';
+                for (int second = at; second < length; second += 3) {
+                    chars[second] = '\n';
+                }
+                texts.add(new String(chars));
+            }
+        }
+        assertAllAgree(texts);
+    }
+
+    @Test
+    void agreesOnRandomBodies() throws IOException {
+        Random random = new Random(28);
+        List<String> texts = new ArrayList<>();
+        for (int round = 0; round < 300; round++) {
+            StringBuilder text = new StringBuilder();
+            for (int length = random.nextInt(200); length > 0; length--) {
+                // Mostly plain chars, so runs cross several words
+                text.append(random.nextInt(10) == 0 ? SPECIAL[random.nextInt(SPECIAL.length)]
+                        : (char) (0x20 + random.nextInt(0x5F)));
+            }
+            texts.add(text.toString());
+        }
+        assertAllAgree(texts);
+    }
+
+    @Test
+    void scannerHasTheCommentStringAndWhitespaceBodies() {
+        CompiledDFA scanner = DFAStore.getScanner();
+        boolean comment = false;
+        boolean string = false;
+        boolean whitespace = false;
+        for (int body : scanner.body) {
+            comment |= body == ('@' | BulkScan.LINES);
+            string |= body == ('"' | BulkScan.LINES);
+            whitespace |= body == BulkScan.BLANKS;
+        }
+        assertTrue(comment && string && whitespace);
+    }
+
+    // Every start and end offset (so every alignment) and every body, on the
+    // mapped bytes and on a String. The texts go into one file one after the
+    // other, so each is a slice of the mapping starting at some offset.
+    private void assertAllAgree(List<String> texts) throws IOException {
+        StringBuilder all = new StringBuilder();
+        for (String text : texts) {
+            all.append(text);
+        }
+        byte[] bytes = all.toString().getBytes(StandardCharsets.ISO_8859_1);
+        Path file = dir.resolve("bodies.bin");
+        Files.write(file, bytes);
+        MappedSource mapped = MappedSource.map(file);
+        int start = 0;
+        for (String text : texts) {
+            CharSequence slice = mapped.subSequence(start, start + text.length());
+            start += text.length();
+            for (int from = 0; from <= Math.min(9, text.length()); from++) {
+                for (int to = from; to <= text.length(); to += to < 16 ? 1 : 7) {
+                    int f = from;
+                    int t = to;
+                    assertEquals(countNewlines(text, from, to), BulkScan.countNewlines(slice, from, to),
+                            () -> "[" + f + ", " + t + ") of " + describe(text));
+                    for (int body : BODIES) {
+                        long expected = skipBody(text, from, to, body);
+                        Supplier<String> where = () -> "body " + Integer.toHexString(body) + " [" + f + ", " + t + ") of "
+                                + describe(text);
+                        assertEquals(expected, BulkScan.skipBody(text, from, to, body), where);
+                        assertEquals(expected, BulkScan.skipBody(slice, from, to, body), where);
+                    }
+                }
+            }
+        }
+    }
+
+    // One char at a time, as the DFA's body state would take them
+    private static long skipBody(String s, int from, int to, int body) {
+        long newlines = 0;
+        int i = from;
+        for (; i < to; i++) {
+            char c = s.charAt(i);
+            boolean plain = body == BulkScan.BLANKS ? " \t\r\f".indexOf(c) >= 0
+                    : c >= 0x20 && c <= 0x7E && c != (body & 0xFF);
+            if (c == '\n' && (body & (BulkScan.LINES | BulkScan.BLANKS)) != 0) {
+                newlines++;
+            } else if (!plain) {
+                break;
+            }
+        }
+        return newlines << 32 | i;
+    }
+
+    private static int countNewlines(String s, int from, int to) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (s.charAt(i) == '\n') count++;
+        }
+        return count;
+    }
+
+    private static String describe(String text) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            out.append(String.format("%02x", (int) text.charAt(i)));
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,180 @@
+package Lexer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Char classes as ranges: negated, adjacent and overlapping classes and the
+// edges of each interval, up to U+FFFF, must match as java.util.regex does on
+// every engine, and compileAll must refuse what its byte table cannot hold
+class CharClassTest {
+    // Interval edges: both ends of the byte table, the chars around it and the
+    // last char
+    private static final char[] EDGES = {
+        0, 1, '\n', 'a', 'b', 'c', 'z', 0x7F, 0xFF, 0x100, 0x101, 0xFFFE, 0xFFFF,
+    };
+
+    @Test
+    void everyEngineMatchesAsJavaRegex() {
+        Random random = new Random(22);
+        for (int round = 0; round < 300; round++) {
+            StringBuilder ours = new StringBuilder();
+            StringBuilder java = new StringBuilder();
+            randomRegex(random, ours, java);
+            String regex = ours.toString();
+            Pattern pattern = Pattern.compile(java.toString());
+            DFA dfa = DFAConverter.convertNFAtoDFA(ThompsonConstruction.buildNFAFromRegex(regex));
+            TokenMatcher lazy = LazyDFA.fromRegex(regex);
+            TokenMatcher cheapest = DFAStore.matcherFor(regex);
+            for (int i = 0; i < 300; i++) {
+                String s = randomText(random, 5);
+                String where = java + " on " + codes(s);
+                int longest = -1;
+                for (int end = 0; end <= s.length(); end++) {
+                    if (pattern.matcher(s.substring(0, end)).matches()) {
+                        longest = end;
+                    }
+                }
+                boolean expected = longest == s.length();
+                assertEquals(expected, accepts(dfa, s), where);
+                assertEquals(expected, lazy.matches(s), where);
+                assertEquals(expected, cheapest.matches(s), where);
+                assertEquals(longest, lazy.longestMatch(s, 0, s.length()), where);
+                assertEquals(longest, cheapest.longestMatch(s, 0, s.length()), where);
+            }
+        }
+    }
+
+    @Test
+    void negatedClassesReachTheLastChar() {
+        String notAt = "[^@]";
+        DFA dfa = DFAConverter.convertNFAtoDFA(ThompsonConstruction.buildNFAFromRegex(notAt));
+        for (TokenMatcher matcher : new TokenMatcher[] {LazyDFA.fromRegex(notAt), DFAStore.matcherFor(notAt)}) {
+            for (char c : new char[] {0, '?', 'A', 0xFF, 0x100, 0xFFFF}) {
+                assertTrue(matcher.matches(String.valueOf(c)), (int) c + "");
+                assertTrue(accepts(dfa, String.valueOf(c)), (int) c + "");
+            }
+            assertFalse(matcher.matches("@"));
+            assertFalse(accepts(dfa, "@"));
+        }
+    }
+
+    @Test
+    void compilesClassesThatTreatHighCharsAlike() {
+        Map<String, DFA> dfas = new LinkedHashMap<>();
+        dfas.put("NOT_AT", dfa("[^@]+"));
+        dfas.put("LOW", dfa("[a-c][\\x]"));
+        dfas.put("EDGES", dfa("[" + (char) 0xFF + "-" + (char) 0xFFFF + "]"));
+        Map<String, CompiledDFA> compiled = CompiledDFA.compileAll(dfas);
+        assertTrue(compiled.get("NOT_AT").matches("a" + (char) 0xFFFF + (char) 0x100 + (char) 0));
+        assertFalse(compiled.get("NOT_AT").matches("a@"));
+        assertTrue(compiled.get("LOW").matches("cx"));
+        assertFalse(compiled.get("LOW").matches("dx"));
+        assertTrue(compiled.get("EDGES").matches(String.valueOf((char) 0xFF)));
+        assertTrue(compiled.get("EDGES").matches(String.valueOf((char) 0xFFFF)));
+        assertFalse(compiled.get("EDGES").matches(String.valueOf((char) 0xFE)));
+    }
+
+    @Test
+    void compileAllRejectsClassesThatSplitHighChars() {
+        for (String regex : new String[] {"[a-" + (char) 0x200 + "]", "[" + (char) 0x300 + "]", "[^" + (char) 0xFFFF + "]"}) {
+            RuntimeException error = assertThrows(RuntimeException.class,
+                    () -> CompiledDFA.compileAll(Map.of("X", dfa(regex))));
+            assertTrue(error.getMessage().startsWith("Chars past the byte-class table must all be used alike: "),
+                    error.getMessage());
+        }
+        // The engines without a shared byte table still take such classes
+        assertTrue(DFAStore.matcherFor("[a-" + (char) 0x200 + "]").matches(String.valueOf((char) 0x200)));
+        assertFalse(DFAStore.matcherFor("[a-" + (char) 0x200 + "]").matches(String.valueOf((char) 0x201)));
+        assertFalse(LazyDFA.fromRegex("[^" + (char) 0xFFFF + "]").matches(String.valueOf((char) 0xFFFF)));
+        assertTrue(LazyDFA.fromRegex("[^" + (char) 0xFFFF + "]").matches(String.valueOf((char) 0xFFFE)));
+    }
+
+    private static DFA dfa(String regex) {
+        return DFAConverter.convertNFAtoDFA(ThompsonConstruction.buildNFAFromRegex(regex));
+    }
+
+    // One to three terms, each a class with an optional * or +, and sometimes
+    // a second alternative; written both in our syntax and in java.util.regex's
+    private static void randomRegex(Random random, StringBuilder ours, StringBuilder java) {
+        ours.append('(');
+        java.append('(');
+        for (int alternative = random.nextInt(4) == 0 ? 2 : 1; alternative > 0; alternative--) {
+            for (int terms = 1 + random.nextInt(3); terms > 0; terms--) {
+                randomClass(random, ours, java);
+                String repeat = switch (random.nextInt(3)) {
+                    case 0 -> "*";
+                    case 1 -> "+";
+                    default -> "";
+                };
+                ours.append(repeat);
+                java.append(repeat);
+            }
+            if (alternative > 1) {
+                ours.append('|');
+                java.append('|');
+            }
+        }
+        ours.append(')');
+        java.append(')');
+    }
+
+    // Up to three single chars or ranges between edge chars, which may be
+    // adjacent or overlap, maybe negated
+    private static void randomClass(Random random, StringBuilder ours, StringBuilder java) {
+        ours.append('[');
+        java.append('[');
+        if (random.nextBoolean()) {
+            ours.append('^');
+            java.append('^');
+        }
+        for (int items = 1 + random.nextInt(3); items > 0; items--) {
+            char low = EDGES[random.nextInt(EDGES.length)];
+            char high = random.nextBoolean() ? low : EDGES[random.nextInt(EDGES.length)];
+            if (high < low) {
+                char swap = low;
+                low = high;
+                high = swap;
+            }
+            ours.append('\\').append(low);
+            java.append(String.format("\\x{%x}", (int) low));
+            if (high != low) {
+                ours.append("-\\").append(high);
+                java.append(String.format("-\\x{%x}", (int) high));
+            }
+        }
+        ours.append(']');
+        java.append(']');
+    }
+
+    private static String randomText(Random random, int maxLength) {
+        StringBuilder text = new StringBuilder();
+        for (int length = random.nextInt(maxLength + 1); length > 0; length--) {
+            char edge = EDGES[random.nextInt(EDGES.length)];
+            // Now and then the char just inside an edge
+            text.append(random.nextInt(4) == 0 && edge > 0 ? (char) (edge - 1) : edge);
+        }
+        return text.toString();
+    }
+
+    private static String codes(String s) {
+        StringBuilder codes = new StringBuilder("[");
+        for (int i = 0; i < s.length(); i++) {
+            codes.append(i == 0 ? "" : ",").append((int) s.charAt(i));
+        }
+        return codes.append(']').toString();
+    }
+
+    private static boolean accepts(DFA dfa, String s) {
+        State state = dfa.startState;
+        for (int i = 0; i < s.length() && state != null; i++) {
+            state = dfa.next(state, s.charAt(i));
+        }
+        return state != null && dfa.finalStates.contains(state);
+    }
+}
@@ -0,0 +1,81 @@
+package Lexer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Every compiled table must accept exactly what its DFA accepts, whatever
+// class the shared table puts each char in
+class CompiledDFATest {
+    @Test
+    void acceptsWhatTheDFAAccepts() {
+        Random random = new Random(3);
+        for (String[] spec : DFAStore.TOKEN_SPECS) {
+            String type = spec[0];
+            DFA dfa = DFAStore.getDFA(type);
+            CompiledDFA compiled = DFAStore.getCompiledDFA(type);
+            for (int i = 0; i < 20000; i++) {
+                String s = RandomPrograms.text(random, 10);
+                assertEquals(accepts(dfa, s), compiled.matches(s), type + " on [" + s + "]");
+            }
+        }
+    }
+
+    @Test
+    void everyByteAndPairOfBytes() {
+        for (String[] spec : DFAStore.TOKEN_SPECS) {
+            String type = spec[0];
+            DFA dfa = DFAStore.getDFA(type);
+            CompiledDFA compiled = DFAStore.getCompiledDFA(type);
+            char[] pair = new char[2];
+            for (char a = 0; a < CompiledDFA.TABLE_SIZE; a++) {
+                pair[0] = a;
+                assertEquals(accepts(dfa, String.valueOf(a)), compiled.matches(String.valueOf(a)), type + " on " + (int) a);
+                for (char b = 0; b < CompiledDFA.TABLE_SIZE; b++) {
+                    pair[1] = b;
+                    String s = new String(pair);
+                    assertEquals(accepts(dfa, s), compiled.matches(s), type + " on " + (int) a + "," + (int) b);
+                }
+            }
+        }
+    }
+
+    @Test
+    void charsPastTheTableShareOneClass() {
+        char last = Character.MAX_VALUE;
+        String[] samples = {"€", "a" + last, "#" + (char) 0x100 + last, "\"é" + last + "\"", "@ €\n" + last + " @"};
+        for (String[] spec : DFAStore.TOKEN_SPECS) {
+            String type = spec[0];
+            DFA dfa = DFAStore.getDFA(type);
+            CompiledDFA compiled = DFAStore.getCompiledDFA(type);
+            assertEquals(compiled.highClass, compiled.classOf((char) 0x100));
+            assertEquals(compiled.highClass, compiled.classOf(last));
+            for (String s : samples) {
+                assertEquals(accepts(dfa, s), compiled.matches(s), type + " on [" + s + "]");
+            }
+        }
+        assertTrue(DFAStore.getCompiledDFA("Single_COMMENT").matches(samples[2]));
+        assertTrue(DFAStore.getCompiledDFA("STRING_LITERAL").matches(samples[3]));
+    }
+
+    @Test
+    void matchesARange() {
+        CompiledDFA identifier = DFAStore.getCompiledDFA("IDENTIFIER");
+        assertTrue(identifier.matches("12abc;", 2, 5));
+        assertFalse(identifier.matches("12abc;", 1, 5));
+        assertFalse(identifier.matches("12abc;", 2, 6));
+    }
+
+    private static boolean accepts(DFA dfa, String s) {
+        State state = dfa.startState;
+        for (int i = 0; i < s.length(); i++) {
+            state = dfa.next(state, s.charAt(i));
+            if (state == null) {
+                return false;
+            }
+        }
+        return dfa.finalStates.contains(state);
+    }
+}
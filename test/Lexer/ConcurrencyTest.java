@@ -0,0 +1,177 @@
+package Lexer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Lexers, automaton builds and registered matchers all share DFAStore and
+// its tables, and a LazyDFA shares its state cache with every caller; run side
+// by side they must give what they give one at a time. ConcurrencyStress in benchmarks does the same at scale.
+class ConcurrencyTest {
+
+    @Test
+    void lexesAsWhenAlone() throws Exception {
+        Random random = new Random(25);
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            inputs.add(i % 10 == 9 ? RandomPrograms.programWithErrors(random, random.nextInt(300))
+                    : RandomPrograms.program(random, random.nextInt(300)));
+        }
+        List<Callable<String>> tasks = new ArrayList<>();
+        for (String input : inputs) {
+            tasks.add(() -> lex(input));
+        }
+        List<String> results = runAll(tasks);
+        for (int i = 0; i < inputs.size(); i++) {
+            assertEquals(lex(inputs.get(i)), results.get(i), inputs.get(i));
+        }
+    }
+
+    @Test
+    void buildsAutomataAsWhenAlone() throws Exception {
+        List<Callable<String>> tasks = new ArrayList<>();
+        for (int round = 0; round < 4; round++) {
+            for (String[] spec : DFAStore.TOKEN_SPECS) {
+                tasks.add(() -> rebuild(spec[1]));
+            }
+            tasks.add(() -> describe(DFAStore.compileTables()));
+        }
+        List<String> results = runAll(tasks);
+        int i = 0;
+        for (int round = 0; round < 4; round++) {
+            for (String[] spec : DFAStore.TOKEN_SPECS) {
+                assertEquals(rebuild(spec[1]), results.get(i++), spec[0]);
+            }
+            assertEquals(describe(DFAStore.compileTables()), results.get(i++));
+        }
+    }
+
+    @Test
+    void sharedMatchersMatchAsWhenAlone() throws Exception {
+        List<TokenMatcher> matchers = new ArrayList<>();
+        for (String[] spec : DFAStore.TOKEN_SPECS) {
+            matchers.add(DFAStore.matcherFor(spec[1]));
+            matchers.add(LazyDFA.fromRegex(spec[1]));
+        }
+        Random random = new Random(26);
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            inputs.add(RandomPrograms.text(random, 14));
+        }
+        List<Callable<String>> tasks = new ArrayList<>();
+        for (int thread = 0; thread < 64; thread++) {
+            tasks.add(() -> matchAll(matchers, inputs));
+        }
+        String expected = matchAll(matchers, inputs);
+        for (String result : runAll(tasks)) {
+            assertEquals(expected, result);
+        }
+    }
+
+    @Test
+    void lazyDFAsMatchAsWhenAloneWhileFlushing() throws Exception {
+        // A union of many words has far more DFA states than the small cache
+        // holds, so threads keep flushing it while others walk the old states
+        Random random = new Random(27);
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            regex.append(i == 0 ? "" : "|").append(RandomPrograms.text(random, 8).replaceAll("[^a-z]", "") + "z");
+        }
+        DFA dfa = DFAConverter.convertNFAtoDFA(ThompsonConstruction.buildNFAFromRegex(regex.toString()));
+        List<TokenMatcher> reference = List.of(CompiledDFA.compileAll(Map.of("words", dfa)).get("words"));
+        LazyDFA small = new LazyDFA(ThompsonConstruction.buildNFAFromRegex(regex.toString()), 8);
+        LazyDFA large = new LazyDFA(ThompsonConstruction.buildNFAFromRegex(regex.toString()));
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            inputs.add(RandomPrograms.text(random, 12).replaceAll("[^a-z]", "") + (i % 2 == 0 ? "z" : ""));
+        }
+        String expected = matchAll(reference, inputs);
+
+        // Platform threads, so the scheduler switches them mid-match even on one core
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> results = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                LazyDFA matcher = thread % 2 == 0 ? small : large;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return matchAll(List.of(matcher), inputs);
+                }));
+            }
+            start.countDown();
+            for (Future<String> result : results) {
+                assertEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(small.getFlushes() > 100, small.getFlushes() + " flushes");
+        assertEquals(0, large.getFlushes());
+    }
+
+    private static List<String> runAll(List<Callable<String>> tasks) throws Exception {
+        List<Future<String>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Callable<String> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+        }
+        List<String> results = new ArrayList<>();
+        for (Future<String> future : futures) {
+            results.add(future.get());
+        }
+        return results;
+    }
+
+    // Every token and symbol, or the error lexing stopped with
+    private static String lex(String input) {
+        LexicalAnalyzer lexer = new LexicalAnalyzer(input);
+        try {
+            return RandomPrograms.describe(lexer.tokenizeToBuffer()) + "\n" + RandomPrograms.describe(lexer.getSymbolTable());
+        } catch (RuntimeException e) {
+            return "error: " + e.getMessage();
+        }
+    }
+
+    private static String matchAll(List<TokenMatcher> matchers, List<String> inputs) {
+        StringBuilder out = new StringBuilder();
+        for (String s : inputs) {
+            for (TokenMatcher matcher : matchers) {
+                out.append(matcher.matches(s) ? '+' : '-').append(matcher.longestMatch(s, 0, s.length()));
+            }
+            out.append('\n');
+        }
+        return out.toString();
+    }
+
+    // A rule compiled from scratch, as its transition table
+    private static String rebuild(String regex) {
+        DFA dfa = DFAConverter.convertNFAtoDFA(ThompsonConstruction.buildNFAFromRegex(regex));
+        return describe(CompiledDFA.compileAll(Map.of("rule", dfa)));
+    }
+
+    private static String describe(Map<String, CompiledDFA> tables) {
+        StringBuilder out = new StringBuilder();
+        for (String name : new TreeSet<>(tables.keySet())) {
+            CompiledDFA table = tables.get(name);
+            out.append(name).append(table.startState).append(Arrays.toString(table.classMap))
+                    .append(Arrays.toString(table.transitions)).append(table.accepting)
+                    .append(Arrays.toString(table.acceptRule)).append('\n');
+        }
+        return out.toString();
+    }
+}
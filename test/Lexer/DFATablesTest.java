@@ -0,0 +1,55 @@
+package Lexer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The bundled dfa-tables.bin must hold exactly what compiling the token specs
+// gives now, and tables written for other specs must not be loaded
+class DFATablesTest {
+
+    @Test
+    void bundledTablesAreCurrent() {
+        Map<String, CompiledDFA> bundled = DFATables.load();
+        assertNotNull(bundled, "dfa-tables.bin is missing or stale; run Lexer.DFATables");
+        assertEquals(describe(DFAStore.compileTables()), describe(bundled));
+    }
+
+    @Test
+    void readsBackWhatItWrites() throws IOException {
+        Map<String, CompiledDFA> tables = DFAStore.compileTables();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DFATables.write(tables, out);
+        assertEquals(describe(tables), describe(DFATables.read(new ByteArrayInputStream(out.toByteArray()))));
+    }
+
+    @Test
+    void ignoresTablesForOtherSpecs() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DFATables.write(DFAStore.compileTables(), out);
+        byte[] bytes = out.toByteArray();
+        bytes[8] ^= 1; // the spec hash follows the magic number and the version
+        assertNull(DFATables.read(new ByteArrayInputStream(bytes)));
+    }
+
+    // Every table field, in table order
+    private static List<String> describe(Map<String, CompiledDFA> tables) {
+        List<String> described = new ArrayList<>();
+        for (Map.Entry<String, CompiledDFA> entry : tables.entrySet()) {
+            CompiledDFA dfa = entry.getValue();
+            described.add(entry.getKey() + " classes=" + dfa.classCount + " " + Arrays.toString(dfa.classMap)
+                    + " high=" + dfa.highClass + " states=" + dfa.stateCount + " start=" + dfa.startState
+                    + " " + Arrays.toString(dfa.transitions) + " accepting=" + dfa.accepting
+                    + " rules=" + Arrays.toString(dfa.acceptRule));
+        }
+        return described;
+    }
+}
@@ -0,0 +1,91 @@
+package Lexer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// In error-recovery mode LexicalAnalyzer must lex clean input exactly as it
+// does otherwise, and on broken input report every error in one pass: the
+// first as the message lexing would otherwise stop with, each as an ERROR
+// token, and everything around them as if the errors were blanked out
+class ErrorRecoveryTest {
+
+    @Test
+    void cleanInputLexesAsWithoutRecovery() {
+        Random random = new Random(14);
+        for (int round = 0; round < 200; round++) {
+            String source = RandomPrograms.program(random, random.nextInt(300));
+            LexicalAnalyzer recovering = recovering(source);
+            assertEquals(RandomPrograms.describe(new LexicalAnalyzer(source).tokenizeToBuffer()),
+                    RandomPrograms.describe(recovering.tokenizeToBuffer()));
+            assertEquals(List.of(), recovering.getDiagnostics());
+        }
+    }
+
+    @Test
+    void reportsEveryErrorInOnePass() {
+        Random random = new Random(15);
+        int errors = 0;
+        for (int round = 0; round < 300; round++) {
+            String source = RandomPrograms.withInvalidChars(random, RandomPrograms.programWithErrors(random, random.nextInt(200)));
+            LexicalAnalyzer recovering = recovering(source);
+            TokenBuffer tokens = recovering.tokenizeToBuffer();
+            List<Diagnostic> diagnostics = recovering.getDiagnostics();
+            errors += diagnostics.size();
+
+            String thrown = null;
+            try {
+                new LexicalAnalyzer(source).tokenizeToBuffer();
+            } catch (RuntimeException e) {
+                thrown = e.getMessage();
+            }
+            assertEquals(thrown, diagnostics.isEmpty() ? null : diagnostics.get(0).getMessage(), source);
+
+            // One ERROR token per diagnostic, over the same chars and line
+            List<String> errorTokens = new ArrayList<>();
+            for (int i = 0; i < tokens.size(); i++) {
+                if (tokens.type(i) == TokenType.ERROR) {
+                    errorTokens.add(tokens.start(i) + "-" + (tokens.start(i) + tokens.length(i)) + "@" + tokens.line(i));
+                }
+            }
+            List<String> reported = new ArrayList<>();
+            for (Diagnostic diagnostic : diagnostics) {
+                reported.add(diagnostic.getStart() + "-" + diagnostic.getEnd() + "@" + diagnostic.getLine());
+            }
+            assertEquals(errorTokens, reported);
+
+            // Blanking the errors out leaves clean input with the other tokens
+            StringBuilder blanked = new StringBuilder(source);
+            for (Diagnostic diagnostic : diagnostics) {
+                for (int i = diagnostic.getStart(); i < diagnostic.getEnd(); i++) {
+                    if (blanked.charAt(i) != '\n') {
+                        blanked.setCharAt(i, ' ');
+                    }
+                }
+            }
+            List<String> expected = RandomPrograms.describe(new LexicalAnalyzer(blanked.toString()).tokenizeToBuffer());
+            List<String> rest = new ArrayList<>(RandomPrograms.describe(tokens));
+            rest.removeIf(token -> token.startsWith("Token{type='" + TokenType.ERROR.getLabel() + "'"));
+            assertEquals(expected, rest);
+        }
+        assertTrue(errors > 300);
+    }
+
+    @Test
+    void invalidRunIsOneError() {
+        LexicalAnalyzer recovering = recovering("x = $$?;\ny");
+        recovering.tokenizeToBuffer();
+        assertEquals(1, recovering.getDiagnostics().size());
+        assertEquals("Invalid token at line 1: $$?", recovering.getDiagnostics().get(0).getMessage());
+    }
+
+    private static LexicalAnalyzer recovering(String source) {
+        LexicalAnalyzer analyzer = new LexicalAnalyzer(source);
+        analyzer.setErrorRecovery(true);
+        return analyzer;
+    }
+}
@@ -0,0 +1,114 @@
+package Lexer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The direct-coded scanner must be generated from the current token specs and
+// lex, recover from errors and report metrics exactly as the table-driven
+// LexicalAnalyzer does
+class GeneratedScannerTest {
+
+    @Test
+    void isGeneratedFromTheCurrentSpecs() {
+        assertEquals(DFATables.specHash(), GeneratedScanner.SPEC_HASH,
+                "GeneratedScanner.java is stale; run Lexer.ScannerGenerator");
+    }
+
+    @Test
+    void matchesLexicalAnalyzer() {
+        Random random = new Random(22);
+        for (int round = 0; round < 200; round++) {
+            String source = RandomPrograms.program(random, random.nextInt(300));
+            LexicalAnalyzer reference = new LexicalAnalyzer(source);
+            GeneratedScanner generated = new GeneratedScanner(source);
+            assertEquals(RandomPrograms.describe(reference.tokenizeToBuffer()),
+                    RandomPrograms.describe(generated.tokenizeToBuffer()));
+            assertEquals(RandomPrograms.describe(reference.getSymbolTable()),
+                    RandomPrograms.describe(generated.getSymbolTable()));
+        }
+    }
+
+    @Test
+    void matchesLexicalAnalyzerOnShortInputs() {
+        Random random = new Random(23);
+        for (int round = 0; round < 20000; round++) {
+            String source = RandomPrograms.text(random, 12);
+            assertEquals(lex(() -> new LexicalAnalyzer(source).tokenizeToBuffer()),
+                    lex(() -> new GeneratedScanner(source).tokenizeToBuffer()), "[" + source + "]");
+        }
+    }
+
+    @Test
+    void reportsErrorsAsLexicalAnalyzerDoes() {
+        Random random = new Random(24);
+        for (int round = 0; round < 200; round++) {
+            String source = RandomPrograms.programWithErrors(random, random.nextInt(100));
+            assertEquals(lex(() -> new LexicalAnalyzer(source).tokenizeToBuffer()),
+                    lex(() -> new GeneratedScanner(source).tokenizeToBuffer()), source);
+        }
+    }
+
+    @Test
+    void recoversAsLexicalAnalyzerDoes() {
+        Random random = new Random(25);
+        for (int round = 0; round < 200; round++) {
+            String source = RandomPrograms.withInvalidChars(random, RandomPrograms.programWithErrors(random, random.nextInt(100)));
+            LexicalAnalyzer reference = new LexicalAnalyzer(source);
+            reference.setErrorRecovery(true);
+            GeneratedScanner generated = new GeneratedScanner(source);
+            generated.setErrorRecovery(true);
+            assertEquals(RandomPrograms.describe(reference.tokenizeToBuffer()),
+                    RandomPrograms.describe(generated.tokenizeToBuffer()), source);
+            assertEquals(describe(reference.getDiagnostics()), describe(generated.getDiagnostics()), source);
+        }
+    }
+
+    @Test
+    void reportsRunsAsLexicalAnalyzerDoes() {
+        String source = RandomPrograms.program(new Random(26), 500);
+        List<LexStats> runs = new ArrayList<>();
+        LexerMetrics.install(new LexerMetrics() {
+            @Override
+            public void lexed(LexStats stats) {
+                runs.add(stats);
+            }
+        });
+        try {
+            new LexicalAnalyzer(source).tokenizeToBuffer();
+            new GeneratedScanner(source).tokenizeToBuffer();
+        } finally {
+            LexerMetrics.install(null);
+        }
+        assertEquals(2, runs.size());
+        assertEquals(runs.get(0).getChars(), runs.get(1).getChars());
+        assertEquals(runs.get(0).getTokens(), runs.get(1).getTokens());
+        for (TokenType type : TokenType.values()) {
+            assertEquals(runs.get(0).getCount(type), runs.get(1).getCount(type), type.name());
+        }
+        // Bulk skips are not DFA steps, so the generated scanner takes at least as many
+        assertTrue(runs.get(1).getTransitions() >= runs.get(0).getTransitions());
+    }
+
+    private static List<String> describe(List<Diagnostic> diagnostics) {
+        List<String> described = new ArrayList<>();
+        for (Diagnostic diagnostic : diagnostics) {
+            described.add(diagnostic.getLine() + " " + diagnostic.getStart() + "-" + diagnostic.getEnd() + " " + diagnostic.getMessage());
+        }
+        return described;
+    }
+
+    // The tokens one per line, or the error lexing stopped with
+    private static String lex(Supplier<TokenBuffer> lexer) {
+        try {
+            return String.join("\n", RandomPrograms.describe(lexer.get()));
+        } catch (RuntimeException e) {
+            return "error: " + e.getMessage();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package Lexer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// LazyDFA must match exactly what the fully built, compiled DFA of the same
+// regex matches, also when its cache is too small and keeps being flushed
+class LazyDFATest {
+
+    @Test
+    void tokenRulesMatchTheCompiledDFAs() {
+        Random random = new Random(10);
+        int flushes = 0;
+        for (String[] spec : DFAStore.TOKEN_SPECS) {
+            CompiledDFA compiled = DFAStore.getCompiledDFA(spec[0]);
+            LazyDFA lazy = LazyDFA.fromRegex(spec[1]);
+            LazyDFA tiny = new LazyDFA(ThompsonConstruction.buildNFAFromRegex(spec[1]), 2);
+            for (int i = 0; i < 20000; i++) {
+                assertSameMatches(compiled, lazy, RandomPrograms.text(random, 14), random, spec[0]);
+                assertSameMatches(compiled, tiny, RandomPrograms.text(random, 14), random, spec[0]);
+            }
+            assertTrue(tiny.getCachedStates() <= 2, spec[0]);
+            flushes += tiny.getFlushes();
+        }
+        assertTrue(flushes > 0);
+    }
+
+    @Test
+    void largeUnionMatchesTheCompiledDFA() {
+        Random random = new Random(11);
+        StringBuilder regex = new StringBuilder();
+        String[] words = new String[300];
+        for (int i = 0; i < words.length; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int length = 3 + random.nextInt(6); length > 0; length--) {
+                word.append((char) ('a' + random.nextInt(6)));
+            }
+            words[i] = word.toString();
+            regex.append(i == 0 ? "" : "|").append(words[i]);
+        }
+        CompiledDFA compiled = CompiledDFA.compileAll(Map.of("WORDS",
+                DFAConverter.convertNFAtoDFA(ThompsonConstruction.buildNFAFromRegex(regex.toString())))).get("WORDS");
+        LazyDFA lazy = LazyDFA.fromRegex(regex.toString());
+        LazyDFA small = new LazyDFA(ThompsonConstruction.buildNFAFromRegex(regex.toString()), 16);
+        for (String word : words) {
+            assertTrue(lazy.matches(word), word);
+        }
+        for (int i = 0; i < 50000; i++) {
+            StringBuilder s = new StringBuilder();
+            for (int length = random.nextInt(12); length > 0; length--) {
+                s.append((char) ('a' + random.nextInt(7)));
+            }
+            assertSameMatches(compiled, lazy, s.toString(), random, "WORDS");
+            assertSameMatches(compiled, small, s.toString(), random, "WORDS");
+        }
+        assertTrue(small.getFlushes() > 0);
+    }
+
+    @Test
+    void registeredRulesGetALazyDFA() {
+        // Too many positions for BitParallelMatcher
+        TokenMatcher days = DFAStore.register("LAZY_TEST_DAYS", "mon|tue|wed|" + "z".repeat(70));
+        assertInstanceOf(LazyDFA.class, days);
+        assertSame(days, DFAStore.getMatcher("LAZY_TEST_DAYS"));
+        assertTrue(days.matches("tue"));
+        assertFalse(days.matches("tues"));
+        assertEquals(3, days.longestMatch("wednesday", 0, 9));
+        assertInstanceOf(CompiledDFA.class, DFAStore.getMatcher("IDENTIFIER"));
+        assertNull(DFAStore.getMatcher("LAZY_TEST_UNKNOWN"));
+        assertThrows(RuntimeException.class, () -> DFAStore.register("IDENTIFIER", "[a-z]"));
+    }
+
+    private static void assertSameMatches(CompiledDFA compiled, LazyDFA lazy, String s, Random random, String rule) {
+        int from = s.isEmpty() ? 0 : random.nextInt(s.length());
+        assertEquals(compiled.matches(s), lazy.matches(s), rule + " on [" + s + "]");
+        assertEquals(compiled.longestMatch(s, from, s.length()), lazy.longestMatch(s, from, s.length()),
+                rule + " from " + from + " on [" + s + "]");
+    }
+}
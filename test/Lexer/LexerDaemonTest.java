@@ -0,0 +1,210 @@
+package Lexer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Requests must survive the trip over the wire, the daemon must answer a
+// batch in request order with what lexing in-process gives and read files
+// only on a Unix domain socket, and a socket file is only taken over from a
+// daemon that is gone, never a file of another kind
+class LexerDaemonTest {
+
+    @Test
+    void requestsReadBackAsWritten(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("a.cmx");
+        Files.writeString(file, "int x = 1;\n");
+        List<LexerDaemon.Request> requests = List.of(LexerDaemon.Request.file(file),
+                LexerDaemon.Request.source("y = \"héllo\";\n"), LexerDaemon.Request.source(""));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (LexerDaemon.Request request : requests) {
+            request.write(out);
+        }
+        InputStream in = new ByteArrayInputStream(out.toByteArray());
+        for (LexerDaemon.Request request : requests) {
+            assertEquals(request.handle(), LexerDaemon.Request.read(in, true).handle());
+        }
+        assertNull(LexerDaemon.Request.read(in, true));
+    }
+
+    @Test
+    void inlinedFilesKeepTheirName(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("a.cmx");
+        Files.writeString(file, "int x = 1;\nBad\n");
+        LexerDaemon.Request request = LexerDaemon.Request.file(file);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        request.inline().write(out);
+        assertTrue(out.toString(StandardCharsets.UTF_8).startsWith("SOURCE 15 " + file.toAbsolutePath() + "\n"));
+        LexerDaemon.Request read = LexerDaemon.Request.read(new ByteArrayInputStream(out.toByteArray()), false);
+        assertEquals(request.handle(), read.handle());
+        assertTrue(read.handle().startsWith("{\"file\":"), read.handle());
+    }
+
+    @Test
+    void rejectsMalformedRequests() {
+        assertEquals("Unknown request: LEX x", readError("LEX x\n"));
+        assertEquals("Bad source length: ten", readError("SOURCE ten\n"));
+        assertEquals("Source ended after 3 of 10 bytes", readError("SOURCE 10\nabc"));
+        assertEquals("Bad source length: -1", readError("SOURCE -1\n"));
+    }
+
+    @Test
+    void fileRequestsAreRefusedOverTcp() {
+        IOException error = assertThrows(IOException.class, () -> LexerDaemon.Request.read(
+                new ByteArrayInputStream("FILE /etc/passwd\n".getBytes(StandardCharsets.UTF_8)), false));
+        assertEquals("FILE requests are only served on a Unix domain socket; send SOURCE", error.getMessage());
+        assertTrue(LexerDaemon.servesFiles(UnixDomainSocketAddress.of("x.sock")));
+        assertFalse(LexerDaemon.servesFiles(LexerDaemon.address("4000")));
+    }
+
+    @Test
+    void clientSendsFileContentsOverTcp(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("a.cmx");
+        Files.writeString(file, "int x = 1;\n");
+        int port;
+        try (ServerSocket probe = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            port = probe.getLocalPort();
+        }
+        SocketAddress address = LexerDaemon.address(Integer.toString(port));
+        startDaemon(address);
+        List<LexerDaemon.Request> requests = List.of(LexerDaemon.Request.file(file),
+                LexerDaemon.Request.file(dir.resolve("missing.cmx")), LexerDaemon.Request.source("y;"));
+        List<String> expected = new ArrayList<>();
+        for (LexerDaemon.Request request : requests) {
+            expected.add(request.handle());
+        }
+        LexerClient client = new LexerClient(address);
+        assertEquals(expected, client.lex(requests));
+        assertTrue(client.usedDaemon());
+    }
+
+    @Test
+    void repliesAreJsonLines(@TempDir Path dir) {
+        assertEquals("{\"tokens\":[[\"IDENTIFIER\",\"x\",1],[\"OPERATOR\",\"=\",1],[\"STRING_LITERAL\",\"\\\"a\\nb\\\"\",1],"
+                        + "[\"SYMBOL\",\";\",2]],\"symbols\":[[\"x\",1]],\"diagnostics\":[]}",
+                LexerDaemon.Request.source("x = \"a\nb\";").handle());
+        assertEquals("{\"tokens\":[[\"IDENTIFIER\",\"x\",1],[\"SYMBOL\",\";\",1],[\"ERROR\",\"Bad\",2]],"
+                        + "\"symbols\":[[\"x\",1]],\"diagnostics\":[[2,\"Invalid identifier at line 2: Bad\"]]}",
+                LexerDaemon.Request.source("x;\nBad").handle());
+        Path missing = dir.resolve("missing.cmx");
+        String reply = LexerDaemon.Request.file(missing).handle();
+        assertTrue(reply.startsWith("{\"file\":\"" + missing + "\",\"error\":\"Error reading the file: "), reply);
+    }
+
+    @Test
+    void daemonAnswersInRequestOrder(@TempDir Path dir) throws Exception {
+        UnixDomainSocketAddress address = UnixDomainSocketAddress.of(dir.resolve("lexer.sock"));
+        startDaemon(address);
+        Random random = new Random(27);
+        List<LexerDaemon.Request> requests = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            // Long and short requests mixed, so later ones tend to finish first
+            String source = i % 7 == 6 ? RandomPrograms.programWithErrors(random, random.nextInt(50))
+                    : RandomPrograms.program(random, i % 5 == 0 ? 2000 : random.nextInt(20));
+            requests.add(LexerDaemon.Request.source(source));
+            expected.add(LexerDaemon.Request.source(source).handle());
+        }
+        LexerClient client = new LexerClient(address);
+        assertEquals(expected, client.lex(requests));
+        assertTrue(client.usedDaemon());
+    }
+
+    @Test
+    void clientLexesInProcessWithoutADaemon(@TempDir Path dir) {
+        LexerClient client = new LexerClient(UnixDomainSocketAddress.of(dir.resolve("nobody.sock")));
+        assertEquals(List.of(LexerDaemon.Request.source("x;").handle()), client.lex(List.of(LexerDaemon.Request.source("x;"))));
+        assertFalse(client.usedDaemon());
+    }
+
+    @Test
+    void takesOverAStaleSocket(@TempDir Path dir) throws Exception {
+        Path socket = dir.resolve("stale.sock");
+        // Bound and closed without unlinking, as a killed daemon leaves it
+        ServerSocketChannel gone = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        gone.bind(UnixDomainSocketAddress.of(socket));
+        gone.close();
+        assertTrue(Files.exists(socket));
+        startDaemon(UnixDomainSocketAddress.of(socket));
+        LexerClient client = new LexerClient(UnixDomainSocketAddress.of(socket));
+        assertEquals(List.of(LexerDaemon.Request.source("x;").handle()), client.lex(List.of(LexerDaemon.Request.source("x;"))));
+        assertTrue(client.usedDaemon());
+    }
+
+    @Test
+    void leavesAnythingButASocketAlone(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("file.sock");
+        Files.writeString(file, "keep me");
+        Path target = dir.resolve("target.txt");
+        Files.writeString(target, "keep me too");
+        Path link = Files.createSymbolicLink(dir.resolve("link.sock"), target);
+        Path stale = dir.resolve("stale.sock");
+        ServerSocketChannel gone = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        gone.bind(UnixDomainSocketAddress.of(stale));
+        gone.close();
+        Path linkToSocket = Files.createSymbolicLink(dir.resolve("link-to-socket.sock"), stale);
+
+        for (Path path : List.of(file, link, linkToSocket, Files.createDirectory(dir.resolve("dir.sock")))) {
+            IOException error = assertThrows(IOException.class, () -> new LexerDaemon(UnixDomainSocketAddress.of(path)).run());
+            assertEquals("Not a socket, refusing to replace it: " + path, error.getMessage());
+            assertTrue(Files.exists(path, LinkOption.NOFOLLOW_LINKS), path.toString());
+        }
+        assertEquals("keep me", Files.readString(file));
+        assertEquals("keep me too", Files.readString(target));
+        assertTrue(Files.exists(stale, LinkOption.NOFOLLOW_LINKS));
+    }
+
+    @Test
+    void refusesASocketInUse(@TempDir Path dir) throws Exception {
+        UnixDomainSocketAddress address = UnixDomainSocketAddress.of(dir.resolve("live.sock"));
+        startDaemon(address);
+        IOException error = assertThrows(IOException.class, () -> new LexerDaemon(address).run());
+        assertEquals("A lexer daemon is already listening on " + address.getPath(), error.getMessage());
+    }
+
+    private static String readError(String request) {
+        return assertThrows(IOException.class, () -> LexerDaemon.Request.read(
+                new ByteArrayInputStream(request.getBytes(StandardCharsets.UTF_8)), true)).getMessage();
+    }
+
+    // Runs a daemon for the rest of the test run and waits until it accepts
+    private static void startDaemon(SocketAddress address) throws InterruptedException {
+        Thread daemon = new Thread(() -> {
+            try {
+                new LexerDaemon(address).run();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        daemon.setDaemon(true);
+        daemon.start();
+        for (int attempt = 0; attempt < 500; attempt++) {
+            try (SocketChannel ignored = SocketChannel.open(address)) {
+                return;
+            } catch (IOException e) {
+                Thread.sleep(10);
+            }
+        }
+        fail("Daemon did not start on " + address);
+    }
+}
@@ -0,0 +1,143 @@
+package Lexer;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Every lexer run, parallel chunk runs included, and every DFA build reaches
+// the installed LexerMetrics, with counts that add up to what was lexed; runs
+// become JFR events only while a recording has them on
+class LexerMetricsTest {
+    private final List<LexStats> runs = new CopyOnWriteArrayList<>();
+
+    private void record() {
+        LexerMetrics.install(new LexerMetrics() {
+            @Override
+            public void lexed(LexStats stats) {
+                runs.add(stats);
+            }
+        });
+    }
+
+    @AfterEach
+    void uninstall() {
+        LexerMetrics.install(null);
+    }
+
+    @Test
+    void reportsOneRunPerTokenize() {
+        String source = RandomPrograms.program(new Random(20), 500);
+        record();
+        TokenBuffer tokens = new LexicalAnalyzer(source).tokenizeToBuffer();
+        assertEquals(1, runs.size());
+        LexStats stats = runs.get(0);
+        assertEquals(source.length(), stats.getChars());
+        assertEquals(tokens.size(), stats.getTokens());
+        int counted = 0;
+        for (TokenType type : TokenType.values()) {
+            counted += stats.getCount(type);
+        }
+        assertEquals(tokens.size(), counted);
+        assertTrue(stats.getTransitions() >= source.length());
+    }
+
+    @Test
+    void reportsEveryParallelChunk() {
+        String source = RandomPrograms.program(new Random(21), 2000);
+        record();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            TokenBuffer tokens = new ParallelLexer(source, pool, 1024).tokenizeToBuffer();
+            assertTrue(runs.size() >= source.length() / 1024, runs.size() + " runs");
+            long chars = 0;
+            long lexed = 0;
+            for (LexStats stats : runs) {
+                chars += stats.getChars();
+                lexed += stats.getTokens();
+            }
+            // Speculative runs that were thrown away count as well
+            assertTrue(chars >= source.length());
+            assertTrue(lexed >= tokens.size());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void reportsEveryDFABuild() {
+        List<String> builds = new CopyOnWriteArrayList<>();
+        LexerMetrics.install(new LexerMetrics() {
+            @Override
+            public void dfaBuilt(String rule, int nfaStates, int dfaStates, long nanos) {
+                assertTrue(nfaStates > 0 && dfaStates > 0, rule);
+                builds.add(rule);
+            }
+        });
+        DFAStore.compileTables();
+        List<String> expected = new ArrayList<>();
+        for (String[] spec : DFAStore.TOKEN_SPECS) {
+            expected.add(spec[0]);
+        }
+        expected.add(DFAStore.SCANNER);
+        assertEquals(expected, builds);
+    }
+
+    @Test
+    void recorderSumsTheRuns() {
+        MetricsRecorder recorder = new MetricsRecorder();
+        LexerMetrics.install(recorder);
+        new LexicalAnalyzer("x = 1;\n").tokenizeToBuffer();
+        new LexicalAnalyzer("y;").tokenizeToBuffer();
+        String report = recorder.report();
+        assertTrue(report.contains("  2 runs, 9 chars, 6 tokens in "), report);
+        assertTrue(report.contains("  IDENTIFIER: 2\n"), report);
+        assertTrue(report.contains("  SYMBOL: 2\n"), report);
+    }
+
+    @Test
+    void reportsNothingWhenNoneIsInstalled() {
+        new LexicalAnalyzer("x = 1;").tokenizeToBuffer();
+        assertEquals(List.of(), runs);
+        assertFalse(LexerMetrics.current().enabled());
+    }
+
+    @Test
+    void recordsLexEventsWhileARecordingHasThemOn(@TempDir Path dir) throws IOException {
+        assertFalse(LexEvent.TYPE.isEnabled());
+        String source = "x = 1;\ny = 2.5;\n";
+        Path file = dir.resolve("lex.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("Lexer.Lex");
+            recording.start();
+            assertTrue(LexEvent.TYPE.isEnabled());
+            new LexicalAnalyzer(source).tokenizeToBuffer();
+            recording.stop();
+            recording.dump(file);
+        }
+        assertFalse(LexEvent.TYPE.isEnabled());
+        new LexicalAnalyzer(source).tokenizeToBuffer();
+
+        List<RecordedEvent> events = new ArrayList<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            if (event.getEventType().getName().equals("Lexer.Lex")) {
+                events.add(event);
+            }
+        }
+        assertEquals(1, events.size());
+        assertEquals(source.length(), events.get(0).getInt("chars"));
+        assertEquals(8, events.get(0).getInt("tokens"));
+    }
+}
@@ -0,0 +1,99 @@
+package Lexer;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// The combined DFA takes the longest match at each position, and of the rules
+// matching that far the one listed first in DFAStore.TOKEN_SPECS
+class LexicalAnalyzerTest {
+    @Test
+    void takesTheLongestMatch() {
+        assertEquals(List.of("IDENTIFIER integer", "OPERATOR =", "DECIMAL -12.5", "SYMBOL ;"),
+                lex("integer = -12.5;"));
+        assertEquals(List.of("IDENTIFIER x", "WHOLE_NUMBER -1"), lex("x-1"));
+        assertEquals(List.of("IDENTIFIER x", "OPERATOR -", "IDENTIFIER y"), lex("x-y"));
+        assertEquals(List.of("WHOLE_NUMBER 12", "OPERATOR +", "WHOLE_NUMBER 3"), lex("12+3"));
+    }
+
+    @Test
+    void earlierRulesWinTies() {
+        assertEquals(List.of("KEYWORD int", "IDENTIFIER integer", "BOOLEAN true", "IDENTIFIER trueish",
+                "FUNCTION input", "IDENTIFIER inputs"), lex("int integer true trueish input inputs"));
+        assertEquals(List.of("KEYWORD local", "IDENTIFIER locals", "KEYWORD global"), lex("local locals global"));
+        assertEquals(List.of("CHAR_LITERAL 'a'", "CHAR_LITERAL ' '"), lex("'a' ' '"));
+    }
+
+    @Test
+    void commentsAndStringsSpanTheirDelimiters() {
+        assertEquals(List.of("Single_COMMENT # a @ \"b\"", "IDENTIFIER x"), lex("# a @ \"b\"\nx"));
+        assertEquals(List.of("MultiCOMMENT @ a\n# b\n@", "IDENTIFIER x"), lex("@ a\n# b\n@x"));
+        assertEquals(List.of("STRING_LITERAL \"a # @\nb\"", "SYMBOL )"), lex("\"a # @\nb\")"));
+        assertEquals(List.of("OPEN_BRACKET {", "CLOSE_BRACKET }", "SYMBOL (", "SYMBOL )"), lex("{ } ( )"));
+    }
+
+    @Test
+    void reportsMalformedLexemesWithTheirLine() {
+        assertEquals("Invalid identifier at line 2: Bad", error("x\nBad = 1;"));
+        assertEquals("Invalid identifier at line 1: x1", error("x1"));
+        assertEquals("Invalid number at line 3: 12ab", error("\n\n12ab"));
+        assertEquals("Invalid number at line 1: 1.2.3", error("1.2.3"));
+        assertEquals("Invalid number at line 1: -3x", error("-3x"));
+        assertEquals("Unclosed multi-line comment at line 2", error("x\n@ never\nclosed"));
+        assertEquals("Unclosed multi-line comment at line 1", error("x = 1 @"));
+        assertEquals("Unclosed multi-line comment at line 1", error("@"));
+        assertEquals("Unclosed string literal at line 1", error("\"never\nclosed"));
+        assertEquals("Invalid token at line 2: $", error("\n$"));
+    }
+
+    @Test
+    void tokenizeIntoReusesTheBuffer() {
+        Random random = new Random(12);
+        TokenBuffer reused = new TokenBuffer("", 1);
+        for (int round = 0; round < 50; round++) {
+            String source = RandomPrograms.program(random, random.nextInt(300));
+            LexicalAnalyzer lexer = new LexicalAnalyzer(source);
+            assertSame(reused, lexer.tokenizeInto(reused));
+            assertSame(source, reused.getSource());
+            assertEquals(RandomPrograms.describe(new LexicalAnalyzer(source).tokenizeToBuffer()),
+                    RandomPrograms.describe(reused));
+        }
+    }
+
+    @Test
+    void scanAllocatesNothingPerToken() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        String source = RandomPrograms.program(new Random(13), 20000);
+        TokenBuffer reused = new TokenBuffer(source);
+        long allocated = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            LexicalAnalyzer lexer = new LexicalAnalyzer(source);
+            long before = threads.getCurrentThreadAllocatedBytes();
+            lexer.tokenizeInto(reused);
+            allocated = Math.min(allocated, threads.getCurrentThreadAllocatedBytes() - before);
+        }
+        // The symbol table still builds each distinct name once, but nothing
+        // grows with the number of tokens
+        assertTrue(reused.size() > 50000);
+        assertTrue(allocated < 16 * 1024, allocated + " bytes for " + reused.size() + " tokens");
+    }
+
+    private static List<String> lex(String source) {
+        List<String> tokens = new ArrayList<>();
+        for (Token token : new LexicalAnalyzer(source).tokenize()) {
+            tokens.add(token.getType() + " " + token.getValue());
+        }
+        return tokens;
+    }
+
+    private static String error(String source) {
+        return assertThrows(RuntimeException.class, () -> new LexicalAnalyzer(source).tokenize()).getMessage();
+    }
+}
@@ -0,0 +1,90 @@
+package Lexer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Lexing a mapped file must give what lexing the same text as a String gives,
+// with every token pointing at its bytes in the mapping
+class MappedSourceTest {
+
+    @Test
+    void lexesAsTheDecodedText(@TempDir Path dir) throws IOException {
+        Random random = new Random(6);
+        for (int round = 0; round < 20; round++) {
+            String text = RandomPrograms.program(random, random.nextInt(2000));
+            MappedSource source = map(dir, text);
+            List<Token> tokens = new LexicalAnalyzer(source).tokenize();
+            assertEquals(RandomPrograms.describe(new LexicalAnalyzer(text).tokenize()), RandomPrograms.describe(tokens));
+            // Offsets count bytes, not chars
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            for (Token token : tokens) {
+                assertEquals(new String(bytes, token.getStart(), token.getLength(), StandardCharsets.UTF_8), token.getValue());
+            }
+        }
+    }
+
+    @Test
+    void reportsErrorsAsTheDecodedText(@TempDir Path dir) throws IOException {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            String text = RandomPrograms.programWithErrors(random, random.nextInt(100));
+            MappedSource source = map(dir, text);
+            assertEquals(errorOf(text), errorOf(source), text);
+        }
+    }
+
+    @Test
+    void seesBytesAndDecodesUtf8(@TempDir Path dir) throws IOException {
+        MappedSource source = map(dir, "a \"héllo\" b");
+        byte[] bytes = "a \"héllo\" b".getBytes(StandardCharsets.UTF_8);
+        assertEquals(bytes.length, source.length());
+        for (int i = 0; i < bytes.length; i++) {
+            assertEquals(bytes[i] & 0xFF, source.charAt(i));
+        }
+        assertEquals("\"héllo\"", source.subSequence(2, 10).toString());
+        assertEquals("llo\" b", source.subSequence(2, 12).subSequence(4, 10).toString());
+        assertEquals("", map(dir, "").toString());
+    }
+
+    @Test
+    void readsSmallFilesAndMapsLargeOnes(@TempDir Path dir) throws IOException {
+        String text = RandomPrograms.program(new Random(8), 300);
+        Path file = Files.createTempFile(dir, "program", ".cmx");
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        int size = (int) Files.size(file);
+        MappedSource read = MappedSource.open(file, size + 1);
+        MappedSource mapped = MappedSource.open(file, size);
+        assertFalse(read.bytes().isDirect());
+        assertTrue(mapped.bytes().isDirect());
+        assertEquals(size, read.length());
+        assertEquals(text, read.toString());
+        assertEquals(RandomPrograms.describe(new LexicalAnalyzer(mapped).tokenizeToBuffer()),
+                RandomPrograms.describe(new LexicalAnalyzer(read).tokenizeToBuffer()));
+        assertEquals("", MappedSource.open(Files.createTempFile(dir, "empty", ".cmx")).toString());
+    }
+
+    // The message lexing stops with, or null if it lexes to the end
+    private static String errorOf(CharSequence source) {
+        try {
+            new LexicalAnalyzer(source).tokenize();
+            return null;
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static MappedSource map(Path dir, String text) throws IOException {
+        Path file = Files.createTempFile(dir, "program", ".cmx");
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        return MappedSource.map(file);
+    }
+}
@@ -0,0 +1,69 @@
+package Lexer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Hopcroft minimization must keep every DFA's language, and for the combined
+// scanner DFA which rule wins each match, while never adding states
+class MinimizationTest {
+    @Test
+    void tokenDFAsAcceptTheSameStrings() {
+        Random random = new Random(1);
+        for (String[] spec : DFAStore.TOKEN_SPECS) {
+            DFA subset = unminimized(() -> DFAConverter.convertNFAtoDFA(ThompsonConstruction.buildNFAFromRegex(spec[1])));
+            DFA minimal = DFAConverter.minimize(subset);
+            assertTrue(minimal.stateCount() <= subset.stateCount(), spec[0]);
+            for (int i = 0; i < 20000; i++) {
+                String s = RandomPrograms.text(random, 10);
+                assertEquals(longestMatch(subset, s), longestMatch(minimal, s), spec[0] + " on [" + s + "]");
+            }
+        }
+    }
+
+    @Test
+    void scannerDFAPicksTheSameRules() {
+        List<NFA> rules = new ArrayList<>();
+        for (String[] spec : DFAStore.TOKEN_SPECS) {
+            rules.add(ThompsonConstruction.buildNFAFromRegex(spec[1]));
+        }
+        DFA subset = unminimized(() -> DFAConverter.convertRulesToDFA(rules));
+        DFA minimal = DFAConverter.minimize(subset);
+        assertTrue(minimal.stateCount() < subset.stateCount());
+        Random random = new Random(2);
+        for (int i = 0; i < 200000; i++) {
+            String s = RandomPrograms.text(random, 12);
+            assertEquals(longestMatch(subset, s), longestMatch(minimal, s), "[" + s + "]");
+        }
+    }
+
+    private static DFA unminimized(Supplier<DFA> build) {
+        boolean minimization = DFAConverter.isMinimization();
+        DFAConverter.setMinimization(false);
+        try {
+            return build.get();
+        } finally {
+            DFAConverter.setMinimization(minimization);
+        }
+    }
+
+    // "length/rule" for the longest prefix of s the DFA accepts, "none" if it
+    // accepts no prefix; the rule is 0 for a single-rule DFA
+    private static String longestMatch(DFA dfa, String s) {
+        String match = "none";
+        State state = dfa.startState;
+        for (int i = 0; ; i++) {
+            if (dfa.finalStates.contains(state)) {
+                match = i + "/" + dfa.acceptRule.getOrDefault(state, 0);
+            }
+            if (i == s.length() || (state = dfa.next(state, s.charAt(i))) == null) {
+                return match;
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package Lexer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Number values decoded from the source chars must be exactly what
+// Long.parseLong and Double.parseDouble give for the lexeme, and a value that
+// does not fit must be an error rather than a wrapped or infinite number
+class NumberLiteralsTest {
+
+    @Test
+    void wholeNumbersAtTheLongBoundaries() {
+        assertWhole("9223372036854775807");
+        assertWhole("-9223372036854775808");
+        assertWhole("9223372036854775806");
+        assertWhole("-9223372036854775807");
+        assertWhole("0");
+        assertWhole("-0");
+        assertWhole("000000000000000000000000000042");
+        assertOutOfRange("9223372036854775808");
+        assertOutOfRange("-9223372036854775809");
+        assertOutOfRange("10000000000000000000");
+        assertOutOfRange("-99999999999999999999999");
+    }
+
+    @Test
+    void wholeNumbersMatchParseLong() {
+        Random random = new Random(30);
+        for (int i = 0; i < 200000; i++) {
+            String lexeme = digits(random, 1 + random.nextInt(21));
+            if (random.nextBoolean()) {
+                lexeme = "-" + lexeme;
+            }
+            Long expected;
+            try {
+                expected = Long.parseLong(lexeme);
+            } catch (NumberFormatException e) {
+                expected = null;
+            }
+            if (expected == null) {
+                assertOutOfRange(lexeme);
+            } else {
+                assertEquals(expected, NumberLiterals.wholeValue(lexeme, 0, lexeme.length()), lexeme);
+            }
+        }
+    }
+
+    @Test
+    void decimalsAroundTheFastPathCutoff() {
+        // 2^53 is the largest digit string that is read exactly; one more takes the slow path
+        assertDecimal("9007199254740992.0");
+        assertDecimal("9007199254740993.0");
+        assertDecimal("900719925474099.3");
+        assertDecimal("900719925474099.25");
+        assertDecimal("-9007199254740993.5");
+        assertDecimal("0.9007199254740993");
+        // 22 digits after the point is the most 10^fraction holds exactly
+        assertDecimal("0." + "1".repeat(15) + "0".repeat(7));
+        assertDecimal("0." + "0".repeat(21) + "1");
+        assertDecimal("0." + "0".repeat(22) + "1");
+        assertDecimal("1." + "0".repeat(22));
+        assertDecimal("1." + "0".repeat(23));
+    }
+
+    @Test
+    void decimalsRoundAsParseDouble() {
+        for (String lexeme : new String[] {
+            "0.1", "0.2", "0.3", "2.675", "1.005", "-0.0", "0.0", "3.14159265358979323846",
+            "17976931348623157" + "0".repeat(292) + ".0", "4.9", "123456789012345678.9",
+            "0." + "0".repeat(323) + "49", "0." + "0".repeat(400) + "1", "2.2250738585072011" + "0".repeat(10),
+            "9007199254740991.5", "9007199254740992.5", "4503599627370497.5",
+        }) {
+            assertDecimal(lexeme);
+        }
+        assertDecimalOutOfRange("1" + "0".repeat(309) + ".0");
+        assertDecimalOutOfRange("-1" + "9".repeat(400) + ".5");
+    }
+
+    @Test
+    void decimalsMatchParseDouble() {
+        Random random = new Random(31);
+        for (int i = 0; i < 200000; i++) {
+            String lexeme = digits(random, 1 + random.nextInt(random.nextBoolean() ? 8 : 20)) + "."
+                    + digits(random, 1 + random.nextInt(random.nextBoolean() ? 6 : 26));
+            if (random.nextBoolean()) {
+                lexeme = "-" + lexeme;
+            }
+            assertDecimal(lexeme);
+        }
+    }
+
+    @Test
+    void lexedNumbersCarryTheirValues() {
+        String source = "x = -12; y = 3.25;\nz = 9223372036854775807 0.1";
+        TokenBuffer tokens = new LexicalAnalyzer(source).tokenizeToBuffer();
+        int checked = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            String text = tokens.text(i).toString();
+            if (tokens.type(i) == TokenType.WHOLE_NUMBER) {
+                assertEquals(Long.parseLong(text), tokens.wholeValue(i));
+                checked++;
+            } else if (tokens.type(i) == TokenType.DECIMAL) {
+                assertEquals(Double.parseDouble(text), tokens.decimalValue(i));
+                checked++;
+            }
+        }
+        assertEquals(4, checked);
+    }
+
+    @Test
+    void outOfRangeIsALexicalError() {
+        String source = "x = 1;\ny = 9223372036854775808;\nz = -1" + "0".repeat(400) + ".5;";
+        RuntimeException error = assertThrows(RuntimeException.class, () -> new LexicalAnalyzer(source).tokenizeToBuffer());
+        assertEquals("Number out of range at line 2: 9223372036854775808", error.getMessage());
+
+        LexicalAnalyzer recovering = new LexicalAnalyzer(source);
+        recovering.setErrorRecovery(true);
+        TokenBuffer tokens = recovering.tokenizeToBuffer();
+        assertEquals(2, recovering.getDiagnostics().size());
+        assertEquals(3, recovering.getDiagnostics().get(1).getLine());
+        assertEquals(TokenType.ERROR, tokens.type(6));
+        assertEquals(TokenType.ERROR, tokens.type(10));
+    }
+
+    private static void assertWhole(String lexeme) {
+        assertEquals(Long.parseLong(lexeme), NumberLiterals.wholeValue(lexeme, 0, lexeme.length()), lexeme);
+        // Inside a longer text as well, as the lexer calls it
+        String text = "x=" + lexeme + ";";
+        assertEquals(Long.parseLong(lexeme), NumberLiterals.wholeValue(text, 2, text.length() - 1), lexeme);
+    }
+
+    private static void assertOutOfRange(String lexeme) {
+        assertThrows(NumberFormatException.class, () -> NumberLiterals.wholeValue(lexeme, 0, lexeme.length()), lexeme);
+    }
+
+    private static void assertDecimal(String lexeme) {
+        double expected = Double.parseDouble(lexeme);
+        // Compared bit for bit, so -0.0 and 0.0 differ
+        assertEquals(Double.doubleToRawLongBits(expected),
+                Double.doubleToRawLongBits(NumberLiterals.decimalValue(lexeme, 0, lexeme.length())), lexeme);
+        String text = " " + lexeme + ")";
+        assertEquals(expected, NumberLiterals.decimalValue(text, 1, text.length() - 1), lexeme);
+    }
+
+    private static void assertDecimalOutOfRange(String lexeme) {
+        assertThrows(NumberFormatException.class, () -> NumberLiterals.decimalValue(lexeme, 0, lexeme.length()), lexeme);
+    }
+
+    private static String digits(Random random, int count) {
+        StringBuilder digits = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            digits.append((char) ('0' + random.nextInt(10)));
+        }
+        return digits.toString();
+    }
+}
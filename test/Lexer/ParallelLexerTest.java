@@ -0,0 +1,91 @@
+package Lexer;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// ParallelLexer must give LexicalAnalyzer's tokens, symbols and first error for
+// any chunk size, so with chunk boundaries inside comments, strings and tokens
+class ParallelLexerTest {
+    private static final int[] CHUNK_SIZES = {1, 5, 17, 64, 4096};
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void startPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void stopPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    void matchesLexicalAnalyzerForEveryChunkSize() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            String source = RandomPrograms.program(random, random.nextInt(300));
+            if (round % 10 == 0) {
+                source += "@ unclosed\n\n x";
+            } else if (round % 10 == 5) {
+                source += "@";
+            }
+            assertSameAsSequential(source);
+        }
+    }
+
+    @Test
+    void reportsTheFirstErrorAsLexicalAnalyzerDoes() {
+        Random random = new Random(8);
+        for (int round = 0; round < 200; round++) {
+            assertSameAsSequential(RandomPrograms.programWithErrors(random, random.nextInt(200)));
+        }
+    }
+
+    @Test
+    void lexesMappedFiles(@TempDir Path dir) throws IOException {
+        String source = RandomPrograms.program(new Random(9), 5000);
+        Path file = dir.resolve("program.cmx");
+        Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+        List<String> expected = RandomPrograms.describe(new LexicalAnalyzer(source).tokenizeToBuffer());
+        for (int chunkSize : CHUNK_SIZES) {
+            ParallelLexer lexer = new ParallelLexer(MappedSource.map(file), pool, chunkSize);
+            assertEquals(expected, RandomPrograms.describe(lexer.tokenizeToBuffer()), "chunk size " + chunkSize);
+        }
+    }
+
+    private static void assertSameAsSequential(String source) {
+        LexicalAnalyzer sequential = new LexicalAnalyzer(source);
+        String expected = lex(sequential::tokenizeToBuffer);
+        for (int chunkSize : CHUNK_SIZES) {
+            ParallelLexer parallel = new ParallelLexer(source, pool, chunkSize);
+            assertEquals(expected, lex(parallel::tokenizeToBuffer), "chunk size " + chunkSize);
+            if (!expected.startsWith("error: ")) {
+                assertEquals(RandomPrograms.describe(sequential.getSymbolTable()),
+                        RandomPrograms.describe(parallel.getSymbolTable()), "chunk size " + chunkSize);
+            }
+        }
+    }
+
+    // The tokens one per line, or the error lexing stopped with
+    private static String lex(Supplier<TokenBuffer> lexer) {
+        try {
+            return String.join("\n", RandomPrograms.describe(lexer.get()));
+        } catch (RuntimeException e) {
+            return "error: " + e.getMessage();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package Lexer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// ProjectLexer must give the same global table whatever the parallelism: each
+// name's first definition in path order, with its line in its own file, as a
+// sequential merge in path order gives it
+class ProjectLexerTest {
+
+    @Test
+    void firstDefinitionWins(@TempDir Path dir) throws IOException {
+        write(dir.resolve("b/late.cmx"), "\n\ny = 3;\nz = 4;\n");
+        write(dir.resolve("a.cmx"), "x = 1;\n\n\n\ny = 2;\ny = 5;\n");
+        write(dir.resolve("b/early.cmx"), "z = 6;\nw = 7;\n");
+        ProjectLexer project = new ProjectLexer(dir);
+        project.lex();
+        GlobalSymbolTable table = project.getSymbolTable();
+        assertEquals(List.of("w 2 b/early.cmx", "x 1 a.cmx", "y 5 a.cmx", "z 1 b/early.cmx"), describe(dir, table));
+    }
+
+    @Test
+    void sameTableAtEveryParallelism(@TempDir Path dir) throws IOException {
+        Random random = new Random(25);
+        for (int i = 0; i < 40; i++) {
+            String name = (i % 3 == 0 ? "" : "sub" + i % 4 + "/") + "file" + random.nextInt(1000) + "_" + i + ".cmx";
+            write(dir.resolve(name), RandomPrograms.program(random, random.nextInt(400)));
+        }
+        write(dir.resolve("notes.txt"), "not a program");
+
+        List<String> expected = sequentialMerge(dir);
+        for (int parallelism : new int[] {1, 2, 4, 8}) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                ProjectLexer project = new ProjectLexer(dir, pool);
+                List<ProjectLexer.FileResult> files = project.lex();
+                assertEquals(40, files.size());
+                for (ProjectLexer.FileResult file : files) {
+                    String text = Files.readString(file.getPath());
+                    assertEquals(new LexicalAnalyzer(text).tokenizeToBuffer().size(), file.getTokenCount(), file.getPath().toString());
+                }
+                assertEquals(expected, describe(dir, project.getSymbolTable()), "parallelism " + parallelism);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    @Test
+    void mapsLargeFilesAndReadsTheRest(@TempDir Path dir) throws IOException {
+        Random random = new Random(26);
+        StringBuilder large = new StringBuilder();
+        while (large.length() <= MappedSource.MAP_THRESHOLD) {
+            large.append(RandomPrograms.program(random, 1000));
+        }
+        write(dir.resolve("large.cmx"), large.toString());
+        for (int i = 0; i < 20; i++) {
+            write(dir.resolve("small" + i + ".cmx"), RandomPrograms.program(random, random.nextInt(100)));
+        }
+        ProjectLexer project = new ProjectLexer(dir);
+        for (ProjectLexer.FileResult file : project.lex()) {
+            assertNull(file.getError());
+            String text = Files.readString(file.getPath());
+            assertEquals(new LexicalAnalyzer(text).tokenizeToBuffer().size(), file.getTokenCount(), file.getPath().toString());
+        }
+        assertEquals(sequentialMerge(dir), describe(dir, project.getSymbolTable()));
+    }
+
+    @Test
+    void badFilesReportErrorsWithoutStoppingTheRest(@TempDir Path dir) throws IOException {
+        write(dir.resolve("bad.cmx"), "x = 1;\nBad = 2;\ny = 1.2.3;\n");
+        write(dir.resolve("good.cmx"), "z = 3;\n");
+        ProjectLexer project = new ProjectLexer(dir);
+        List<ProjectLexer.FileResult> files = project.lex();
+        assertEquals(dir.resolve("bad.cmx"), files.get(0).getPath());
+        List<String> messages = new ArrayList<>();
+        for (Diagnostic diagnostic : files.get(0).getDiagnostics()) {
+            messages.add(diagnostic.getMessage());
+        }
+        assertEquals(List.of("Invalid identifier at line 2: Bad", "Invalid number at line 3: 1.2.3"), messages);
+        assertEquals(List.of(), files.get(1).getDiagnostics());
+        assertNull(files.get(1).getError());
+        assertEquals(List.of("x 1 bad.cmx", "y 3 bad.cmx", "z 1 good.cmx"), describe(dir, project.getSymbolTable()));
+    }
+
+    // Each file lexed on its own, merged in path order keeping the first sighting
+    private static List<String> sequentialMerge(Path dir) throws IOException {
+        List<Path> files;
+        try (var walk = Files.walk(dir)) {
+            files = walk.filter(file -> file.toString().endsWith(".cmx")).sorted().toList();
+        }
+        Map<String, String> first = new LinkedHashMap<>();
+        for (Path file : files) {
+            LexicalAnalyzer analyzer = new LexicalAnalyzer(Files.readString(file));
+            analyzer.tokenizeToBuffer();
+            for (Symbol symbol : analyzer.getSymbolTable().getSymbols()) {
+                first.putIfAbsent(symbol.getName(), symbol.getName() + " " + symbol.getLineNumber() + " "
+                        + dir.relativize(file).toString().replace('\\', '/'));
+            }
+        }
+        List<String> described = new ArrayList<>(first.values());
+        described.sort(null);
+        return described;
+    }
+
+    // One "name line file" entry per symbol, by name
+    private static List<String> describe(Path dir, GlobalSymbolTable table) {
+        List<String> described = new ArrayList<>();
+        for (GlobalSymbolTable.GlobalSymbol symbol : table.getSymbols()) {
+            described.add(symbol.getName() + " " + symbol.getLineNumber() + " "
+                    + dir.relativize(symbol.getFile()).toString().replace('\\', '/'));
+        }
+        return described;
+    }
+
+    private static void write(Path file, String text) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+    }
+}
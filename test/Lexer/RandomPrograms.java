@@ -0,0 +1,95 @@
+package Lexer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Random .cmx sources for checking the other lexers against LexicalAnalyzer.
+// The fragments cover every token type, comments and strings that span lines
+// and non-ASCII text inside them, so buffer and chunk boundaries end up
+// everywhere, including inside multi-line tokens.
+final class RandomPrograms {
+    private static final String[] FRAGMENTS = {
+        "global int x;\n", "local float y = -3.25;\n", "char c = 'a';\n", "bool flag = true;\n",
+        "a*5 + b ^ 2 % 7;\n", "x = -10;\n", "input(n);\n", "{ zz = qq; }\n", "12.5 ", "0 ",
+        "# note here\n", "# café\n", "#\n", "@ long comment\n with\n lines @\n", "@@", "@\n\n\n@",
+        "output(\"str \n spanning lines\");\n", "\"héllo\" ", "\"\"", "\n\n", "\t \r\n", "  ",
+    };
+
+    // Lexemes the ERROR rule matches: a capital in an identifier, a number
+    // running into letters or extra dots
+    private static final String[] ERRORS = {"Bad", "x1", "12ab", "1.2.3", "-3x"};
+
+    // Chars that cannot start any token, next to the ERROR rule's lexemes
+    private static final String[] INVALID = {"$", "~~", "?!"};
+
+    // Chars for short random strings that start, continue or end every token type
+    private static final String ALPHABET = "abzAZ09-.@\"#'%+=*^;(){} \t\nfgtrueé";
+
+    private RandomPrograms() {
+    }
+
+    static String program(Random random, int fragments) {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < fragments; i++) {
+            source.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+        }
+        return source.toString();
+    }
+
+    // A program with a few ERROR lexemes, each on its own between spaces
+    static String programWithErrors(Random random, int fragments) {
+        StringBuilder source = new StringBuilder(program(random, fragments));
+        for (int errors = 1 + random.nextInt(4); errors > 0; errors--) {
+            int at = source.indexOf("\n", random.nextInt(source.length() + 1));
+            source.insert(at < 0 ? source.length() : at, " " + ERRORS[random.nextInt(ERRORS.length)] + " ");
+        }
+        return source.toString();
+    }
+
+    // The source with up to two runs of chars no token starts with, each on its
+    // own between spaces
+    static String withInvalidChars(Random random, String source) {
+        StringBuilder broken = new StringBuilder(source);
+        for (int count = random.nextInt(3); count > 0; count--) {
+            int at = broken.indexOf("\n", random.nextInt(broken.length() + 1));
+            broken.insert(at < 0 ? broken.length() : at, " " + INVALID[random.nextInt(INVALID.length)] + " ");
+        }
+        return broken.toString();
+    }
+
+    // Up to maxLength chars, for matching single regexes rather than lexing
+    static String text(Random random, int maxLength) {
+        StringBuilder text = new StringBuilder();
+        for (int length = random.nextInt(maxLength + 1); length > 0; length--) {
+            text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return text.toString();
+    }
+
+    // One "type value line" entry per token
+    static List<String> describe(TokenBuffer tokens) {
+        List<String> described = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            described.add(tokens.token(i) + " " + tokens.line(i));
+        }
+        return described;
+    }
+
+    static List<String> describe(List<Token> tokens) {
+        List<String> described = new ArrayList<>(tokens.size());
+        for (Token token : tokens) {
+            described.add(token.toString());
+        }
+        return described;
+    }
+
+    // One "name value type line" entry per symbol
+    static List<String> describe(SymbolTable table) {
+        List<String> described = new ArrayList<>();
+        for (Symbol symbol : table.getSymbols()) {
+            described.add(symbol.getName() + " " + symbol.getValue() + " " + symbol.getType() + " " + symbol.getLineNumber());
+        }
+        return described;
+    }
+}
@@ -0,0 +1,133 @@
+package Lexer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The perfect hash must classify every reserved word as its type and every
+// other string, however close to a reserved word, as an ordinary identifier
+class ReservedWordsTest {
+
+    @Test
+    void classifiesEveryReservedWord() {
+        Map<String, TokenType> words = words(DFAStore.RESERVED_WORDS);
+        assertEquals(words.size(), DFAStore.RESERVED.size());
+        for (Map.Entry<String, TokenType> word : words.entrySet()) {
+            assertEquals(word.getValue(), DFAStore.RESERVED.classify(word.getKey()), word.getKey());
+        }
+        assertEquals(TokenType.KEYWORD, DFAStore.RESERVED.classify("local"));
+    }
+
+    @Test
+    void rejectsNearMisses() {
+        Map<String, TokenType> words = words(DFAStore.RESERVED_WORDS);
+        List<String> misses = new ArrayList<>();
+        for (String word : words.keySet()) {
+            for (int i = 0; i <= word.length(); i++) {
+                misses.add(word.substring(0, i));
+                misses.add(word.substring(i));
+                for (char c = 'a'; c <= 'z'; c++) {
+                    // Every one-char insertion, and every substitution, which keeps
+                    // the length and mostly the first and last chars the hash reads
+                    misses.add(word.substring(0, i) + c + word.substring(i));
+                    if (i < word.length()) {
+                        misses.add(word.substring(0, i) + c + word.substring(i + 1));
+                    }
+                }
+                if (i < word.length()) {
+                    misses.add(word.substring(0, i) + word.substring(i + 1));
+                }
+            }
+            misses.add(word.toUpperCase());
+            misses.add(word + word);
+        }
+        for (String miss : misses) {
+            assertEquals(words.get(miss), DFAStore.RESERVED.classify(miss), miss);
+        }
+    }
+
+    @Test
+    void rejectsEveryShortIdentifier() {
+        Map<String, TokenType> words = words(DFAStore.RESERVED_WORDS);
+        char[] name = new char[4];
+        for (int length = 1; length <= 4; length++) {
+            int count = 1;
+            for (int i = 0; i < length; i++) {
+                count *= 26;
+            }
+            for (int n = 0; n < count; n++) {
+                for (int i = 0, rest = n; i < length; i++, rest /= 26) {
+                    name[i] = (char) ('a' + rest % 26);
+                }
+                String s = new String(name, 0, length);
+                assertEquals(words.get(s), DFAStore.RESERVED.classify(s), s);
+            }
+        }
+    }
+
+    @Test
+    void classifiesRangesOfAMappedFile(@TempDir Path dir) throws IOException {
+        String text = "x intx int\n\"local\" outputs output true# falsey";
+        Path file = dir.resolve("words.cmx");
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        MappedSource source = MappedSource.map(file);
+        for (int start = 0; start < text.length(); start++) {
+            for (int end = start; end <= text.length(); end++) {
+                TokenType expected = DFAStore.RESERVED.classify(text.substring(start, end));
+                assertEquals(expected, DFAStore.RESERVED.classify(source, start, end), start + "-" + end);
+            }
+        }
+        assertEquals(TokenType.KEYWORD, DFAStore.RESERVED.classify(source, 7, 10));
+        assertEquals(TokenType.KEYWORD, DFAStore.RESERVED.classify(source, 12, 17));
+        assertEquals(TokenType.FUNCTION, DFAStore.RESERVED.classify(source, 27, 33));
+        assertNull(DFAStore.RESERVED.classify(source, 19, 26));
+    }
+
+    @Test
+    void buildsAPerfectHashForOtherWordSets() {
+        Random random = new Random(29);
+        for (int round = 0; round < 200; round++) {
+            List<String> row = new ArrayList<>(List.of("KEYWORD"));
+            for (int n = 1 + random.nextInt(60); n > 0; n--) {
+                String word = RandomPrograms.text(random, 8).replaceAll("[^a-z]", "");
+                if (!word.isEmpty() && !row.subList(1, row.size()).contains(word)) {
+                    row.add(word);
+                }
+            }
+            String[][] rows = {row.toArray(new String[0])};
+            ReservedWords reserved = new ReservedWords(rows);
+            assertEquals(row.size() - 1, reserved.size());
+            for (String word : row.subList(1, row.size())) {
+                assertEquals(TokenType.KEYWORD, reserved.classify(word), word);
+                assertNull(reserved.classify(word + "x"), word);
+            }
+        }
+    }
+
+    @Test
+    void rejectsDuplicateAndEmptyWords() {
+        assertThrows(RuntimeException.class, () -> new ReservedWords(new String[][] {{"KEYWORD", "int"}, {"BOOLEAN", "int"}}));
+        assertThrows(RuntimeException.class, () -> new ReservedWords(new String[][] {{"KEYWORD", ""}}));
+    }
+
+    private static Map<String, TokenType> words(String[][] rows) {
+        Map<String, TokenType> words = new HashMap<>();
+        for (String[] row : rows) {
+            for (int i = 1; i < row.length; i++) {
+                words.put(row[i], TokenType.fromLabel(row[0]));
+            }
+        }
+        return words;
+    }
+}
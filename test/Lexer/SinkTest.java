@@ -0,0 +1,145 @@
+package Lexer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The text sink must write what printing Token.toString() and the symbol table
+// used to, and the JSON sink must escape as LexerDaemon does, for every char a
+// comment or string may hold, across buffer drains and from mapped files
+class SinkTest {
+    // Comments and strings with control chars, quotes, backslashes, line
+    // breaks, non-ASCII text, a surrogate pair and a lone surrogate
+    private static final String ODD_TEXT = "x = \"a" + (char) 1 + "b" + (char) 0x1F + "\\" + (char) 0x7F + "\";\n"
+            + "@ multi\r\n line\t\"comment\" " + (char) 0 + " @\n"
+            + "# é€ " + (char) 0xD83D + (char) 0xDE00 + " " + (char) 0xDC00 + (char) 0xFFFF + "\n"
+            + "\"\n\n\" y\n";
+
+    @Test
+    void textSinkWritesTheOldPrintedLines() throws IOException {
+        Random random = new Random(23);
+        for (String source : new String[] {ODD_TEXT, RandomPrograms.program(random, 10000), ""}) {
+            LexicalAnalyzer lexer = new LexicalAnalyzer(source);
+            TokenBuffer tokens = lexer.tokenizeToBuffer();
+            StringBuilder expected = new StringBuilder();
+            for (Token token : tokens.asList()) {
+                expected.append(token).append('\n');
+            }
+            expected.append("Symbol Table:\n").append("Name\tValue\tType\tLine Number\n");
+            for (Symbol symbol : lexer.getSymbolTable().getSymbols()) {
+                expected.append(symbol.getName() + "\t"
+                        + (symbol.getValue() != null ? symbol.getValue() : "null") + "\t"
+                        + symbol.getType() + "\t"
+                        + symbol.getLineNumber()).append('\n');
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (TextSink sink = new TextSink(out)) {
+                sink.tokens(tokens);
+                sink.symbols(lexer.getSymbolTable());
+            }
+            assertEquals(utf8(expected), out.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void jsonSinkEscapesAsTheDaemon() throws IOException {
+        Random random = new Random(24);
+        for (String source : new String[] {ODD_TEXT, RandomPrograms.program(random, 10000)}) {
+            LexicalAnalyzer lexer = new LexicalAnalyzer(source);
+            TokenBuffer tokens = lexer.tokenizeToBuffer();
+            StringBuilder expected = new StringBuilder();
+            for (int i = 0; i < tokens.size(); i++) {
+                expected.append("{\"type\":\"").append(tokens.type(i).getLabel()).append("\",\"text\":");
+                LexerDaemon.appendString(expected, tokens.text(i));
+                expected.append(",\"line\":").append(tokens.line(i)).append("}\n");
+            }
+            for (Symbol symbol : lexer.getSymbolTable().getSymbols()) {
+                expected.append("{\"symbol\":");
+                LexerDaemon.appendString(expected, symbol.getName());
+                expected.append(",\"value\":");
+                if (symbol.getValue() == null) {
+                    expected.append("null");
+                } else {
+                    LexerDaemon.appendString(expected, symbol.getValue());
+                }
+                expected.append(",\"type\":");
+                LexerDaemon.appendString(expected, symbol.getType());
+                expected.append(",\"line\":").append(symbol.getLineNumber()).append("}\n");
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (JsonLinesSink sink = new JsonLinesSink(out)) {
+                sink.tokens(tokens);
+                sink.symbols(lexer.getSymbolTable());
+            }
+            assertEquals(utf8(expected), out.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void mappedFilesPrintAsTheirText(@TempDir Path dir) throws IOException {
+        Random random = new Random(26);
+        for (String text : new String[] {ODD_TEXT, RandomPrograms.program(random, 10000)}) {
+            Path file = dir.resolve("program.cmx");
+            Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+            for (boolean json : new boolean[] {false, true}) {
+                assertArrayEquals(print(new LexicalAnalyzer(utf8(text)), json),
+                        print(new LexicalAnalyzer(MappedSource.map(file)), json), json ? "json" : "text");
+            }
+        }
+    }
+
+    @Test
+    void oddTextKeepsItsCharsInTheLexemes() {
+        List<Token> tokens = new LexicalAnalyzer(ODD_TEXT).tokenize();
+        List<String> described = tokens.stream().map(Token::toString).toList();
+        assertTrue(described.contains("Token{type='STRING_LITERAL', value='\"a" + (char) 1 + "b" + (char) 0x1F + "\\"
+                + (char) 0x7F + "\"'}"), described.toString());
+        assertTrue(described.contains("Token{type='STRING_LITERAL', value='\"\n\n\"'}"), described.toString());
+        assertTrue(tokens.stream().anyMatch(token -> token.getValue().startsWith("@ multi\r\n")));
+    }
+
+    @Test
+    void utf8LengthCountsWhatIsWritten() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (TextSink sink = new TextSink(out)) {
+            sink.writeUtf8(ODD_TEXT);
+        }
+        assertEquals(out.size(), BufferedSink.utf8Length(ODD_TEXT, 0, ODD_TEXT.length()));
+        assertEquals(utf8(ODD_TEXT), out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void nullSinksTakeAnything() throws IOException {
+        LexicalAnalyzer lexer = new LexicalAnalyzer(ODD_TEXT);
+        TokenSink.NULL.tokens(lexer.tokenizeToBuffer());
+        SymbolSink.NULL.symbols(lexer.getSymbolTable());
+        TokenSink.NULL.close();
+        SymbolSink.NULL.close();
+    }
+
+    private static byte[] print(LexicalAnalyzer lexer, boolean json) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BufferedSink sink = json ? new JsonLinesSink(out) : new TextSink(out)) {
+            sink.tokens(lexer.tokenizeToBuffer());
+            sink.symbols(lexer.getSymbolTable());
+        }
+        return out.toByteArray();
+    }
+
+    // What the text becomes once encoded and decoded again: a lone surrogate
+    // turns into '?'
+    private static String utf8(CharSequence text) {
+        return new String(text.toString().getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+    }
+}
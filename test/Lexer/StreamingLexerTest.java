@@ -0,0 +1,132 @@
+package Lexer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// StreamingLexer must give the tokens, lines, symbols and errors LexicalAnalyzer
+// gives for the same text, whatever the buffer size, and refuse a token longer
+// than its limit instead of buffering the rest of the input
+class StreamingLexerTest {
+
+    @Test
+    void matchesLexicalAnalyzerForEveryBufferSize() {
+        Random random = new Random(3);
+        for (int round = 0; round < 200; round++) {
+            String source = RandomPrograms.program(random, random.nextInt(300));
+            LexicalAnalyzer reference = new LexicalAnalyzer(source);
+            List<String> expected = RandomPrograms.describe(reference.tokenizeToBuffer());
+            for (int bufferSize : new int[] {1, 7, 64, 4096}) {
+                StreamingLexer lexer = new StreamingLexer(new StringReader(source), bufferSize);
+                assertEquals(expected, drain(lexer), "buffer size " + bufferSize);
+                assertEquals(RandomPrograms.describe(reference.getSymbolTable()),
+                        RandomPrograms.describe(lexer.getSymbolTable()));
+            }
+        }
+    }
+
+    @Test
+    void decodesChannelsAsUtf8() {
+        String source = RandomPrograms.program(new Random(4), 2000);
+        StreamingLexer lexer = new StreamingLexer(
+                Channels.newChannel(new ByteArrayInputStream(source.getBytes(StandardCharsets.UTF_8))));
+        assertEquals(RandomPrograms.describe(new LexicalAnalyzer(source).tokenizeToBuffer()), drain(lexer));
+    }
+
+    @Test
+    void reportsErrorsAsLexicalAnalyzerDoes() {
+        Random random = new Random(5);
+        for (int round = 0; round < 200; round++) {
+            String source = RandomPrograms.withInvalidChars(random, RandomPrograms.programWithErrors(random, random.nextInt(100)));
+            String expected = errorOf(() -> new LexicalAnalyzer(source).tokenizeToBuffer());
+            assertEquals(expected, errorOf(() -> drain(new StreamingLexer(new StringReader(source), 16))), source);
+        }
+    }
+
+    @Test
+    void recoversAsLexicalAnalyzerDoes() {
+        Random random = new Random(6);
+        for (int round = 0; round < 200; round++) {
+            String source = RandomPrograms.withInvalidChars(random, RandomPrograms.programWithErrors(random, random.nextInt(100)));
+            LexicalAnalyzer reference = new LexicalAnalyzer(source);
+            reference.setErrorRecovery(true);
+            List<String> expected = RandomPrograms.describe(reference.tokenizeToBuffer());
+            for (int bufferSize : new int[] {1, 7, 64}) {
+                StreamingLexer lexer = new StreamingLexer(new StringReader(source), bufferSize);
+                lexer.setErrorRecovery(true);
+                assertEquals(expected, drain(lexer), source);
+                assertEquals(describe(reference.getDiagnostics()), describe(lexer.getDiagnostics()), source);
+            }
+        }
+    }
+
+    @Test
+    void invalidRunIsOneTokenAcrossRefills() {
+        String source = "x = " + "$".repeat(100) + ";\ny" + "?".repeat(50);
+        StreamingLexer lexer = new StreamingLexer(new StringReader(source), 16);
+        RuntimeException error = assertThrows(RuntimeException.class, () -> drain(lexer));
+        assertEquals("Invalid token at line 1: " + "$".repeat(100), error.getMessage());
+
+        StreamingLexer recovering = new StreamingLexer(new StringReader(source), 16);
+        recovering.setErrorRecovery(true);
+        assertEquals(List.of("Token{type='IDENTIFIER', value='x'} 1", "Token{type='OPERATOR', value='='} 1",
+                "Token{type='ERROR', value='" + "$".repeat(100) + "'} 1", "Token{type='SYMBOL', value=';'} 1",
+                "Token{type='IDENTIFIER', value='y'} 2", "Token{type='ERROR', value='" + "?".repeat(50) + "'} 2"),
+                drain(recovering));
+        assertEquals(List.of("1 4-104 Invalid token at line 1: " + "$".repeat(100),
+                "2 107-157 Invalid token at line 2: " + "?".repeat(50)), describe(recovering.getDiagnostics()));
+    }
+
+    @Test
+    void refusesATokenLongerThanTheLimit() {
+        String source = "x = 1;\n@ never closed " + "z".repeat(10000);
+        StreamingLexer lexer = new StreamingLexer(new StringReader(source), 64, 1024);
+        RuntimeException error = assertThrows(RuntimeException.class, () -> drain(lexer));
+        assertEquals("Token at line 2 is longer than 1024 chars", error.getMessage());
+
+        // A closed comment below the limit is fine in a smaller buffer
+        String comment = "@" + "z".repeat(1000) + "@";
+        assertEquals(List.of("Token{type='MultiCOMMENT', value='" + comment + "'} 1"),
+                drain(new StreamingLexer(new StringReader(comment), 64, 1024)));
+    }
+
+    @Test
+    void rejectsABufferLargerThanTheLimit() {
+        assertThrows(IllegalArgumentException.class, () -> new StreamingLexer(new StringReader(""), 2048, 1024));
+    }
+
+    private static List<String> drain(StreamingLexer lexer) {
+        List<String> tokens = new ArrayList<>();
+        for (Token token = lexer.nextToken(); token != null; token = lexer.nextToken()) {
+            tokens.add(token + " " + lexer.getTokenLine());
+        }
+        return tokens;
+    }
+
+    // One "line start-end message" entry per diagnostic
+    private static List<String> describe(List<Diagnostic> diagnostics) {
+        List<String> described = new ArrayList<>();
+        for (Diagnostic diagnostic : diagnostics) {
+            described.add(diagnostic.getLine() + " " + diagnostic.getStart() + "-" + diagnostic.getEnd() + " " + diagnostic.getMessage());
+        }
+        return described;
+    }
+
+    // The message the lexer stops with, or null if it lexes to the end
+    private static String errorOf(Runnable lex) {
+        try {
+            lex.run();
+            return null;
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package Lexer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Adding a name by its range in the source must act like adding it as a
+// String: the first sighting of a name wins, however large the index grows
+class SymbolTableTest {
+
+    @Test
+    void rangesActLikeStrings() {
+        Random random = new Random(13);
+        SymbolTable byString = new SymbolTable();
+        SymbolTable byRange = new SymbolTable();
+        StringBuilder source = new StringBuilder();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            String name = name(random);
+            int start = source.length();
+            source.append(name).append(' ');
+            byString.addSymbol(name, "UNKNOWN", i);
+            byRange.addSymbol(source, start, start + name.length(), "UNKNOWN", i);
+            names.add(name);
+        }
+        assertEquals(byString.getSymbols().size(), byRange.getSymbols().size());
+        for (String name : names) {
+            assertEquals(byString.getSymbol(name).getLineNumber(), byRange.getSymbol(name).getLineNumber(), name);
+        }
+        assertNull(byRange.getSymbol("notaname"));
+    }
+
+    @Test
+    void firstSightingWins() {
+        SymbolTable table = new SymbolTable();
+        String source = "abc ab abc";
+        table.addSymbol(source, 0, 3, "UNKNOWN", 1);
+        table.addSymbol(source, 4, 6, "UNKNOWN", 2);
+        table.addSymbol(source, 7, 10, "UNKNOWN", 3);
+        table.addSymbol("ab", "UNKNOWN", 4);
+        assertEquals(2, table.getSymbols().size());
+        assertEquals(1, table.getSymbol("abc").getLineNumber());
+        assertEquals(2, table.getSymbol("ab").getLineNumber());
+    }
+
+    // Short names, so many of them repeat
+    private static String name(Random random) {
+        StringBuilder name = new StringBuilder();
+        for (int length = 1 + random.nextInt(4); length > 0; length--) {
+            name.append((char) ('a' + random.nextInt(26)));
+        }
+        return name.toString();
+    }
+}
@@ -0,0 +1,170 @@
+package Lexer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// TokenBuffer must hand back every token as it was added, however often it
+// grows, through the accessors, the Cursor and the list view alike
+class TokenBufferTest {
+
+    @Test
+    void keepsTokensAcrossGrowth() {
+        String source = "x = 1;\n".repeat(1000);
+        TokenBuffer tokens = new TokenBuffer(source, 1);
+        for (int i = 0; i < 1000; i++) {
+            tokens.add(TokenType.IDENTIFIER, 7 * i, 7 * i + 1, i + 1);
+            tokens.add(TokenType.WHOLE_NUMBER, 7 * i + 4, 7 * i + 5, i + 1);
+        }
+        assertEquals(2000, tokens.size());
+        assertSame(source, tokens.getSource());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(TokenType.IDENTIFIER, tokens.type(2 * i));
+            assertEquals("x", tokens.text(2 * i).toString());
+            assertEquals(7 * i + 4, tokens.start(2 * i + 1));
+            assertEquals(1, tokens.length(2 * i + 1));
+            assertEquals(i + 1, tokens.line(2 * i + 1));
+            assertEquals("Token{type='WHOLE_NUMBER', value='1'}", tokens.token(2 * i + 1).toString());
+        }
+    }
+
+    @Test
+    void cursorAndListViewAgreeWithTheAccessors() {
+        TokenBuffer tokens = new LexicalAnalyzer(RandomPrograms.program(new Random(10), 500)).tokenizeToBuffer();
+        List<Token> list = tokens.asList();
+        assertEquals(tokens.size(), list.size());
+        TokenBuffer.Cursor cursor = tokens.cursor();
+        for (int i = 0; i < tokens.size(); i++) {
+            assertTrue(cursor.next());
+            assertEquals(i, cursor.index());
+            assertEquals(tokens.type(i), cursor.type());
+            assertEquals(tokens.start(i), cursor.start());
+            assertEquals(tokens.length(i), cursor.length());
+            assertEquals(tokens.line(i), cursor.line());
+            assertEquals(tokens.text(i).toString(), cursor.text().toString());
+            assertEquals(tokens.token(i).toString(), list.get(i).toString());
+        }
+        assertFalse(cursor.next());
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(tokens.size()));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(-1));
+    }
+
+    @Test
+    void addAllAppendsInOrder() {
+        String source = RandomPrograms.program(new Random(11), 300);
+        TokenBuffer all = new LexicalAnalyzer(source).tokenizeToBuffer();
+        TokenBuffer joined = new TokenBuffer(source, 1);
+        int from = 0;
+        while (from < all.size()) {
+            TokenBuffer part = new TokenBuffer(source, 1);
+            for (int i = from; i < Math.min(all.size(), from + 37); i++) {
+                part.add(all.type(i), all.start(i), all.start(i) + all.length(i), all.line(i));
+            }
+            joined.addAll(part);
+            from += 37;
+        }
+        assertEquals(RandomPrograms.describe(all), RandomPrograms.describe(joined));
+    }
+
+    @Test
+    void keepsNumberValuesThroughGrowthAndAddAll() {
+        String source = "1 2.5 x ".repeat(500);
+        TokenBuffer first = new TokenBuffer(source, 1);
+        TokenBuffer second = new TokenBuffer(source, 1);
+        for (int i = 0; i < 500; i++) {
+            TokenBuffer tokens = i < 200 ? first : second;
+            tokens.addWhole(8 * i, 8 * i + 1, 1, -i * 1000000007L);
+            tokens.addDecimal(8 * i + 2, 8 * i + 5, 1, i + 0.5);
+            tokens.add(TokenType.IDENTIFIER, 8 * i + 6, 8 * i + 7, 1);
+        }
+        first.addAll(second);
+        assertEquals(1500, first.size());
+        TokenBuffer.Cursor cursor = first.cursor();
+        for (int i = 0; i < 500; i++) {
+            assertEquals(-i * 1000000007L, first.wholeValue(3 * i));
+            assertEquals(i + 0.5, first.decimalValue(3 * i + 1));
+            assertTrue(cursor.next());
+            assertEquals(-i * 1000000007L, cursor.wholeValue());
+            assertTrue(cursor.next());
+            assertEquals(i + 0.5, cursor.decimalValue());
+            assertTrue(cursor.next());
+        }
+    }
+
+    @Test
+    void numberValuesFollowTheTokensTheyBelongTo() {
+        Random random = new Random(13);
+        TokenBuffer tokens = new TokenBuffer("", 1);
+        for (int round = 0; round < 3; round++) {
+            String source = RandomPrograms.program(random, 400);
+            TokenBuffer lexed = new LexicalAnalyzer(source).tokenizeToBuffer();
+            // Reused, and refilled in parts so the values are renumbered on the way
+            tokens.reset(source);
+            for (int from = 0; from < lexed.size(); from += 29) {
+                TokenBuffer part = new TokenBuffer(source, 1);
+                for (int i = from; i < Math.min(lexed.size(), from + 29); i++) {
+                    int start = lexed.start(i);
+                    int end = start + lexed.length(i);
+                    if (lexed.type(i) == TokenType.WHOLE_NUMBER) {
+                        part.addWhole(start, end, lexed.line(i), lexed.wholeValue(i));
+                    } else if (lexed.type(i) == TokenType.DECIMAL) {
+                        part.addDecimal(start, end, lexed.line(i), lexed.decimalValue(i));
+                    } else {
+                        part.add(lexed.type(i), start, end, lexed.line(i));
+                    }
+                }
+                tokens.addAll(part);
+            }
+            TokenBuffer.Cursor cursor = tokens.cursor();
+            for (int i = 0; i < tokens.size(); i++) {
+                assertTrue(cursor.next());
+                String text = tokens.text(i).toString();
+                if (tokens.type(i) == TokenType.WHOLE_NUMBER) {
+                    assertEquals(Long.parseLong(text), tokens.wholeValue(i));
+                    assertEquals(Long.parseLong(text), cursor.wholeValue());
+                } else if (tokens.type(i) == TokenType.DECIMAL) {
+                    assertEquals(Double.parseDouble(text), tokens.decimalValue(i));
+                    assertEquals(Double.parseDouble(text), cursor.decimalValue());
+                } else {
+                    int at = i;
+                    assertThrows(RuntimeException.class, () -> tokens.wholeValue(at));
+                    assertThrows(RuntimeException.class, cursor::decimalValue);
+                }
+            }
+        }
+    }
+
+    @Test
+    void linesCountTheNewlinesBefore() {
+        Random random = new Random(12);
+        for (int round = 0; round < 50; round++) {
+            String source = RandomPrograms.program(random, random.nextInt(300));
+            TokenBuffer tokens = new LexicalAnalyzer(source).tokenizeToBuffer();
+            int line = 1;
+            int at = 0;
+            List<String> tokenTexts = new ArrayList<>();
+            for (int i = 0; i < tokens.size(); i++) {
+                for (; at < tokens.start(i); at++) {
+                    if (source.charAt(at) == '\n') {
+                        line++;
+                    }
+                }
+                assertEquals(line, tokens.line(i), "token " + i + " of\n" + source);
+                tokenTexts.add(tokens.text(i).toString());
+            }
+            assertEquals(tokenTexts, textsOf(new LexicalAnalyzer(source).tokenize()));
+        }
+    }
+
+    private static List<String> textsOf(List<Token> tokens) {
+        List<String> texts = new ArrayList<>();
+        for (Token token : tokens) {
+            texts.add(token.getValue());
+        }
+        return texts;
+    }
+}